@@ -1,6 +1,7 @@
 package com.direwolf20.buildinggadgets2.client.events;
 
 import com.direwolf20.buildinggadgets2.client.renderer.DestructionRenderer;
+import com.direwolf20.buildinggadgets2.client.renderer.InstantPlaceRenderer;
 import com.direwolf20.buildinggadgets2.client.renderer.VBORenderer;
 import com.direwolf20.buildinggadgets2.common.items.BaseGadget;
 import com.direwolf20.buildinggadgets2.common.items.GadgetDestruction;
@@ -16,6 +17,8 @@ public class RenderLevelLast {
         if (evt.getStage() != RenderLevelStageEvent.Stage.AFTER_TRANSLUCENT_BLOCKS) {
             return;
         }
+        InstantPlaceRenderer.render(evt); //Drawn whatever the player is holding, since the blocks were placed regardless
+
         Player player = Minecraft.getInstance().player;
         if (player == null)
             return;
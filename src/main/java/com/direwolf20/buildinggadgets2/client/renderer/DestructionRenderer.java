@@ -2,8 +2,8 @@ package com.direwolf20.buildinggadgets2.client.renderer;
 
 import com.direwolf20.buildinggadgets2.setup.Registration;
 import com.direwolf20.buildinggadgets2.util.BuildingUtils;
+import com.direwolf20.buildinggadgets2.util.CollectCache;
 import com.direwolf20.buildinggadgets2.util.GadgetNBT;
-import com.direwolf20.buildinggadgets2.util.GadgetUtils;
 import com.direwolf20.buildinggadgets2.util.VectorHelper;
 import com.mojang.blaze3d.vertex.PoseStack;
 import com.mojang.blaze3d.vertex.VertexConsumer;
@@ -49,10 +49,11 @@ public class DestructionRenderer {
         final int[] counter = {BuildingUtils.getEnergyStored(gadget)};
         final int energyCost = BuildingUtils.getEnergyCost(gadget);
         //Todo More Efficient for more FPS, consider a VBO?
-        GadgetUtils.getDestructionArea(level, startBlock, facing, player, gadget)
-                .forEach(pos -> {
+        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+        CollectCache.getDestructionArea(level, startBlock, facing, player, gadget)
+                .forEach((state, packedPos) -> {
                     if (counter[0] >= energyCost || player.isCreative())
-                        MyRenderMethods.renderBoxSolid(stack.last().pose(), builder, pos.pos, 1, 0, 0, 0.35f);
+                        MyRenderMethods.renderBoxSolid(stack.last().pose(), builder, pos.set(packedPos), 1, 0, 0, 0.35f);
                     counter[0] -= energyCost;
                 });
 
@@ -0,0 +1,64 @@
+package com.direwolf20.buildinggadgets2.client.renderer;
+
+import com.mojang.blaze3d.vertex.PoseStack;
+import com.mojang.blaze3d.vertex.VertexConsumer;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.MultiBufferSource;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.phys.Vec3;
+import net.neoforged.neoforge.client.event.RenderLevelStageEvent;
+
+import java.util.ArrayDeque;
+
+/**
+ * Client side feedback for the Instant render type - a short white flash over each placed block, instead of a ticking RenderBlock
+ */
+public class InstantPlaceRenderer {
+    private static final int FADE_TICKS = 10;
+    private static final int MAX_FLASHES = 16384; //Oldest flashes are dropped past this, so a huge paste can't bog the client down
+
+    private record Flash(BlockPos pos, long placedAt) {
+    }
+
+    private static final ArrayDeque<Flash> flashes = new ArrayDeque<>();
+
+    public static void addFlashes(long[] positions) {
+        Level level = Minecraft.getInstance().level;
+        if (level == null) return;
+        long gameTime = level.getGameTime();
+        for (long pos : positions)
+            flashes.addLast(new Flash(BlockPos.of(pos), gameTime));
+        while (flashes.size() > MAX_FLASHES)
+            flashes.pollFirst();
+    }
+
+    public static void render(RenderLevelStageEvent evt) {
+        if (flashes.isEmpty()) return;
+        Level level = Minecraft.getInstance().level;
+        if (level == null) {
+            flashes.clear();
+            return;
+        }
+        long gameTime = level.getGameTime();
+        while (!flashes.isEmpty() && gameTime - flashes.peekFirst().placedAt() >= FADE_TICKS)
+            flashes.pollFirst(); //Flashes are added in order, so the expired ones are always at the front
+        if (flashes.isEmpty()) return;
+
+        Vec3 playerPos = Minecraft.getInstance().gameRenderer.getMainCamera().getPosition();
+
+        PoseStack stack = evt.getPoseStack();
+        stack.pushPose();
+        stack.translate(-playerPos.x(), -playerPos.y(), -playerPos.z());
+
+        MultiBufferSource.BufferSource buffer = Minecraft.getInstance().renderBuffers().bufferSource();
+        VertexConsumer builder = buffer.getBuffer(OurRenderTypes.MissingBlockOverlay);
+        for (Flash flash : flashes) {
+            float alpha = 0.5f * (1f - (float) (gameTime - flash.placedAt()) / FADE_TICKS);
+            MyRenderMethods.renderBoxSolid(stack.last().pose(), builder, flash.pos(), 1, 1, 1, alpha);
+        }
+
+        stack.popPose();
+        buffer.endBatch(OurRenderTypes.MissingBlockOverlay);
+    }
+}
@@ -0,0 +1,90 @@
+package com.direwolf20.buildinggadgets2.client.renderer;
+
+import com.mojang.blaze3d.vertex.*;
+import net.minecraft.client.renderer.RenderType;
+import org.joml.Vector3f;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A tesselated preview, one mesh per RenderType, plus what it takes to re-sort them later. Building only touches the buffers in here,
+ * so it can happen off the render thread - upload() and sort() can't.
+ */
+public class PreviewMesh {
+    private static final int INITIAL_BUFFER_SIZE = 0x40000; //Most meshes are a single preview section, so start small and let the builder grow
+    private final Map<RenderType, ByteBufferBuilder> byteBuilders = new HashMap<>();
+    private final Map<RenderType, BufferBuilder> bufferBuilders = new HashMap<>();
+    private final Map<RenderType, MeshData> meshDatas = new HashMap<>();
+    private final Map<RenderType, MeshData.SortState> sortStates = new HashMap<>();
+
+    public BufferBuilder getBuilder(RenderType renderType) {
+        return bufferBuilders.computeIfAbsent(renderType, rt -> new BufferBuilder(byteBuilders.computeIfAbsent(rt, type -> new ByteBufferBuilder(Math.min(INITIAL_BUFFER_SIZE, type.bufferSize()))), rt.mode(), rt.format()));
+    }
+
+    /**
+     * Finishes all the builders, sorting their quads back to front as seen from sortPos
+     */
+    public void build(Vector3f sortPos) {
+        for (Map.Entry<RenderType, BufferBuilder> entry : bufferBuilders.entrySet()) {
+            RenderType renderType = entry.getKey();
+            MeshData meshData = entry.getValue().build();
+            if (meshData == null) continue; //Nothing was drawn with this RenderType
+            sortStates.put(renderType, meshData.sortQuads(byteBuilders.get(renderType), sorting(sortPos)));
+            meshDatas.put(renderType, meshData);
+        }
+        bufferBuilders.clear();
+    }
+
+    /**
+     * The RenderTypes this mesh has anything to draw for
+     */
+    public Set<RenderType> getRenderTypes() {
+        return sortStates.keySet();
+    }
+
+    public void upload(Map<RenderType, VertexBuffer> vertexBuffers) {
+        for (Map.Entry<RenderType, MeshData> entry : meshDatas.entrySet()) {
+            VertexBuffer vertexBuffer = vertexBuffers.get(entry.getKey());
+            vertexBuffer.bind();
+            vertexBuffer.upload(entry.getValue()); //This closes the MeshData for us
+            VertexBuffer.unbind();
+        }
+        meshDatas.clear();
+        //The vertices live on the GPU now - only the SortStates are needed from here on
+        for (ByteBufferBuilder byteBufferBuilder : byteBuilders.values())
+            byteBufferBuilder.close();
+        byteBuilders.clear();
+    }
+
+    /**
+     * Re-sorts the uploaded meshes as seen from sortPos. The index buffers are built in indexBuilder, which can be shared between meshes
+     */
+    public void sort(Map<RenderType, VertexBuffer> vertexBuffers, Vector3f sortPos, ByteBufferBuilder indexBuilder) {
+        for (Map.Entry<RenderType, MeshData.SortState> entry : sortStates.entrySet()) {
+            RenderType renderType = entry.getKey();
+            ByteBufferBuilder.Result renderedBuffer = entry.getValue().buildSortedIndexBuffer(indexBuilder, sorting(sortPos));
+            VertexBuffer vertexBuffer = vertexBuffers.get(renderType);
+            vertexBuffer.bind();
+            vertexBuffer.uploadIndexBuffer(renderedBuffer);
+            VertexBuffer.unbind();
+        }
+    }
+
+    //Sorts in the opposite direction from normal, since we draw from the inside
+    private static VertexSorting sorting(Vector3f sortPos) {
+        return VertexSorting.byDistance(v -> -sortPos.distanceSquared(v));
+    }
+
+    public void close() {
+        for (MeshData meshData : meshDatas.values())
+            meshData.close();
+        meshDatas.clear();
+        for (ByteBufferBuilder byteBufferBuilder : byteBuilders.values())
+            byteBufferBuilder.close();
+        byteBuilders.clear();
+        bufferBuilders.clear();
+        sortStates.clear();
+    }
+}
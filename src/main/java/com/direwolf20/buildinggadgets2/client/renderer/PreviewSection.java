@@ -0,0 +1,70 @@
+package com.direwolf20.buildinggadgets2.client.renderer;
+
+import com.mojang.blaze3d.systems.RenderSystem;
+import com.mojang.blaze3d.vertex.ByteBufferBuilder;
+import com.mojang.blaze3d.vertex.VertexBuffer;
+import net.minecraft.client.renderer.RenderType;
+import net.minecraft.core.SectionPos;
+import net.minecraft.world.phys.AABB;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One 16x16x16 chunk of the in-world preview, with its own VertexBuffers so it can be rebuilt and culled on its own
+ */
+public class PreviewSection {
+    public final AABB bounds; //Relative to the preview's renderPos, like the vertices
+    public long hash; //Of the StatePos that were tesselated into this section, see VBORenderer.hashAdjusted
+    private PreviewMesh mesh;
+    private final Map<RenderType, VertexBuffer> vertexBuffers = new HashMap<>();
+
+    public PreviewSection(long sectionKey) {
+        int x = SectionPos.sectionToBlockCoord(SectionPos.x(sectionKey));
+        int y = SectionPos.sectionToBlockCoord(SectionPos.y(sectionKey));
+        int z = SectionPos.sectionToBlockCoord(SectionPos.z(sectionKey));
+        this.bounds = new AABB(x, y, z, x + 16, y + 16, z + 16);
+    }
+
+    /**
+     * Uploads a freshly built mesh, replacing whatever this section drew before. Main thread only
+     */
+    public void update(PreviewMesh newMesh, long hash) {
+        for (RenderType renderType : newMesh.getRenderTypes())
+            vertexBuffers.computeIfAbsent(renderType, rt -> new VertexBuffer(VertexBuffer.Usage.STATIC));
+        newMesh.upload(vertexBuffers);
+        if (mesh != null)
+            mesh.close();
+        mesh = newMesh;
+        this.hash = hash;
+    }
+
+    public boolean hasRenderType(RenderType renderType) {
+        return mesh != null && mesh.getRenderTypes().contains(renderType);
+    }
+
+    public void draw(RenderType renderType, Matrix4f modelViewMatrix, Matrix4f projectionMatrix) {
+        VertexBuffer vertexBuffer = vertexBuffers.get(renderType);
+        if (vertexBuffer == null || vertexBuffer.getFormat() == null)
+            return; //IDE says this is never null, but if we remove this check we crash because its null so....
+        vertexBuffer.bind();
+        vertexBuffer.drawWithShader(modelViewMatrix, projectionMatrix, RenderSystem.getShader());
+        VertexBuffer.unbind();
+    }
+
+    public void sort(Vector3f sortPos, ByteBufferBuilder indexBuilder) {
+        if (mesh != null)
+            mesh.sort(vertexBuffers, sortPos, indexBuilder);
+    }
+
+    public void close() {
+        if (mesh != null)
+            mesh.close();
+        mesh = null;
+        for (VertexBuffer vertexBuffer : vertexBuffers.values())
+            vertexBuffer.close();
+        vertexBuffers.clear();
+    }
+}
@@ -4,27 +4,39 @@ import com.direwolf20.buildinggadgets2.common.items.*;
 import com.direwolf20.buildinggadgets2.common.worlddata.BG2DataClient;
 import com.direwolf20.buildinggadgets2.setup.Registration;
 import com.direwolf20.buildinggadgets2.util.*;
+import com.direwolf20.buildinggadgets2.util.datatypes.BlockBuffer;
 import com.direwolf20.buildinggadgets2.util.datatypes.StatePos;
 import com.direwolf20.buildinggadgets2.util.modes.BaseMode;
 import com.mojang.blaze3d.systems.RenderSystem;
 import com.mojang.blaze3d.vertex.*;
+import com.mojang.logging.LogUtils;
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import net.minecraft.Util;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.renderer.MultiBufferSource;
 import net.minecraft.client.renderer.RenderType;
 import net.minecraft.client.renderer.block.BlockRenderDispatcher;
 import net.minecraft.client.renderer.block.ModelBlockRenderer;
 import net.minecraft.client.renderer.blockentity.BlockEntityRenderDispatcher;
+import net.minecraft.client.renderer.culling.Frustum;
 import net.minecraft.client.renderer.texture.OverlayTexture;
 import net.minecraft.client.resources.model.BakedModel;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
 import net.minecraft.core.GlobalPos;
+import net.minecraft.core.SectionPos;
 import net.minecraft.util.RandomSource;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.phys.AABB;
 import net.minecraft.world.phys.BlockHitResult;
 import net.minecraft.world.phys.Vec3;
 import net.minecraft.world.phys.shapes.Shapes;
@@ -32,49 +44,74 @@ import net.neoforged.neoforge.client.event.RenderLevelStageEvent;
 import net.neoforged.neoforge.client.model.data.ModelData;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
+import org.slf4j.Logger;
 
+import javax.annotation.Nullable;
 import java.awt.*;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
 
 public class VBORenderer {
-    private static ArrayList<StatePos> statePosCache;
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static BlockBuffer statePosCache;
     private static int sortCounter = 0;
     //public static UUID gadgetUUIDCache = UUID.randomUUID(); //The Unique ID of the gadget who's data we're caching. If this differs, it means the player swapped to another gadget
     public static UUID copyPasteUUIDCache = UUID.randomUUID(); //A unique ID of the copy/paste, which we'll use to determine if we need to request an update from the server Its initialized as random to avoid having to null check it
+    public static UUID dataVersionCache = UUID.randomUUID(); //The BG2DataClient data version we last built from, which changes as partial copy data arrives
 
     private static FakeRenderingWorld fakeRenderingWorld;
 
-    //Cached SortStates used for re-sorting every so often
-    private static final Map<RenderType, MeshData.SortState> sortStates = new HashMap<>();
-    private static final Map<RenderType, BufferBuilder> bufferBuilders = new HashMap<>();
-    private static final Map<RenderType, MeshData> meshDatas = new HashMap<>();
-    //A map of RenderType -> DireBufferBuilder, so we can draw the different render types in proper order later
-    private static final Map<RenderType, ByteBufferBuilder> byteBuilders = RenderType.chunkBufferLayers().stream().collect(Collectors.toMap((renderType) -> renderType, (type) -> new ByteBufferBuilder(type.bufferSize())));
-    //A map of RenderType -> Vertex Buffer to buffer the different render types.
-    private static final Map<RenderType, VertexBuffer> vertexBuffers = RenderType.chunkBufferLayers().stream().collect(Collectors.toMap((renderType) -> renderType, (type) -> new VertexBuffer(VertexBuffer.Usage.STATIC)));
-
-    //Get the buffer from the map, and ensure its building
-    public static ByteBufferBuilder getByteBuffer(RenderType renderType) {
-        return byteBuilders.get(renderType);
+    //The preview currently on screen, split into 16x16x16 sections keyed by SectionPos.asLong of their position relative to renderPos.
+    //Sections stay on screen until a newer preview finishes building, and only the ones that changed get rebuilt
+    private static final Long2ObjectOpenHashMap<PreviewSection> sections = new Long2ObjectOpenHashMap<>();
+    //Whether the sections were last built for an exchanger - if that changes every section is rebuilt. Moving the anchor doesn't, since the
+    //vertices are relative to it, only sections whose neighbour adjusted blocks hash differently get rebuilt
+    private static boolean sectionsExchanging;
+    //What the sections were built from, see getPreviewSource. They're only drawn while that's still what the held gadget previews, so switching gadgets
+    //or copies never shows the old mesh while the new one builds - only rebuilds of the same preview keep showing the old one in the meantime
+    private static UUID sectionsSource;
+    //Structural hash of the building/exchanging gadget's build list (relative to its anchor), and where it was anchored last time we looked. Null when showing a paste
+    private static long buildListHash;
+    private static BlockPos buildListRenderPos;
+    //Scratch space for re-sorting the sections, which happens one at a time on the render thread
+    private static final ByteBufferBuilder sortBuffer = new ByteBufferBuilder(RenderType.translucent().bufferSize());
+    //Bumped every time a new preview is requested, so older jobs still building in the background know to give up
+    private static volatile int meshGeneration = 0;
+    //What fakeRenderingWorld was last built from, so drawRender doesn't rebuild it every frame
+    private static BlockBuffer fakeWorldSource;
+    private static BlockPos fakeWorldPos;
+    //The StatePos in statePosCache that need a block entity render, see drawRender
+    private static List<StatePos> entityRenderList = List.of();
+    private static BlockBuffer entityRenderSource;
+    //The result of a background build - new meshes for the sections that needed one, and the hash of every section in the new preview
+    private record SectionUpdate(Long2ObjectOpenHashMap<PreviewMesh> meshes, Long2LongOpenHashMap hashes) {
+        public void close() {
+            for (PreviewMesh mesh : meshes.values())
+                mesh.close();
+        }
     }
 
     public static void clearBuffers() { //Prevents leaks - Unused?
-        for (Map.Entry<RenderType, VertexBuffer> entry : vertexBuffers.entrySet()) {
-            entry.getValue().close();
+        for (PreviewSection section : sections.values()) {
+            section.close();
         }
+        sections.clear();
+        sectionsSource = null;
     }
 
-    public static void clearByteBuffers() { //Prevents leaks - Unused?
-        for (Map.Entry<RenderType, ByteBufferBuilder> entry : byteBuilders.entrySet()) {
-            entry.getValue().clear();
-        }
-        bufferBuilders.clear();
-        sortStates.clear();
-        meshDatas.clear();
+    /**
+     * The gadget for building and exchanging, and the copy for copy/paste (Which changes with every new copy or cut). Null if there's nothing to preview yet
+     */
+    @Nullable
+    private static UUID getPreviewSource(ItemStack gadget) {
+        if (gadget.getItem() instanceof GadgetCopyPaste || gadget.getItem() instanceof GadgetCutPaste)
+            return GadgetNBT.hasCopyUUID(gadget) ? GadgetNBT.getCopyUUID(gadget) : null;
+        return GadgetNBT.getUUID(gadget);
     }
 
     //Start rendering - this is the most expensive part, so we render it, then cache it, and draw it over and over (much cheaper)
@@ -100,11 +137,11 @@ public class VBORenderer {
 
         //Start drawing the Render and cache it, used for both Building and Copy/Paste
         if (shouldUpdateRender(player, gadget))
-            generateRender(player.level(), renderPos, gadget, 0.5f, statePosCache, vertexBuffers);
+            generateRenderAsync(player.level(), renderPos, gadget, 0.5f, statePosCache);
     }
 
     public static boolean shouldUpdateRender(Player player, ItemStack gadget) {
-        ArrayList<StatePos> buildList;
+        BlockBuffer buildList;
         BaseMode mode = GadgetNBT.getMode(gadget);
         BlockHitResult lookingAt = VectorHelper.getLookingAt(player, gadget);
         BlockPos anchorPos = GadgetNBT.getAnchorPos(gadget);
@@ -116,29 +153,39 @@ public class VBORenderer {
                 return false;
             BlockState renderBlockState = GadgetNBT.getGadgetBlockState(gadget);
             if (renderBlockState.isAir()) return false;
-            buildList = mode.collect(lookingAt.getDirection(), player, renderPos, renderBlockState); //Get the build list for what we're looking at
+            buildList = CollectCache.collect(mode, lookingAt.getDirection(), player, renderPos, renderBlockState); //Get the build list for what we're looking at
 
-            FakeRenderingWorld tempWorld = new FakeRenderingWorld(player.level(), buildList, renderPos); //Toss it into the fake render world
-            if (fakeRenderingWorld != null && fakeRenderingWorld.positions.equals(tempWorld.positions)) //If they are identical, no need to update render
-                return false;
+            long hash = hashStatePos(buildList);
+            if (buildListRenderPos != null && hash == buildListHash) { //Same shape relative to the anchor as what we're showing
+                if (buildListRenderPos.equals(renderPos))
+                    return false;
+                //Only the anchor moved - drawRender already translates the preview there, so the rebuild just checks for neighbour dependent shapes that came out different
+                buildListRenderPos = renderPos;
+                return true;
+            }
 
             //If not, we should update the cache, the UUID, and return true, meaning we need to update the render
+            buildListHash = hash;
+            buildListRenderPos = renderPos;
             statePosCache = buildList;
             copyPasteUUIDCache = UUID.randomUUID(); //In case theres an existing copy/Paste render saved, nullify it
+            dataVersionCache = UUID.randomUUID();
             return true;
         } else if (gadget.getItem() instanceof GadgetCopyPaste || gadget.getItem() instanceof GadgetCutPaste) {
             renderPos = renderPos.above();
             renderPos.offset(GadgetNBT.getRelativePaste(gadget));
             if (mode.getId().getPath().equals("paste")) { //Paste Mode Only
-                if (!BG2DataClient.isClientUpToDate(gadget)) { //Have the BG2DataClient class check if its up to date
+                if (!BG2DataClient.isClientUpToDate(gadget) && !BG2DataClient.isReceiving(gadget)) { //Have the BG2DataClient class check if its up to date, or at least partway through receiving the data
                     return false; //If not up to date, we need to return false, since theres no need to regen the render if its out of date! We'll check again next draw frame
                 }
-                UUID BG2ClientUUID = BG2DataClient.getCopyUUID(gadgetUUID);
-                if (BG2ClientUUID != null && copyPasteUUIDCache.equals(BG2ClientUUID)) //If the cache this class has matches the client cache for this gadget, no need to rebuild
+                UUID BG2ClientVersion = BG2DataClient.getDataVersion(gadgetUUID); //Changes whenever more of the copy arrives, not just when its complete
+                if (BG2ClientVersion == null || dataVersionCache.equals(BG2ClientVersion)) //If the cache this class has matches the client cache for this gadget, no need to rebuild
                     return false;
-                //If we get here, the copy paste we have stored here differs from whats in the client AND the client is up to date, so rebuild!
-                copyPasteUUIDCache = BG2ClientUUID; //Cache the new copyPasteUUID for next cycle
+                //If we get here, the copy paste we have stored here differs from whats in the client AND the client is up to date (or has new partial data), so rebuild!
+                dataVersionCache = BG2ClientVersion; //Cache the new data version for next cycle
+                copyPasteUUIDCache = GadgetNBT.getCopyUUID(gadget); //Both checks above only pass when the client data belongs to the gadget's current copy
                 statePosCache = BG2DataClient.getLookupFromUUID(gadgetUUID);
+                buildListRenderPos = null; //So a building gadget with a matching buildListHash doesn't think this is its preview
                 return true; //Need a render update!
             }
         } else { //Not a gadget that needs updates
@@ -148,22 +195,156 @@ public class VBORenderer {
     }
 
     /**
-     * This method creates a Map<RenderType, VertexBuffer> when given an ArrayList<StatePos> statePosCache - its used both here to draw in-game AND in the TemplateManagerGUI.java class
+     * This method creates a Map<RenderType, VertexBuffer> when given a BlockBuffer statePosCache - its used by the TemplateManagerGUI.java class,
+     * which needs the render right away. The in-world preview uses generateRenderAsync instead
+     */
+    public static void generateRender(Level level, BlockPos renderPos, ItemStack gadget, float transparency, BlockBuffer statePosCache, Map<RenderType, VertexBuffer> vertexBuffers) {
+        boolean isExchanging = gadget.getItem() instanceof BaseGadget && GadgetNBT.getMode(gadget).isExchanging;
+        if (statePosCache == null || statePosCache.isEmpty()) return;
+        FakeRenderingWorld fakeRenderingWorld = new FakeRenderingWorld(level, statePosCache, renderPos);
+        PreviewMesh mesh = buildMesh(renderPos, isExchanging, transparency, fakeRenderingWorld, statePosCache, getSortPos(renderPos), () -> false);
+        mesh.upload(vertexBuffers);
+        mesh.close();
+    }
+
+    /**
+     * Builds the in-world preview on a background thread, like vanilla does for chunk sections, then uploads it on the main thread once its done.
+     * The world around the preview is snapshotted here first, the same way vanilla hands its chunk builder a RenderChunkRegion. Only sections whose blocks changed (or whose neighbours did) are rebuilt. Until then the previous preview keeps drawing, and if another
+     * preview gets requested first this one is thrown away
      */
-    public static void generateRender(Level level, BlockPos renderPos, ItemStack gadget, float transparency, ArrayList<StatePos> statePosCache, Map<RenderType, VertexBuffer> vertexBuffers) {
+    public static void generateRenderAsync(Level level, BlockPos renderPos, ItemStack gadget, float transparency, BlockBuffer statePosCache) {
+        int generation = ++meshGeneration;
         boolean isExchanging = gadget.getItem() instanceof BaseGadget && GadgetNBT.getMode(gadget).isExchanging;
         if (statePosCache == null || statePosCache.isEmpty()) return;
-        fakeRenderingWorld = new FakeRenderingWorld(level, statePosCache, renderPos);
+        UUID source = getPreviewSource(gadget);
+        BlockBuffer statePosList = statePosCache; //Preview lists never change once handed out, partial copy data is published as a BlockBuffer.view()
+        Vector3f sortPos = getSortPos(renderPos); //The camera is only safe to read from here
+        FakeRenderingWorld.Snapshot snapshot = FakeRenderingWorld.Snapshot.take(level, statePosList, renderPos); //So is the level
+        Long2LongOpenHashMap oldHashes = new Long2LongOpenHashMap(sections.size());
+        if (isExchanging == sectionsExchanging) { //Otherwise every section needs rebuilding anyway
+            for (Long2ObjectMap.Entry<PreviewSection> entry : sections.long2ObjectEntrySet())
+                oldHashes.put(entry.getLongKey(), entry.getValue().hash);
+        }
+        CompletableFuture.supplyAsync(() -> buildSections(level, snapshot, renderPos, isExchanging, transparency, statePosList, oldHashes, sortPos, () -> generation != meshGeneration), Util.backgroundExecutor())
+                .thenAcceptAsync(update -> {
+                    if (update == null) return; //Cancelled
+                    if (generation != meshGeneration) { //Something newer was requested while this one was building
+                        update.close();
+                        return;
+                    }
+                    applySections(update);
+                    sectionsExchanging = isExchanging;
+                    sectionsSource = source;
+                }, Minecraft.getInstance())
+                .exceptionally(e -> {
+                    LOGGER.error("Failed to build preview render", e);
+                    return null;
+                });
+    }
+
+    /**
+     * Splits the statePosList into sections and builds meshes for the ones that differ from oldHashes, plus their neighbours, since blocks
+     * connect to and shade against the blocks next door. Sections are hashed after updateFromNeighbourShapes, so a preview that only moved
+     * rebuilds just the sections where the new surroundings changed a shape. Runs off the render thread, so everything about the world comes from the snapshot,
+     * level is only handed to the fake world for its fixed properties (height, dimension type). Returns null if cancelled partway through
+     */
+    @Nullable
+    private static SectionUpdate buildSections(Level level, FakeRenderingWorld.Snapshot snapshot, BlockPos renderPos, boolean isExchanging, float transparency, BlockBuffer statePosList, Long2LongOpenHashMap oldHashes, Vector3f sortPos, BooleanSupplier cancelled) {
+        FakeRenderingWorld fakeRenderingWorld = new FakeRenderingWorld(level, snapshot, statePosList, renderPos); //The whole preview, so section edges see their neighbours
+        if (cancelled.getAsBoolean()) return null;
+        Long2ObjectOpenHashMap<BlockBuffer> sectionLists = new Long2ObjectOpenHashMap<>();
+        for (int i = 0; i < statePosList.size(); i++)
+            sectionLists.computeIfAbsent(SectionPos.blockToSection(statePosList.getPosLong(i)), k -> new BlockBuffer()).add(statePosList.getState(i), statePosList.getPosLong(i));
+
+        Long2LongOpenHashMap hashes = new Long2LongOpenHashMap(sectionLists.size());
+        LongOpenHashSet changed = new LongOpenHashSet();
+        for (Long2ObjectMap.Entry<BlockBuffer> entry : sectionLists.long2ObjectEntrySet()) {
+            long hash = hashAdjusted(fakeRenderingWorld, entry.getValue());
+            hashes.put(entry.getLongKey(), hash);
+            if (!oldHashes.containsKey(entry.getLongKey()) || oldHashes.get(entry.getLongKey()) != hash)
+                changed.add(entry.getLongKey());
+        }
+        for (long sectionKey : oldHashes.keySet()) {
+            if (!hashes.containsKey(sectionKey))
+                changed.add(sectionKey); //Gone entirely, but its neighbours may have been connecting to it
+        }
+        LongOpenHashSet dirty = new LongOpenHashSet();
+        for (long sectionKey : changed) {
+            if (hashes.containsKey(sectionKey))
+                dirty.add(sectionKey);
+            for (Direction direction : Direction.values()) {
+                long neighbour = SectionPos.offset(sectionKey, direction);
+                if (hashes.containsKey(neighbour))
+                    dirty.add(neighbour);
+            }
+        }
+
+        Long2ObjectOpenHashMap<PreviewMesh> meshes = new Long2ObjectOpenHashMap<>(dirty.size());
+        SectionUpdate update = new SectionUpdate(meshes, hashes);
+        if (dirty.isEmpty()) return update;
+        for (long sectionKey : dirty) {
+            PreviewMesh mesh = buildMesh(renderPos, isExchanging, transparency, fakeRenderingWorld, sectionLists.get(sectionKey), sortPos, cancelled);
+            if (mesh == null) {
+                update.close();
+                return null;
+            }
+            meshes.put(sectionKey, mesh);
+        }
+        return update;
+    }
+
+    //Main thread only - swaps the freshly built meshes in, and drops the sections that aren't part of the preview anymore
+    private static void applySections(SectionUpdate update) {
+        for (ObjectIterator<Long2ObjectMap.Entry<PreviewSection>> iterator = sections.long2ObjectEntrySet().iterator(); iterator.hasNext(); ) {
+            Long2ObjectMap.Entry<PreviewSection> entry = iterator.next();
+            if (!update.hashes().containsKey(entry.getLongKey())) {
+                entry.getValue().close();
+                iterator.remove();
+            }
+        }
+        for (Long2ObjectMap.Entry<PreviewMesh> entry : update.meshes().long2ObjectEntrySet())
+            sections.computeIfAbsent(entry.getLongKey(), k -> new PreviewSection(k)).update(entry.getValue(), update.hashes().get(entry.getLongKey()));
+    }
+
+    //Order independent, so the same blocks collected in a different order don't count as a change
+    private static long hashStatePos(BlockBuffer statePosList) {
+        long hash = statePosList.size();
+        for (int i = 0; i < statePosList.size(); i++)
+            hash += HashCommon.mix(statePosList.getPosLong(i) * 31 + statePosList.getState(i).hashCode());
+        return hash;
+    }
+
+    //Like hashStatePos, but with the states as the fake world adjusted them to their neighbours, which is what actually gets tesselated
+    private static long hashAdjusted(FakeRenderingWorld fakeRenderingWorld, BlockBuffer statePosList) {
+        long hash = statePosList.size();
+        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+        for (int i = 0; i < statePosList.size(); i++)
+            hash += HashCommon.mix(statePosList.getPosLong(i) * 31 + fakeRenderingWorld.getBlockStateWithoutReal(pos.set(statePosList.getPosLong(i))).hashCode());
+        return hash;
+    }
+
+    /**
+     * Tesselates the statePosList into a PreviewMesh, sorted as seen from sortPos. Doesn't touch anything GL related, and only reads the world through fakeRenderingWorld,
+     * so its safe to call off the render thread as long as that was built with a snapshot. Returns null if cancelled reports true partway through
+     */
+    @Nullable
+    private static PreviewMesh buildMesh(BlockPos renderPos, boolean isExchanging, float transparency, FakeRenderingWorld fakeRenderingWorld, BlockBuffer statePosList, Vector3f sortPos, BooleanSupplier cancelled) {
         PoseStack matrix = new PoseStack(); //Create a new matrix stack for use in the buffer building process
         BlockRenderDispatcher dispatcher = Minecraft.getInstance().getBlockRenderer();
         ModelBlockRenderer modelBlockRenderer = dispatcher.getModelRenderer();
         final RandomSource random = RandomSource.create();
+        PreviewMesh mesh = new PreviewMesh();
 
-        clearByteBuffers();
-
-
+        int counter = 0;
         //Iterate through the state pos cache and start drawing to the VertexBuffers - skip modelRenders(like chests) - include fluids (even though they don't work yet)
-        for (StatePos pos : statePosCache.stream().filter(pos -> isModelRender(pos.state) || !pos.state.getFluidState().isEmpty()).toList()) {
+        for (int i = 0; i < statePosList.size(); i++) {
+            BlockState state = statePosList.getState(i);
+            if (!isModelRender(state) && state.getFluidState().isEmpty()) continue;
+            if ((++counter & 255) == 0 && cancelled.getAsBoolean()) {
+                mesh.close();
+                return null;
+            }
+            StatePos pos = new StatePos(state, statePosList.getPos(i));
             BlockState renderState = fakeRenderingWorld.getBlockStateWithoutReal(pos.pos);
             if (renderState.isAir()) continue;
 
@@ -177,9 +358,9 @@ public class VBORenderer {
 
             for (RenderType renderType : ibakedmodel.getRenderTypes(renderState, random, ModelData.EMPTY)) {
                 //Flowers render weirdly so we use a custom renderer to make them look better. Glass and Flowers are both cutouts, so we only want this for non-cube blocks
-                if (renderType.equals(RenderType.cutout()) && renderState.getShape(level, pos.pos.offset(renderPos)).equals(Shapes.block()))
+                if (renderType.equals(RenderType.cutout()) && renderState.getShape(fakeRenderingWorld, pos.pos).equals(Shapes.block()))
                     renderType = RenderType.translucent();
-                BufferBuilder builder = bufferBuilders.computeIfAbsent(renderType, rt -> new BufferBuilder(getByteBuffer(rt), rt.mode(), rt.format()));
+                BufferBuilder builder = mesh.getBuilder(renderType);
                 DireVertexConsumer direVertexConsumer = new DireVertexConsumer(builder, transparency);
                 //Use tesselateBlock to skip the block.isModel check - this helps render Create blocks that are both models AND animated
                 if (renderState.getFluidState().isEmpty()) {
@@ -190,32 +371,23 @@ public class VBORenderer {
                         //System.out.println(e);
                     }
                 } else
-                    RenderFluidBlock.renderFluidBlock(renderState, level, pos.pos.offset(renderPos).above(255), matrix, direVertexConsumer, false);
+                    RenderFluidBlock.renderFluidBlock(renderState, fakeRenderingWorld, pos.pos.offset(renderPos).above(255), matrix, direVertexConsumer, false);
                 //dispatcher.renderLiquid(pos.pos, level, direVertexConsumer, renderState, renderState.getFluidState());
                 //dispatcher.renderBatched(renderState, pos.pos.offset(lookingAt.getBlockPos()), level, matrix, direVertexConsumer, true, RandomSource.create(), ModelData.EMPTY, renderType);
 
             }
             matrix.popPose();
         }
-        //Sort all the builder's vertices and then upload them to the vertex buffers
+        //Sort all the builder's vertices, ready to be uploaded to the vertex buffers
+        mesh.build(sortPos);
+        return mesh;
+    }
+
+    //The camera position relative to renderPos, which is what the preview's vertices are relative to
+    private static Vector3f getSortPos(BlockPos renderPos) {
         Vec3 projectedView = Minecraft.getInstance().gameRenderer.getMainCamera().getPosition();
         Vec3 subtracted = projectedView.subtract(renderPos.getX(), renderPos.getY(), renderPos.getZ());
-        Vector3f sortPos = new Vector3f((float) subtracted.x, (float) subtracted.y, (float) subtracted.z);
-        for (Map.Entry<RenderType, BufferBuilder> entry : bufferBuilders.entrySet()) {
-            RenderType renderType = entry.getKey();
-            ByteBufferBuilder byteBufferBuilder = getByteBuffer(renderType);
-            BufferBuilder builder = entry.getValue();
-            if (meshDatas.containsKey(renderType) && meshDatas.get(renderType) != null)
-                meshDatas.get(renderType).close();
-            meshDatas.put(renderType, builder.build());
-            if (meshDatas.containsKey(renderType) && meshDatas.get(renderType) != null) {
-                sortStates.put(renderType, meshDatas.get(renderType).sortQuads(byteBufferBuilder, VertexSorting.byDistance(v -> -sortPos.distanceSquared(v))));
-                VertexBuffer vertexBuffer = vertexBuffers.get(entry.getKey());
-                vertexBuffer.bind();
-                vertexBuffer.upload(meshDatas.get(renderType));
-                VertexBuffer.unbind();
-            }
-        }
+        return new Vector3f((float) subtracted.x, (float) subtracted.y, (float) subtracted.z);
     }
 
     public static void drawCopyBox(PoseStack matrix, ItemStack gadget, String mode) {
@@ -254,9 +426,11 @@ public class VBORenderer {
 
     //Draw what we've cached
     public static void drawRender(RenderLevelStageEvent evt, Player player, ItemStack gadget) {
-        if (vertexBuffers == null || statePosCache == null) {
+        if (sections.isEmpty() || statePosCache == null) {
             return;
         }
+        if (sectionsSource == null || !sectionsSource.equals(getPreviewSource(gadget)))
+            return; //Still showing another gadget's or copy's preview, the one for this gadget hasn't finished building yet
         MultiBufferSource.BufferSource buffersource = Minecraft.getInstance().renderBuffers().bufferSource();
         Vec3 projectedView = Minecraft.getInstance().gameRenderer.getMainCamera().getPosition();
         BlockHitResult lookingAt = VectorHelper.getLookingAt(player, gadget);
@@ -266,12 +440,12 @@ public class VBORenderer {
 
         if ((lookingAtState.isAir() && anchorPos.equals(GadgetNBT.nullPos)) || lookingAtState.getBlock().equals(Registration.RenderBlock.get()))
             return;
-        ArrayList<StatePos> buildList = new ArrayList<>();
+        BlockBuffer buildList = new BlockBuffer();
         var mode = GadgetNBT.getMode(gadget);
         if (gadget.getItem() instanceof GadgetBuilding || gadget.getItem() instanceof GadgetExchanger) {
             BlockState renderBlockState = GadgetNBT.getGadgetBlockState(gadget);
             if (renderBlockState.isAir()) return;
-            buildList = mode.collect(lookingAt.getDirection(), player, renderPos, renderBlockState);
+            buildList = CollectCache.collect(mode, lookingAt.getDirection(), player, renderPos, renderBlockState);
 
             if (buildList.isEmpty()) return;
         } else if (gadget.getItem() instanceof GadgetCopyPaste || gadget.getItem() instanceof GadgetCutPaste) {
@@ -282,9 +456,19 @@ public class VBORenderer {
                 return;
             renderPos = renderPos.above().offset(GadgetNBT.getRelativePaste(gadget));
         }
+        //Only draw the sections the camera can see, nearest first like the quads inside each of them
+        Frustum frustum = evt.getFrustum();
+        Vec3 cameraOffset = projectedView.subtract(renderPos.getX(), renderPos.getY(), renderPos.getZ());
+        ArrayList<PreviewSection> visibleSections = new ArrayList<>();
+        for (PreviewSection section : sections.values()) {
+            if (frustum.isVisible(section.bounds.move(renderPos.getX(), renderPos.getY(), renderPos.getZ())))
+                visibleSections.add(section);
+        }
+        visibleSections.sort(Comparator.comparingDouble(section -> section.bounds.getCenter().distanceToSqr(cameraOffset)));
+
         //Sort every <X> Frames to prevent screendoor effect
         if (sortCounter > 20) {
-            sortAll(renderPos);
+            sortAll(renderPos, visibleSections);
             sortCounter = 0;
         } else {
             sortCounter++;
@@ -295,18 +479,14 @@ public class VBORenderer {
         matrix.mulPose(evt.getModelViewMatrix());
         matrix.translate(-projectedView.x(), -projectedView.y(), -projectedView.z());
         matrix.translate(renderPos.getX(), renderPos.getY(), renderPos.getZ());
-        //Draw the renders in the specified order -- Confirm they exist in this drawset first though!
+        //Draw the renders in the specified order -- Each section confirms it has the RenderType first though!
         ArrayList<RenderType> drawSet = new ArrayList<>();
-        if (bufferBuilders.containsKey(RenderType.solid()))
-            drawSet.add(RenderType.solid());
-        if (bufferBuilders.containsKey(RenderType.cutout()))
-            drawSet.add(RenderType.cutout());
-        if (bufferBuilders.containsKey(RenderType.cutoutMipped()))
-            drawSet.add(RenderType.cutoutMipped());
-        if (bufferBuilders.containsKey(RenderType.translucent()))
-            drawSet.add(RenderType.translucent());
-        if (bufferBuilders.containsKey(RenderType.tripwire()))
-            drawSet.add(RenderType.tripwire());
+        drawSet.add(RenderType.solid());
+        drawSet.add(RenderType.cutout());
+        drawSet.add(RenderType.cutoutMipped());
+        drawSet.add(RenderType.translucent());
+        drawSet.add(RenderType.tripwire());
+        Matrix4f projectionMatrix = new Matrix4f(evt.getProjectionMatrix());
         try {
             for (RenderType renderType : drawSet) {
                 RenderType drawRenderType;
@@ -314,13 +494,11 @@ public class VBORenderer {
                     drawRenderType = OurRenderTypes.RenderBlock;
                 else
                     drawRenderType = RenderType.translucent();
-                VertexBuffer vertexBuffer = vertexBuffers.get(renderType);
-                if (vertexBuffer.getFormat() == null)
-                    continue; //IDE says this is never null, but if we remove this check we crash because its null so....
                 drawRenderType.setupRenderState();
-                vertexBuffer.bind();
-                vertexBuffer.drawWithShader(matrix.last().pose(), new Matrix4f(evt.getProjectionMatrix()), RenderSystem.getShader());
-                VertexBuffer.unbind();
+                for (PreviewSection section : visibleSections) {
+                    if (section.hasRenderType(renderType))
+                        section.draw(renderType, matrix.last().pose(), projectionMatrix);
+                }
                 drawRenderType.clearRenderState();
             }
         } catch (Exception e) {
@@ -331,9 +509,23 @@ public class VBORenderer {
         BlockRenderDispatcher dispatcher = Minecraft.getInstance().getBlockRenderer();
         MyRenderMethods.MultiplyAlphaRenderTypeBuffer multiplyAlphaRenderTypeBuffer = new MyRenderMethods.MultiplyAlphaRenderTypeBuffer(buffersource, 0.5f);
         //If any of the blocks in the render didn't have a model (like chests) we draw them here. This renders AND draws them, so more expensive than caching, but I don't think we have a choice
-        fakeRenderingWorld = new FakeRenderingWorld(player.level(), statePosCache, renderPos);
-        for (StatePos pos : statePosCache.stream().filter(pos -> !isModelRender(pos.state)).toList()) {
+        if (entityRenderSource != statePosCache) { //Filtering a huge paste every frame adds up, so only redo it when the list changes
+            ArrayList<StatePos> entityRenders = new ArrayList<>();
+            for (int i = 0; i < statePosCache.size(); i++) {
+                if (!isModelRender(statePosCache.getState(i)))
+                    entityRenders.add(new StatePos(statePosCache.getState(i), statePosCache.getPos(i)));
+            }
+            entityRenderList = entityRenders;
+            entityRenderSource = statePosCache;
+        }
+        if (!entityRenderList.isEmpty() && (fakeRenderingWorld == null || fakeWorldSource != statePosCache || !renderPos.equals(fakeWorldPos))) {
+            fakeRenderingWorld = new FakeRenderingWorld(player.level(), statePosCache, renderPos);
+            fakeWorldSource = statePosCache;
+            fakeWorldPos = renderPos;
+        }
+        for (StatePos pos : entityRenderList) {
             if (pos.state.isAir()) continue;
+            if (!frustum.isVisible(new AABB(pos.pos.offset(renderPos)))) continue;
             matrix.pushPose();
             matrix.translate(-projectedView.x(), -projectedView.y(), -projectedView.z());
             matrix.translate(renderPos.getX(), renderPos.getY(), renderPos.getZ());
@@ -370,7 +562,8 @@ public class VBORenderer {
             int availableItems = BuildingUtils.countItemStacks(player, findStack);
             int energyStored = BuildingUtils.getEnergyStored(gadget);
             int energyCost = BuildingUtils.getEnergyCost(gadget);
-            for (StatePos statePos : buildList) {
+            BlockPos.MutableBlockPos missingPos = new BlockPos.MutableBlockPos();
+            for (int i = 0; i < buildList.size(); i++) {
                 if (availableItems <= 0 || energyStored < energyCost) {
                     matrix.pushPose();
                     matrix.translate(-projectedView.x(), -projectedView.y(), -projectedView.z());
@@ -379,7 +572,7 @@ public class VBORenderer {
                     //if (hasBound)
                     //    MyRenderMethods.renderBoxSolid(evt.getPoseStack().last().pose(), builder, statePos.pos, 1, 1, 0, 0.35f);
                     //else
-                    MyRenderMethods.renderBoxSolid(evt.getPoseStack().last().pose(), builder, statePos.pos, 1, 0, 0, 0.35f);
+                    MyRenderMethods.renderBoxSolid(evt.getPoseStack().last().pose(), builder, missingPos.set(buildList.getPosLong(i)), 1, 0, 0, 0.35f);
                     matrix.popPose();
                 }
                 availableItems--;
@@ -388,23 +581,10 @@ public class VBORenderer {
         }
     }
 
-    //Sort all the RenderTypes
-    public static void sortAll(BlockPos lookingAt) {
-        for (Map.Entry<RenderType, MeshData.SortState> entry : sortStates.entrySet()) {
-            RenderType renderType = entry.getKey();
-            ByteBufferBuilder.Result renderedBuffer = sort(lookingAt, renderType);
-            VertexBuffer vertexBuffer = vertexBuffers.get(renderType);
-            vertexBuffer.bind();
-            vertexBuffer.uploadIndexBuffer(renderedBuffer);
-            VertexBuffer.unbind();
-        }
-    }
-
-    //Sort the render type we pass in - using DireBufferBuilder because we want to sort in the opposite direction from normal
-    public static ByteBufferBuilder.Result sort(BlockPos lookingAt, RenderType renderType) {
-        Vec3 projectedView = Minecraft.getInstance().gameRenderer.getMainCamera().getPosition();
-        Vec3 subtracted = projectedView.subtract(lookingAt.getX(), lookingAt.getY(), lookingAt.getZ());
-        Vector3f sortPos = new Vector3f((float) subtracted.x, (float) subtracted.y, (float) subtracted.z);
-        return sortStates.get(renderType).buildSortedIndexBuffer(getByteBuffer(renderType), VertexSorting.byDistance(v -> -sortPos.distanceSquared(v)));
+    //Sort all the RenderTypes of the given sections
+    public static void sortAll(BlockPos lookingAt, ArrayList<PreviewSection> sectionsToSort) {
+        Vector3f sortPos = getSortPos(lookingAt);
+        for (PreviewSection section : sectionsToSort)
+            section.sort(sortPos, sortBuffer);
     }
 }
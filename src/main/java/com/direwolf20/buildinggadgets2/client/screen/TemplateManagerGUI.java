@@ -22,6 +22,7 @@ import com.direwolf20.buildinggadgets2.common.worlddata.BG2Data;
 import com.direwolf20.buildinggadgets2.common.worlddata.BG2DataClient;
 import com.direwolf20.buildinggadgets2.util.FakeRenderingWorld;
 import com.direwolf20.buildinggadgets2.util.GadgetNBT;
+import com.direwolf20.buildinggadgets2.util.datatypes.BlockBuffer;
 import com.direwolf20.buildinggadgets2.util.datatypes.StatePos;
 import com.direwolf20.buildinggadgets2.util.datatypes.Template;
 import com.mojang.blaze3d.systems.RenderSystem;
@@ -80,7 +81,7 @@ public class TemplateManagerGUI extends AbstractContainerScreen<TemplateManagerC
     public static UUID gadgetUUID = UUID.randomUUID(); //Cached version of whatevers in slot 0
     public static UUID templateUUID = UUID.randomUUID(); //Cached version of whatevers in slot 1
     public static UUID copyPasteUUIDCache = UUID.randomUUID(); //A unique ID of the copy/paste, which we'll use to determine if we need to request an update from the server Its initialized as random to avoid having to null check it
-    private static ArrayList<StatePos> statePosCache;
+    private static BlockBuffer statePosCache;
 
     private final TemplateManagerBE be;
     private final TemplateManagerContainer container;
@@ -198,11 +199,11 @@ public class TemplateManagerGUI extends AbstractContainerScreen<TemplateManagerC
         double scale = getMinecraft().getWindow().getGuiScale();
         ItemStack gadget = container.getSlot(renderSlot).getItem();
         if (gadget.isEmpty()) return;
-        ArrayList<StatePos> statePosCache = BG2DataClient.getLookupFromUUID(GadgetNBT.getUUID(gadget));
+        BlockBuffer statePosCache = BG2DataClient.getLookupFromUUID(GadgetNBT.getUUID(gadget));
         if (statePosCache == null || statePosCache.isEmpty()) return;
 
-        BlockPos startPos = statePosCache.get(0).pos;
-        BlockPos endPos = statePosCache.get(statePosCache.size() - 1).pos;
+        BlockPos startPos = statePosCache.getPos(0);
+        BlockPos endPos = statePosCache.getPos(statePosCache.size() - 1);
 
         float lengthX = Math.abs(startPos.getX() - endPos.getX());
         float lengthY = Math.abs(startPos.getY() - endPos.getY());
@@ -263,7 +264,7 @@ public class TemplateManagerGUI extends AbstractContainerScreen<TemplateManagerC
         RenderSystem.restoreProjectionMatrix();
     }
 
-    public void drawRenderScreen(PoseStack matrix, Player player, ArrayList<StatePos> statePosCache) {
+    public void drawRenderScreen(PoseStack matrix, Player player, BlockBuffer statePosCache) {
         if (container.getSlot(1).getItem().isEmpty()) {
             return;
         }
@@ -305,8 +306,10 @@ public class TemplateManagerGUI extends AbstractContainerScreen<TemplateManagerC
         MyRenderMethods.MultiplyAlphaRenderTypeBuffer multiplyAlphaRenderTypeBuffer = new MyRenderMethods.MultiplyAlphaRenderTypeBuffer(buffersource, 1f);
         //If any of the blocks in the render didn't have a model (like chests) we draw them here. This renders AND draws them, so more expensive than caching, but I don't think we have a choice
         FakeRenderingWorld fakeRenderingWorld = new FakeRenderingWorld(player.level(), statePosCache, BlockPos.ZERO);
-        for (StatePos pos : statePosCache.stream().filter(pos -> !isModelRender(pos.state)).toList()) {
-            if (pos.state.isAir()) continue;
+        for (int i = 0; i < statePosCache.size(); i++) {
+            BlockState state = statePosCache.getState(i);
+            if (isModelRender(state) || state.isAir()) continue;
+            StatePos pos = new StatePos(state, statePosCache.getPos(i));
             matrix.pushPose();
             matrix.translate(pos.pos.getX(), pos.pos.getY(), pos.pos.getZ());
             BlockEntityRenderDispatcher blockEntityRenderer = Minecraft.getInstance().getBlockEntityRenderDispatcher();
@@ -491,9 +494,9 @@ public class TemplateManagerGUI extends AbstractContainerScreen<TemplateManagerC
         Template template = new Template("", new ArrayList<>());
         if (templateStack.isEmpty()) return template;
         UUID templateUUID = GadgetNBT.getUUID(templateStack);
-        ArrayList<StatePos> statePosCache = BG2DataClient.getLookupFromUUID(templateUUID);
+        BlockBuffer statePosCache = BG2DataClient.getLookupFromUUID(templateUUID);
         if (statePosCache == null || statePosCache.isEmpty()) return template;
-        template = new Template(nameField.getValue(), statePosCache);
+        template = new Template(nameField.getValue(), statePosCache.toStatePosList());
         return template;
     }
 
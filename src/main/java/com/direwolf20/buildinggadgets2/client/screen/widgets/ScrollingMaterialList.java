@@ -5,6 +5,7 @@ import com.direwolf20.buildinggadgets2.common.worlddata.BG2DataClient;
 import com.direwolf20.buildinggadgets2.util.BuildingUtils;
 import com.direwolf20.buildinggadgets2.util.GadgetNBT;
 import com.direwolf20.buildinggadgets2.util.ItemStackKey;
+import com.direwolf20.buildinggadgets2.util.datatypes.BlockBuffer;
 import com.direwolf20.buildinggadgets2.util.datatypes.StatePos;
 import com.mojang.blaze3d.platform.Lighting;
 import com.mojang.blaze3d.systems.RenderSystem;
@@ -75,7 +76,8 @@ public class ScrollingMaterialList extends EntryList<ScrollingMaterialList.Entry
 
         //Get the statePos list - since this screen can only be called from 'paste' mode, the client side should always be up to date in theory?
         if (statePosArrayList == null || statePosArrayList.isEmpty()) {
-            statePosArrayList = BG2DataClient.getLookupFromUUID(GadgetNBT.getUUID(templateItem));
+            BlockBuffer lookup = BG2DataClient.getLookupFromUUID(GadgetNBT.getUUID(templateItem));
+            statePosArrayList = lookup == null ? null : lookup.toStatePosList();
         }
 
         Player player = Minecraft.getInstance().player;
@@ -2,8 +2,10 @@ package com.direwolf20.buildinggadgets2.common.blockentities;
 
 import com.direwolf20.buildinggadgets2.client.particles.fluidparticle.FluidFlowParticleData;
 import com.direwolf20.buildinggadgets2.client.particles.itemparticle.ItemFlowParticleData;
+import com.direwolf20.buildinggadgets2.common.events.RenderBlockTicker;
 import com.direwolf20.buildinggadgets2.setup.Registration;
 import com.direwolf20.buildinggadgets2.util.GadgetUtils;
+import com.mojang.logging.LogUtils;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.HolderLookup;
 import net.minecraft.core.registries.BuiltInRegistries;
@@ -15,18 +17,22 @@ import net.minecraft.server.level.ServerLevel;
 import net.minecraft.util.Mth;
 import net.minecraft.world.entity.item.ItemEntity;
 import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.Blocks;
 import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.state.BlockState;
 import net.neoforged.neoforge.fluids.FluidStack;
+import org.slf4j.Logger;
 
+import javax.annotation.Nullable;
 import java.util.List;
 import java.util.Random;
 
 import static com.direwolf20.buildinggadgets2.util.GadgetUtils.getSimpleItemForBlock;
 
 public class RenderBlockBE extends BlockEntity {
+    private static final Logger LOGGER = LogUtils.getLogger();
     public byte drawSize;
     public BlockState renderBlock;
     public BlockState sourceBlock;
@@ -35,6 +41,8 @@ public class RenderBlockBE extends BlockEntity {
     public boolean shrinking;
     public boolean exchanging;
     public byte renderType;
+    private long phaseStart = -1; //Server only - game tick drawSize was last set, -1 until scheduled with RenderBlockTicker
+    private long deadline; //Server only - game tick the current animation ends
 
     public RenderBlockBE(BlockPos pos, BlockState state) {
         super(Registration.RenderBlock_BE.get(), pos, state);
@@ -136,21 +144,58 @@ public class RenderBlockBE extends BlockEntity {
         }
     }
 
-    public void tickServer() {
-        increaseDrawSize();
-        if (shrinking && drawSize <= 0) {
+    /**
+     * Called by RenderBlockTicker when the current animation ends - swaps to the target block, or starts the second half of an exchange
+     */
+    public void completePhase() {
+        if (shrinking) {
             if (exchanging) {
                 shrinking = false;
                 renderBlock = targetBlock;
+                drawSize = 0;
+                schedule();
                 markDirtyClient();
             } else {
                 setRealBlock(Blocks.AIR.defaultBlockState());
             }
-        } else if (drawSize >= getMaxSize()) {
+        } else {
             setRealBlock(targetBlock);
         }
     }
 
+    public boolean isDue(long gameTime) {
+        return phaseStart != -1 && deadline == gameTime;
+    }
+
+    /**
+     * The server doesn't tick us, so work out where the animation is from when drawSize was last set. The client still ticks drawSize itself
+     */
+    public byte getDrawSize() {
+        if (phaseStart == -1 || level == null || level.isClientSide) return drawSize;
+        int elapsed = (int) Math.min(level.getGameTime() - phaseStart, getMaxSize());
+        return (byte) (shrinking ? Math.max(drawSize - elapsed, 0) : Math.min(drawSize + elapsed, getMaxSize()));
+    }
+
+    public void setDrawSize(byte drawSize) {
+        this.drawSize = drawSize;
+        schedule();
+    }
+
+    private void schedule() {
+        if (!(level instanceof ServerLevel serverLevel)) return;
+        phaseStart = level.getGameTime();
+        int remaining = shrinking ? drawSize : getMaxSize() - drawSize;
+        deadline = phaseStart + Math.max(remaining, 1);
+        RenderBlockTicker.schedule(serverLevel, getBlockPos(), deadline);
+    }
+
+    @Override
+    public void onLoad() {
+        super.onLoad();
+        if (phaseStart == -1 && targetBlock != null)
+            schedule(); //Loaded from disk mid-animation, pick up where it was saved
+    }
+
     public byte getMaxSize() {
         if (renderType == 5)
             return 40;
@@ -158,30 +203,38 @@ public class RenderBlockBE extends BlockEntity {
     }
 
     public void setRealBlock(BlockState realBlock) {
+        placeRealBlock(level, getBlockPos(), realBlock, blockEntityData);
+    }
+
+    /**
+     * Puts the final block down with full updates and restores its tile data. The Instant render type calls this directly, without a RenderBlock in between
+     */
+    public static boolean placeRealBlock(Level level, BlockPos pos, BlockState realBlock, @Nullable CompoundTag blockEntityData) {
         if (realBlock == null) { //This should never happen in theory, defensive coding
-            level.setBlockAndUpdate(this.getBlockPos(), Blocks.AIR.defaultBlockState());
-            return;
+            level.setBlockAndUpdate(pos, Blocks.AIR.defaultBlockState());
+            return false;
         }
-        if (!realBlock.canSurvive(level, getBlockPos())) {
-            List<ItemStack> drops = GadgetUtils.getDropsForBlockState((ServerLevel) level, getBlockPos(), realBlock, null);
+        if (!realBlock.canSurvive(level, pos)) {
+            List<ItemStack> drops = GadgetUtils.getDropsForBlockState((ServerLevel) level, pos, realBlock, null);
             for (ItemStack returnedItem : drops) {
-                ItemEntity itementity = new ItemEntity(level, getBlockPos().getX(), getBlockPos().getY(), getBlockPos().getZ(), returnedItem);
+                ItemEntity itementity = new ItemEntity(level, pos.getX(), pos.getY(), pos.getZ(), returnedItem);
                 itementity.setPickUpDelay(40);
                 level.addFreshEntity(itementity);
-                level.setBlockAndUpdate(this.getBlockPos(), Blocks.AIR.defaultBlockState());
-                return;
+                level.setBlockAndUpdate(pos, Blocks.AIR.defaultBlockState());
+                return false;
             }
         }
-        BlockState adjustedState = Block.updateFromNeighbourShapes(realBlock, level, getBlockPos()); //Ensure double chests are placed as single chests if only 1 chest available in copy/paste, for example, or fixes fences
-        level.setBlockAndUpdate(this.getBlockPos(), adjustedState);
+        BlockState adjustedState = Block.updateFromNeighbourShapes(realBlock, level, pos); //Ensure double chests are placed as single chests if only 1 chest available in copy/paste, for example, or fixes fences
+        boolean placed = level.setBlockAndUpdate(pos, adjustedState);
         if (blockEntityData != null) {
-            BlockEntity newBE = level.getBlockEntity(this.getBlockPos());
+            BlockEntity newBE = level.getBlockEntity(pos);
             try {
                 newBE.loadCustomOnly(blockEntityData, level.registryAccess());
             } catch (Exception e) {
-                System.out.println("Failed to restore tile data for block at: " + this.getBlockPos() + " with NBT: " + blockEntityData + ". Consider adding it to the blacklist");
+                LOGGER.warn("Failed to restore tile data for block at: {} with NBT: {}. Consider adding it to the blacklist", pos, blockEntityData, e);
             }
         }
+        return placed;
     }
 
     public void increaseDrawSize() {
@@ -224,6 +277,7 @@ public class RenderBlockBE extends BlockEntity {
             drawSize = getMaxSize();
         }
 
+        schedule();
         markDirtyClient();
     }
 
@@ -261,7 +315,7 @@ public class RenderBlockBE extends BlockEntity {
         }
         tag.putBoolean("shrinking", shrinking);
         tag.putBoolean("exchanging", exchanging);
-        tag.putByte("drawSize", this.drawSize);
+        tag.putByte("drawSize", getDrawSize());
         tag.putByte("renderType", this.renderType);
         if (blockEntityData != null)
             tag.put("blockEntityData", this.blockEntityData);
@@ -32,11 +32,7 @@ public class RenderBlock extends Block implements EntityBlock {
                 }
             };
         }
-        return (lvl, pos, blockState, t) -> {
-            if (t instanceof RenderBlockBE tile) {
-                tile.tickServer();
-            }
-        };
+        return null; //RenderBlockTicker finishes these on the server, no need to tick every one of them
     }
 
     @Nullable
@@ -1,10 +1,9 @@
 package com.direwolf20.buildinggadgets2.common.commands;
 
-import com.direwolf20.buildinggadgets2.common.network.data.SendCopyDataPayload;
+import com.direwolf20.buildinggadgets2.common.events.CopyDataStreamer;
 import com.direwolf20.buildinggadgets2.common.worlddata.BG2Data;
 import com.direwolf20.buildinggadgets2.setup.Registration;
 import com.direwolf20.buildinggadgets2.util.GadgetNBT;
-import com.direwolf20.buildinggadgets2.util.datatypes.StatePos;
 import com.direwolf20.buildinggadgets2.util.datatypes.TagPos;
 import com.google.common.collect.BiMap;
 import com.mojang.brigadier.arguments.StringArgumentType;
@@ -13,7 +12,6 @@ import net.minecraft.commands.CommandSourceStack;
 import net.minecraft.commands.Commands;
 import net.minecraft.commands.arguments.EntityArgument;
 import net.minecraft.core.Holder;
-import net.minecraft.nbt.CompoundTag;
 import net.minecraft.network.chat.Component;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerPlayer;
@@ -103,9 +101,8 @@ public class RedprintCommand {
         ItemStack newRedprint = new ItemStack(Registration.Redprint.get());
         UUID targetUUID = GadgetNBT.getUUID(newRedprint);
 
-        ArrayList<StatePos> buildList = bg2Data.getCopyPasteList(sourceUUID, false);
         GadgetNBT.setCopyUUID(newRedprint); //This UUID will be used to determine if the copy/paste we are rendering from the cache is old or not.
-        bg2Data.addToCopyPaste(targetUUID, buildList);
+        bg2Data.copyCopyPaste(sourceUUID, targetUUID);
 
         ArrayList<TagPos> teMap = bg2Data.peekTEMap(sourceUUID);
         ArrayList<TagPos> copiedMap = new ArrayList<>(Objects.requireNonNullElseGet(teMap, ArrayList::new)); //Put a blank TEMap there if we don't have one
@@ -114,8 +111,7 @@ public class RedprintCommand {
         GadgetNBT.setTemplateName(newRedprint, name);
 
         //Ensure client has the updated values for both objects
-        CompoundTag tag = bg2Data.getCopyPasteListAsNBTMap(targetUUID, false);
-        serverPlayer.connection.send(new SendCopyDataPayload(targetUUID, GadgetNBT.getCopyUUID(newRedprint), tag));
+        CopyDataStreamer.sendCopyData(serverPlayer, bg2Data, targetUUID, GadgetNBT.getCopyUUID(newRedprint));
 
         serverPlayer.addItem(newRedprint);
         playSound(serverPlayer, Holder.direct(SoundEvent.createVariableRangeEvent(ResourceLocation.parse(SoundEvents.ENCHANTMENT_TABLE_USE.getLocation().toString()))));
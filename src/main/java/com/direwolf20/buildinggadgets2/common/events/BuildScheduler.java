@@ -0,0 +1,36 @@
+package com.direwolf20.buildinggadgets2.common.events;
+
+import com.direwolf20.buildinggadgets2.setup.Config;
+import net.minecraft.server.MinecraftServer;
+
+/**
+ * Hands out a shared time budget (in nanoseconds) each server tick, which ServerTickHandler splits across all active builds.
+ * The budget grows slowly while the server has spare tick time, and is halved when the server falls behind. The server's average tick time
+ * covers the last 100 or so ticks, so one slow tick keeps it high for that long - we only halve once per window, or a single spike would
+ * drive the budget to the minimum and hold it there.
+ */
+public class BuildScheduler {
+    private static long currentBudgetNanos = -1;
+    private static int lastBackOffTick = Integer.MIN_VALUE;
+
+    public static long getTickBudgetNanos(MinecraftServer server) {
+        long minBudget = Config.BUILD_TICK_BUDGET_MIN.get() * 1000L;
+        long maxBudget = Math.max(minBudget, Config.BUILD_TICK_BUDGET_MAX.get() * 1000L);
+        if (currentBudgetNanos < 0)
+            currentBudgetNanos = minBudget; //Start low, and let the headroom check speed us up
+
+        long tickTarget = server.tickRateManager().nanosecondsPerTick();
+        long averageTick = server.getAverageTickTimeNanos();
+        if (averageTick > tickTarget) { //Server is already behind, back off hard - unless we already did for the ticks this average covers
+            int tickCount = server.getTickCount();
+            if (tickCount - lastBackOffTick >= server.getTickTimesNanos().length) {
+                currentBudgetNanos = currentBudgetNanos / 2;
+                lastBackOffTick = tickCount;
+            }
+        } else if (averageTick < tickTarget * 0.8) //Plenty of headroom left in the tick, speed up gradually
+            currentBudgetNanos = currentBudgetNanos + Math.max(maxBudget / 20, 1);
+
+        currentBudgetNanos = Math.min(Math.max(currentBudgetNanos, minBudget), maxBudget);
+        return currentBudgetNanos;
+    }
+}
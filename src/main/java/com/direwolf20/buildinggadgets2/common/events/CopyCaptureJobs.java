@@ -0,0 +1,91 @@
+package com.direwolf20.buildinggadgets2.common.events;
+
+import com.direwolf20.buildinggadgets2.setup.Config;
+import com.direwolf20.buildinggadgets2.util.RegionCapture;
+import com.direwolf20.buildinggadgets2.util.datatypes.BlockBuffer;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import net.minecraft.network.chat.Component;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.level.Level;
+import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.neoforge.event.tick.ServerTickEvent;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Runs copies too big to read from the world in one tick (See Config.COPY_JOB_THRESHOLD). Each job snapshots a few chunk columns per tick,
+ * showing the player how far along it is, then builds the copy list in the background like any other copy.
+ * Also keeps track of the latest copy started with each gadget, since copies of different sizes can finish in any order.
+ */
+public class CopyCaptureJobs {
+    private static final int PROGRESS_INTERVAL = 10; //Ticks between progress messages
+    private static final HashMap<UUID, Job> jobs = new HashMap<>(); //GadgetUUID -> Job, copying again with the same gadget replaces the old job
+    private static final Object2LongOpenHashMap<UUID> latestCopies = new Object2LongOpenHashMap<>(); //GadgetUUID -> Generation of the last copy started with it, until that copy finishes
+    private static long nextGeneration = 0;
+
+    private static class Job {
+        private final UUID playerUUID;
+        private final Level level;
+        private final RegionCapture capture;
+        private final Consumer<BlockBuffer> onDone;
+        private int nextChunk = 0;
+        private int ticks = 0;
+
+        private Job(Player player, RegionCapture capture, Consumer<BlockBuffer> onDone) {
+            this.playerUUID = player.getUUID();
+            this.level = player.level();
+            this.capture = capture;
+            this.onDone = onDone;
+        }
+    }
+
+    /**
+     * Wraps onDone so it's only called if this is still the newest copy started with the gadget when it finishes - older results are dropped.
+     * Server thread only, like the callbacks themselves
+     */
+    public static Consumer<BlockBuffer> latestOnly(UUID gadgetUUID, Consumer<BlockBuffer> onDone) {
+        long generation = ++nextGeneration; //Never reused, so a copy can't be mistaken for one started after it
+        latestCopies.put(gadgetUUID, generation);
+        return buildList -> {
+            if (latestCopies.getLong(gadgetUUID) != generation) return; //A newer copy was started while this one was running
+            latestCopies.removeLong(gadgetUUID);
+            onDone.accept(buildList);
+        };
+    }
+
+    public static void start(UUID gadgetUUID, Player player, RegionCapture capture, Consumer<BlockBuffer> onDone) {
+        jobs.put(gadgetUUID, new Job(player, capture, onDone));
+    }
+
+    @SubscribeEvent
+    public static void handleTickEndEvent(ServerTickEvent.Post event) {
+        if (jobs.isEmpty()) return;
+        int chunksPerTick = Config.COPY_JOB_CHUNKS_PER_TICK.get();
+        Iterator<Map.Entry<UUID, Job>> iterator = jobs.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<UUID, Job> entry = iterator.next();
+            Job job = entry.getValue();
+            Player player = event.getServer().getPlayerList().getPlayer(job.playerUUID);
+            if (player == null) { //They logged off, so there's nobody to hand the copy to
+                latestCopies.removeLong(entry.getKey());
+                iterator.remove();
+                continue;
+            }
+            int chunkCount = job.capture.getChunkCount();
+            int lastChunk = Math.min(job.nextChunk + chunksPerTick, chunkCount);
+            for (; job.nextChunk < lastChunk; job.nextChunk++)
+                job.capture.snapshotChunk(job.level, job.nextChunk);
+            if (job.nextChunk < chunkCount) {
+                if (job.ticks++ % PROGRESS_INTERVAL == 0)
+                    player.displayClientMessage(Component.translatable("buildinggadgets2.messages.copyprogress", job.nextChunk * 100 / chunkCount), true);
+            } else {
+                job.capture.processAsync(event.getServer(), job.onDone);
+                iterator.remove();
+            }
+        }
+    }
+}
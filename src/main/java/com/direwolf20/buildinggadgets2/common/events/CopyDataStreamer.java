@@ -0,0 +1,92 @@
+package com.direwolf20.buildinggadgets2.common.events;
+
+import com.direwolf20.buildinggadgets2.common.network.data.SendCopyDataPayload;
+import com.direwolf20.buildinggadgets2.common.worlddata.BG2Data;
+import com.direwolf20.buildinggadgets2.util.datatypes.StateRegion;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.server.level.ServerPlayer;
+import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.neoforge.event.tick.ServerTickEvent;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Sends copy data to clients in fixed size pieces, a few per tick, instead of one huge packet that stalls the connection.
+ * Each transfer gets its own ID so the client can tell a newer copy apart from a stale one, and drop anything that arrives out of order.
+ */
+public class CopyDataStreamer {
+    private static final int RUNS_PER_CHUNK = 4096; //At most 2 ints per run, so around 32KB per packet - pieces where bit-packing is smaller are sent packed, see StateRegion.getRunsNBT
+    private static final int CHUNKS_PER_TICK = 4; //Per player
+    private static final HashMap<UUID, ArrayDeque<Transfer>> transfers = new HashMap<>(); //PlayerUUID -> Transfers waiting to be sent
+    private static int nextTransferID = 0;
+
+    private static class Transfer {
+        private final int transferID;
+        private final UUID gadgetUUID;
+        private final UUID copyUUID;
+        private final StateRegion stateRegion;
+        private final int totalChunks;
+        private int sequence = 0;
+
+        private Transfer(UUID gadgetUUID, UUID copyUUID, StateRegion stateRegion) {
+            this.transferID = nextTransferID++;
+            this.gadgetUUID = gadgetUUID;
+            this.copyUUID = copyUUID;
+            this.stateRegion = stateRegion;
+            this.totalChunks = Math.max(1, (stateRegion.getRunCount() + RUNS_PER_CHUNK - 1) / RUNS_PER_CHUNK);
+        }
+
+        private SendCopyDataPayload nextChunk() {
+            int from = sequence * RUNS_PER_CHUNK;
+            int to = Math.min(from + RUNS_PER_CHUNK, stateRegion.getRunCount());
+            CompoundTag tag = stateRegion.getRunsNBT(from, to);
+            if (sequence == 0)
+                tag.put("header", stateRegion.getHeaderNBT());
+            return new SendCopyDataPayload(transferID, gadgetUUID, copyUUID, sequence++, totalChunks, tag);
+        }
+
+        private boolean isDone() {
+            return sequence >= totalChunks;
+        }
+    }
+
+    /**
+     * Queues up the gadget's current copy data to be sent to the player, replacing anything still queued for the same gadget
+     */
+    public static void sendCopyData(ServerPlayer player, BG2Data bg2Data, UUID gadgetUUID, UUID copyUUID) {
+        StateRegion stateRegion = bg2Data.getCopyPasteRegion(gadgetUUID, false);
+        if (stateRegion == null)
+            stateRegion = StateRegion.fromNBT(new CompoundTag()); //Still send an empty copy, so the client knows its up to date
+        ArrayDeque<Transfer> playerTransfers = transfers.computeIfAbsent(player.getUUID(), k -> new ArrayDeque<>());
+        playerTransfers.removeIf(transfer -> transfer.gadgetUUID.equals(gadgetUUID));
+        playerTransfers.addLast(new Transfer(gadgetUUID, copyUUID, stateRegion));
+    }
+
+    @SubscribeEvent
+    public static void handleTickEndEvent(ServerTickEvent.Post event) {
+        if (transfers.isEmpty()) return;
+
+        Iterator<Map.Entry<UUID, ArrayDeque<Transfer>>> iterator = transfers.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<UUID, ArrayDeque<Transfer>> entry = iterator.next();
+            ServerPlayer player = event.getServer().getPlayerList().getPlayer(entry.getKey());
+            ArrayDeque<Transfer> playerTransfers = entry.getValue();
+            if (player == null) { //Logged off, they'll ask again when they need it
+                iterator.remove();
+                continue;
+            }
+            for (int i = 0; i < CHUNKS_PER_TICK && !playerTransfers.isEmpty(); i++) {
+                Transfer transfer = playerTransfers.peekFirst();
+                player.connection.send(transfer.nextChunk());
+                if (transfer.isDone())
+                    playerTransfers.pollFirst();
+            }
+            if (playerTransfers.isEmpty())
+                iterator.remove();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.direwolf20.buildinggadgets2.common.events;
+
+import com.direwolf20.buildinggadgets2.common.blockentities.RenderBlockBE;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.Level;
+import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.neoforge.event.level.LevelEvent;
+import net.neoforged.neoforge.event.tick.LevelTickEvent;
+
+import java.util.HashMap;
+
+/**
+ * Finishes RenderBlock animations on the server, so RenderBlockBEs don't need to tick there. Each level buckets its RenderBlocks by the game tick
+ * their current animation ends, and only the ones due get looked at.
+ */
+public class RenderBlockTicker {
+    private static final HashMap<ResourceKey<Level>, RenderBlockTicker> tickers = new HashMap<>();
+
+    private final Long2ObjectOpenHashMap<LongArrayList> deadlines = new Long2ObjectOpenHashMap<>(); //Game tick -> BlockPos.asLong() of RenderBlocks due that tick
+    private long lastTick = -1;
+
+    public static void schedule(ServerLevel level, BlockPos pos, long deadline) {
+        RenderBlockTicker ticker = tickers.computeIfAbsent(level.dimension(), k -> new RenderBlockTicker());
+        ticker.deadlines.computeIfAbsent(deadline, k -> new LongArrayList()).add(pos.asLong());
+    }
+
+    @SubscribeEvent
+    public static void onLevelTick(LevelTickEvent.Post event) {
+        if (!(event.getLevel() instanceof ServerLevel level)) return;
+        RenderBlockTicker ticker = tickers.get(level.dimension());
+        if (ticker != null)
+            ticker.tick(level);
+    }
+
+    @SubscribeEvent
+    public static void onLevelUnload(LevelEvent.Unload event) {
+        //Anything still animating was saved with its progress, and schedules itself again in RenderBlockBE.onLoad
+        if (event.getLevel() instanceof ServerLevel level)
+            tickers.remove(level.dimension());
+    }
+
+    private void tick(ServerLevel level) {
+        long gameTime = level.getGameTime();
+        if (lastTick == -1 || lastTick > gameTime)
+            lastTick = gameTime - 1;
+        for (long tick = lastTick + 1; tick <= gameTime; tick++) { //Normally just this tick, but don't strand anything if a tick was missed
+            LongArrayList due = deadlines.remove(tick);
+            if (due == null) continue;
+            for (int i = 0; i < due.size(); i++) {
+                BlockPos pos = BlockPos.of(due.getLong(i));
+                if (!level.isLoaded(pos)) continue; //Don't load chunks just for this
+                if (level.getBlockEntity(pos) instanceof RenderBlockBE renderBlockBE && renderBlockBE.isDue(tick))
+                    renderBlockBE.completePhase();
+            }
+        }
+        lastTick = gameTime;
+    }
+}
@@ -1,16 +1,37 @@
 package com.direwolf20.buildinggadgets2.common.events;
 
+import com.direwolf20.buildinggadgets2.common.network.data.InstantPlacePayload;
+import com.direwolf20.buildinggadgets2.common.worlddata.BG2Data;
+import com.direwolf20.buildinggadgets2.integration.AE2Integration;
+import com.direwolf20.buildinggadgets2.integration.AE2Session;
+import com.direwolf20.buildinggadgets2.setup.Config;
+import com.direwolf20.buildinggadgets2.util.GadgetNBT;
+import com.direwolf20.buildinggadgets2.util.InventoryIndex;
+import com.direwolf20.buildinggadgets2.util.MaterialReservation;
+import com.direwolf20.buildinggadgets2.util.datatypes.BlockBuffer;
 import com.direwolf20.buildinggadgets2.util.datatypes.StatePos;
 import com.direwolf20.buildinggadgets2.util.datatypes.TagPos;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
 import net.minecraft.core.GlobalPos;
+import net.minecraft.core.SectionPos;
 import net.minecraft.nbt.CompoundTag;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.state.BlockState;
+import net.neoforged.neoforge.network.PacketDistributor;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.HashSet;
+import java.util.List;
 import java.util.UUID;
 
 public class ServerBuildList {
@@ -23,25 +44,38 @@ public class ServerBuildList {
     }
 
     public Level level;
-    public ArrayList<StatePos> statePosList;
-    public ArrayList<TagPos> teData;
+    public ArrayDeque<StatePos> statePosList; //Work queue - pollFirst() to take the next block, addLast() to retry a block once everything else is done
+    public Long2ObjectOpenHashMap<CompoundTag> teData; //Relative BlockPos.asLong() -> Tile Entity Data, null unless this is a cut/paste
     public byte renderType;
     public UUID playerUUID;
     public int originalSize;
-    public ArrayList<StatePos> actuallyBuildList = new ArrayList<>();
+    public BlockBuffer actuallyBuildList = new BlockBuffer(); //Append-only journal of what we've done so far - written to BG2Data by flushJournal() once per tick
     public boolean needItems;
     public boolean returnItems;
     public ItemStack gadget;
     public UUID buildUUID;
     public BuildType buildType;
     public boolean dropContents;
-    public ArrayList<BlockPos> retryList = new ArrayList<>();
+    public HashSet<BlockPos> retryList = new HashSet<>();
     public BlockPos cutStart = BlockPos.ZERO;
+    public BlockBuffer cutBuffer = new BlockBuffer(); //Relative positions and states of everything we've cut so far, becomes the copy/paste data (Cut only)
     public BlockPos lookingAt = BlockPos.ZERO;
     public GlobalPos boundPos;
     public int direction;
+    public MaterialReservation reservation; //Items taken up front for the whole build, null if we take them block by block
+    public boolean instant; //Place the final blocks directly instead of going through a RenderBlock - see GadgetNBT.RenderTypes.INSTANT
+    private UUID pendingUndoUUID; //The undo list actuallyBuildList should be written to on the next flush, null if nothing changed
+    private boolean pendingCopyPaste; //True if cutBuffer should be written to the copy/paste data on the next flush (Cut only)
+    private boolean pendingTEData; //True if teData should be written to BG2Data's TE map on the next flush (Cut/Paste only)
+    private boolean pendingReservation; //True if items were taken from the reservation since the last flush, so BG2Data's saved copy is out of date
+    private Long2ObjectOpenHashMap<BlockState> previouslyBuilt; //BlockPos.asLong() -> State placed there by an earlier, interrupted run of this cut/paste
+    private Long2IntOpenHashMap cutBufferIndex; //Relative BlockPos.asLong() -> index in cutBuffer (Cut only)
+    private InventoryIndex inventoryIndex; //Where the builder's items are, so we don't scan their inventory for every block
+    private AE2Session ae2Session; //Items pulled from a bound AE2 network in bulk for this build, null if not bound to one
+    private final LongArrayList instantPlaced = new LongArrayList(); //Positions placed instantly this tick, for the client side effect
+    private static final int MAX_INSTANT_EFFECTS = 4096; //Per tick - past this the blocks are still placed, just without the effect
 
-    public ServerBuildList(Level level, ArrayList<StatePos> statePosList, byte renderType, UUID playerUUID, boolean needItems, boolean returnItems, UUID buildUUID, ItemStack gadget, BuildType buildType, boolean dropContents, BlockPos lookingAt, GlobalPos boundPos, int direction) {
+    public ServerBuildList(Level level, ArrayDeque<StatePos> statePosList, byte renderType, UUID playerUUID, boolean needItems, boolean returnItems, UUID buildUUID, ItemStack gadget, BuildType buildType, boolean dropContents, BlockPos lookingAt, GlobalPos boundPos, int direction) {
         this.level = level;
         this.statePosList = statePosList;
         this.renderType = renderType;
@@ -56,35 +90,182 @@ public class ServerBuildList {
         this.lookingAt = lookingAt;
         this.boundPos = boundPos;
         this.direction = direction;
+        this.instant = renderType == GadgetNBT.RenderTypes.INSTANT.getPosition() || Config.FORCE_INSTANT_PLACEMENT.get();
     }
 
-    public void addToBuiltList(StatePos statePos) {
-        this.actuallyBuildList.add(statePos);
+    public void addToBuiltList(BlockState state, BlockPos pos) {
+        this.actuallyBuildList.add(state, pos);
     }
 
-    public void updateActuallyBuiltList(StatePos statePos) {
-        for (StatePos entry : actuallyBuildList) {
-            if (entry.pos.equals(statePos.pos)) {
-                entry.state = statePos.state;
-                break;
+    /**
+     * Indexes the positions in cutBuffer, so the cut can update them as it goes without scanning the buffer
+     */
+    public void indexCutBuffer() {
+        cutBufferIndex = new Long2IntOpenHashMap(cutBuffer.size());
+        cutBufferIndex.defaultReturnValue(-1);
+        for (int i = 0; i < cutBuffer.size(); i++)
+            cutBufferIndex.put(cutBuffer.getPosLong(i), i);
+    }
+
+    public void updateCutBuffer(BlockState state, BlockPos relativePos) {
+        if (cutBufferIndex == null) indexCutBuffer();
+        int index = cutBufferIndex.get(relativePos.asLong());
+        if (index != -1)
+            cutBuffer.setState(index, state);
+    }
+
+    /**
+     * Checks if this block was already placed before a cut/paste got interrupted by a server stop or player logoff.
+     * The existing undo list is loaded into a set the first time we're called, and carried over into our own journal so a second interruption doesn't lose it
+     */
+    public boolean wasPreviouslyBuilt(BG2Data bg2Data, StatePos statePos) {
+        if (previouslyBuilt == null) {
+            BlockBuffer undoList = bg2Data.peekUndoList(GadgetNBT.getUUID(gadget));
+            previouslyBuilt = new Long2ObjectOpenHashMap<>(undoList == null ? 0 : undoList.size());
+            if (undoList != null) {
+                undoList.forEach((state, pos) -> previouslyBuilt.put(pos, state));
+                if (teData != null)
+                    actuallyBuildList.addAll(undoList);
             }
         }
+        return previouslyBuilt.get(statePos.pos.asLong()) == statePos.state; //BlockStates are singletons
     }
 
-    public CompoundTag getTagForPos(BlockPos pos) {
-        CompoundTag compoundTag = new CompoundTag();
-        if (teData == null || teData.isEmpty()) return compoundTag;
-        BlockPos blockPos = pos.subtract(lookingAt);
-        Iterator<TagPos> iterator = teData.iterator();
-        while (iterator.hasNext()) {
-            TagPos data = iterator.next();
-            if (data.pos.equals(blockPos)) {
-                compoundTag = data.tag;
-                iterator.remove();
-                break;
-            }
+    public InventoryIndex getInventoryIndex(Player player) {
+        if (inventoryIndex == null || !inventoryIndex.isFor(player))
+            inventoryIndex = new InventoryIndex(player); //A new player object means they logged off and back on
+        return inventoryIndex;
+    }
+
+    public boolean hasReservedItems(List<ItemStack> neededItems) {
+        return reservation != null && reservation.has(neededItems);
+    }
+
+    public boolean takeReservedItems(List<ItemStack> neededItems) {
+        if (reservation == null || !reservation.take(neededItems)) return false;
+        pendingReservation = true;
+        return true;
+    }
+
+    public AE2Session getAE2Session() {
+        if (ae2Session == null && boundPos != null && AE2Integration.isLoaded())
+            ae2Session = new AE2Session(boundPos);
+        return ae2Session;
+    }
+
+    /**
+     * The key the AE2 buffer is saved under in BG2Data's reservations - separate from buildUUID, which the MaterialReservation uses
+     */
+    public UUID getAE2BufferUUID() {
+        return new UUID(buildUUID.getMostSignificantBits(), ~buildUUID.getLeastSignificantBits());
+    }
+
+    /**
+     * Gives back everything taken for this build but not used - the reservation, and anything pulled from AE2 in bulk
+     */
+    public void releaseMaterials(Player player) {
+        if (reservation != null) {
+            reservation.refund(player, boundPos, getDirection());
+            reservation = null;
+            BG2Data.get(level.getServer().overworld()).removeReservation(buildUUID);
+        }
+        if (ae2Session != null) {
+            ae2Session.returnSurplus(player);
+            ae2Session = null;
+            BG2Data.get(level.getServer().overworld()).removeReservation(getAE2BufferUUID());
+        }
+    }
+
+    public void markUndoDirty(UUID undoUUID) {
+        pendingUndoUUID = undoUUID;
+    }
+
+    public void markCopyPasteDirty() {
+        pendingCopyPaste = true;
+    }
+
+    public void markTEDataDirty() {
+        pendingTEData = true;
+    }
+
+    /**
+     * Writes the journal to BG2Data if anything changed since the last flush - called once per tick rather than once per block
+     */
+    public void flushJournal(BG2Data bg2Data) {
+        if (pendingUndoUUID != null) {
+            bg2Data.addToUndoList(pendingUndoUUID, actuallyBuildList, level);
+            pendingUndoUUID = null;
+        }
+        if (pendingCopyPaste) {
+            bg2Data.addToCopyPaste(GadgetNBT.getUUID(gadget), cutBuffer);
+            pendingCopyPaste = false;
+        }
+        if (pendingTEData) {
+            bg2Data.addToTEMap(GadgetNBT.getUUID(gadget), getTEDataList());
+            pendingTEData = false;
+        }
+        if (pendingReservation) {
+            bg2Data.setDirty(); //BG2Data holds the reservation itself, it just needs to know to save it again
+            pendingReservation = false;
+        }
+        if (ae2Session != null && ae2Session.takeDirty()) { //Saved like the reservation, so a crash refunds what we pulled from the network instead of losing it
+            List<ItemStack> buffered = ae2Session.getBuffered();
+            if (buffered.isEmpty())
+                bg2Data.removeReservation(getAE2BufferUUID());
+            else
+                bg2Data.addReservation(getAE2BufferUUID(), new BG2Data.PendingRefund(playerUUID, boundPos, direction, MaterialReservation.of(buffered)));
+        }
+    }
+
+    public void addInstantEffect(BlockPos pos) {
+        if (instantPlaced.size() < MAX_INSTANT_EFFECTS)
+            instantPlaced.add(pos.asLong());
+    }
+
+    /**
+     * Sends this tick's instantly placed positions to the players who can see them, one packet per chunk - called once per tick, like flushJournal
+     */
+    public void flushInstantEffects() {
+        if (instantPlaced.isEmpty()) return;
+        Long2ObjectOpenHashMap<LongArrayList> byChunk = new Long2ObjectOpenHashMap<>();
+        for (int i = 0; i < instantPlaced.size(); i++) {
+            long pos = instantPlaced.getLong(i);
+            byChunk.computeIfAbsent(ChunkPos.asLong(SectionPos.blockToSectionCoord(BlockPos.getX(pos)), SectionPos.blockToSectionCoord(BlockPos.getZ(pos))), k -> new LongArrayList()).add(pos);
         }
-        return compoundTag;
+        for (Long2ObjectMap.Entry<LongArrayList> entry : byChunk.long2ObjectEntrySet())
+            PacketDistributor.sendToPlayersTrackingChunk((ServerLevel) level, new ChunkPos(entry.getLongKey()), new InstantPlacePayload(entry.getValue().toLongArray()));
+        instantPlaced.clear();
+    }
+
+    public void setTEData(ArrayList<TagPos> tagList) {
+        teData = new Long2ObjectOpenHashMap<>(tagList.size());
+        for (TagPos tagPos : tagList)
+            teData.put(tagPos.pos.asLong(), tagPos.tag);
+    }
+
+    /**
+     * Converts the TE Data back into the list format BG2Data stores, for crash recovery
+     */
+    public ArrayList<TagPos> getTEDataList() {
+        ArrayList<TagPos> tagList = new ArrayList<>(teData.size());
+        for (Long2ObjectMap.Entry<CompoundTag> entry : teData.long2ObjectEntrySet())
+            tagList.add(new TagPos(entry.getValue(), BlockPos.of(entry.getLongKey())));
+        return tagList;
+    }
+
+    public CompoundTag getTagForPos(BlockPos pos) {
+        if (teData == null || teData.isEmpty()) return new CompoundTag();
+        CompoundTag compoundTag = teData.remove(pos.subtract(lookingAt).asLong());
+        return compoundTag == null ? new CompoundTag() : compoundTag;
+    }
+
+    /**
+     * Same as getTagForPos, but leaves the data in place - for when the block might still fail to place
+     */
+    public CompoundTag peekTagForPos(BlockPos pos) {
+        if (teData == null || teData.isEmpty()) return new CompoundTag();
+        CompoundTag compoundTag = teData.get(pos.subtract(lookingAt).asLong());
+        return compoundTag == null ? new CompoundTag() : compoundTag;
     }
 
     public Direction getDirection() {
@@ -6,8 +6,10 @@ import com.direwolf20.buildinggadgets2.common.worlddata.BG2Data;
 import com.direwolf20.buildinggadgets2.setup.Registration;
 import com.direwolf20.buildinggadgets2.util.GadgetNBT;
 import com.direwolf20.buildinggadgets2.util.GadgetUtils;
+import com.direwolf20.buildinggadgets2.util.MaterialReservation;
 import com.direwolf20.buildinggadgets2.util.datatypes.StatePos;
 import com.direwolf20.buildinggadgets2.util.datatypes.TagPos;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.GlobalPos;
 import net.minecraft.nbt.CompoundTag;
@@ -15,12 +17,14 @@ import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.Blocks;
 import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.material.Fluid;
 import net.minecraft.world.level.material.FluidState;
 import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.neoforge.event.entity.player.PlayerEvent;
 import net.neoforged.neoforge.event.tick.ServerTickEvent;
 import net.neoforged.neoforge.fluids.FluidStack;
 
@@ -37,45 +41,71 @@ public class ServerTickHandler {
     public static void handleTickEndEvent(ServerTickEvent.Pre event) {
         if (buildMap.isEmpty()) return;
 
+        BG2Data bg2Data = BG2Data.get(event.getServer().overworld());
+        long tickBudget = BuildScheduler.getTickBudgetNanos(event.getServer());
+        long tickStart = System.nanoTime();
+        int remainingBuilds = buildMap.size();
         for (UUID uuid : buildMap.keySet()) {
             ServerBuildList serverBuildList = buildMap.get(uuid);
             Player player = event.getServer().getPlayerList().getPlayer(serverBuildList.playerUUID);
             if (player == null) {
                 stopBuilding(uuid); //Clear the remaining list of things to build, removing it after this loop in removeEmptyLists
+                remainingBuilds--;
                 continue;
             }
-            int min = serverBuildList.originalSize < 60 ? 1 : 5;
-            int max = 50;
-            int amountPerTick = Math.min(Math.max((int) Math.floor(serverBuildList.originalSize / 300), min), max);
-            for (int i = 0; i < amountPerTick; i++) {
-                if (serverBuildList.buildType.equals(ServerBuildList.BuildType.BUILD))
-                    build(serverBuildList, player);
-                else if (serverBuildList.buildType.equals(ServerBuildList.BuildType.EXCHANGE))
-                    exchange(serverBuildList, player);
-                else if (serverBuildList.buildType.equals(ServerBuildList.BuildType.DESTROY))
-                    remove(serverBuildList, player);
-                else if (serverBuildList.buildType.equals(ServerBuildList.BuildType.UNDO_DESTROY))
-                    undoDestroy(serverBuildList, player);
-                else if (serverBuildList.buildType.equals(ServerBuildList.BuildType.CUT))
-                    cut(serverBuildList, player);
-            }
+            //Split whatever is left of the budget evenly between this build and the ones after it, so time unused by small builds goes to bigger ones
+            long now = System.nanoTime();
+            long slice = Math.max(tickBudget - (now - tickStart), 0) / remainingBuilds;
+            long deadline = now + slice;
+            do { //Always process at least one block per build per tick, so nothing stalls completely when the server is behind
+                processNext(serverBuildList, player);
+            } while (!serverBuildList.statePosList.isEmpty() && System.nanoTime() < deadline);
+            serverBuildList.flushJournal(bg2Data);
+            serverBuildList.flushInstantEffects();
+            remainingBuilds--;
         }
 
         removeEmptyLists(event);
     }
 
+    public static void processNext(ServerBuildList serverBuildList, Player player) {
+        if (serverBuildList.buildType.equals(ServerBuildList.BuildType.BUILD))
+            build(serverBuildList, player);
+        else if (serverBuildList.buildType.equals(ServerBuildList.BuildType.EXCHANGE))
+            exchange(serverBuildList, player);
+        else if (serverBuildList.buildType.equals(ServerBuildList.BuildType.DESTROY))
+            remove(serverBuildList, player);
+        else if (serverBuildList.buildType.equals(ServerBuildList.BuildType.UNDO_DESTROY))
+            undoDestroy(serverBuildList, player);
+        else if (serverBuildList.buildType.equals(ServerBuildList.BuildType.CUT))
+            cut(serverBuildList, player);
+    }
+
     public static void addToMap(UUID buildUUID, StatePos statePos, Level level, byte renderType, Player player, boolean neededItems, boolean returnItems, ItemStack gadget, ServerBuildList.BuildType buildType, boolean dropContents, BlockPos lookingAt) {
         GlobalPos boundPos = GadgetNBT.getBoundPos(gadget);
         int direction = boundPos == null ? -1 : GadgetNBT.getToolValue(gadget, GadgetNBT.IntSettings.BIND_DIRECTION.getName());
-        ServerBuildList serverBuildList = buildMap.computeIfAbsent(buildUUID, k -> new ServerBuildList(level, new ArrayList<>(), renderType, player.getUUID(), neededItems, returnItems, buildUUID, gadget, buildType, dropContents, lookingAt, boundPos, direction));
-        serverBuildList.statePosList.add(statePos);
+        ServerBuildList serverBuildList = buildMap.computeIfAbsent(buildUUID, k -> new ServerBuildList(level, new ArrayDeque<>(), renderType, player.getUUID(), neededItems, returnItems, buildUUID, gadget, buildType, dropContents, lookingAt, boundPos, direction));
+        serverBuildList.statePosList.addLast(statePos);
         serverBuildList.originalSize = serverBuildList.statePosList.size();
     }
 
     public static void addTEData(UUID buildUUID, ArrayList<TagPos> teData) {
         ServerBuildList serverBuildList = buildMap.get(buildUUID);
         if (serverBuildList == null) return;
-        serverBuildList.teData = teData;
+        serverBuildList.setTEData(teData);
+    }
+
+    /**
+     * Hands a build the items BuildingUtils.build already took for it, and saves them with the world until they're used or refunded.
+     * Returns false if there's no such build, so the caller can give them back
+     */
+    public static boolean setReservation(UUID buildUUID, MaterialReservation reservation) {
+        ServerBuildList serverBuildList = buildMap.get(buildUUID);
+        if (serverBuildList == null) return false;
+        serverBuildList.reservation = reservation;
+        BG2Data bg2Data = BG2Data.get(Objects.requireNonNull(serverBuildList.level.getServer()).overworld());
+        bg2Data.addReservation(buildUUID, new BG2Data.PendingRefund(serverBuildList.playerUUID, serverBuildList.boundPos, serverBuildList.direction, reservation));
+        return true;
     }
 
     public static boolean gadgetWorking(UUID gadgetUUID) {
@@ -87,7 +117,8 @@ public class ServerTickHandler {
         serverBuildList.cutStart = cutStart;
         if (serverBuildList.buildType.equals(ServerBuildList.BuildType.CUT)) { // should always be the case!
             for (StatePos statePos : serverBuildList.statePosList)
-                serverBuildList.actuallyBuildList.add(new StatePos(Blocks.VOID_AIR.defaultBlockState(), statePos.pos.subtract(serverBuildList.cutStart))); //Fill the actually built list with void air, in case the cut gets interrupted by player logoff
+                serverBuildList.cutBuffer.add(Blocks.VOID_AIR.defaultBlockState(), statePos.pos.subtract(serverBuildList.cutStart)); //Fill the cut buffer with void air, in case the cut gets interrupted by player logoff
+            serverBuildList.indexCutBuffer();
         }
     }
 
@@ -97,6 +128,34 @@ public class ServerTickHandler {
         serverBuildList.statePosList.clear();
     }
 
+    //True if the reservation saved under this UUID belongs to a build that's still running - either its MaterialReservation or its AE2 buffer
+    private static boolean isRunning(UUID reservationUUID) {
+        for (ServerBuildList serverBuildList : buildMap.values()) {
+            if (serverBuildList.buildUUID.equals(reservationUUID) || serverBuildList.getAE2BufferUUID().equals(reservationUUID))
+                return true;
+        }
+        return false;
+    }
+
+    @SubscribeEvent
+    public static void onPlayerLoggedIn(PlayerEvent.PlayerLoggedInEvent event) {
+        //Items reserved for builds that were cut short by a crash or server stop, give them back now that the player is here for them
+        Player player = event.getEntity();
+        if (player.getServer() == null) return;
+        BG2Data bg2Data = BG2Data.get(player.getServer().overworld());
+        for (BG2Data.PendingRefund pendingRefund : bg2Data.takeOrphanedReservations(player.getUUID(), ServerTickHandler::isRunning))
+            pendingRefund.reservation().refund(player, pendingRefund.boundPos(), pendingRefund.getDirection());
+    }
+
+    @SubscribeEvent
+    public static void onPlayerLoggedOut(PlayerEvent.PlayerLoggedOutEvent event) {
+        //Their builds stop on the next tick, give back any items reserved for them while the player is still around
+        for (ServerBuildList serverBuildList : buildMap.values()) {
+            if (serverBuildList.playerUUID.equals(event.getEntity().getUUID()))
+                serverBuildList.releaseMaterials(event.getEntity());
+        }
+    }
+
     public static void removeEmptyLists(ServerTickEvent.Pre event) {
         Iterator<Map.Entry<UUID, ServerBuildList>> iterator = buildMap.entrySet().iterator();
         while (iterator.hasNext()) {
@@ -106,26 +165,35 @@ public class ServerTickHandler {
                 Player player = event.getServer().getPlayerList().getPlayer(serverBuildList.playerUUID); //We check for the player - if they exist, they finished building - if not they logged off. Remove data from map only if finished building
                 if (serverBuildList.teData != null && !serverBuildList.buildType.equals(ServerBuildList.BuildType.CUT) && player != null) { //If we had teData this was from a cut-Paste, so remove the data from world data if we're not cutting
                     BG2Data bg2Data = BG2Data.get(Objects.requireNonNull(serverBuildList.level.getServer()).overworld());
-                    bg2Data.getCopyPasteList(GadgetNBT.getUUID(serverBuildList.gadget), true); //Remove the data
+                    bg2Data.getCopyPasteRegion(GadgetNBT.getUUID(serverBuildList.gadget), true); //Remove the data
                     bg2Data.getTEMap(GadgetNBT.getUUID(serverBuildList.gadget)); //Remove the TE data
                     bg2Data.popUndoList(GadgetNBT.getUUID(serverBuildList.gadget)); //Remove the undo list, which tracks partial placements
                 }
+                if (player != null)
+                    serverBuildList.releaseMaterials(player); //Give back whatever items weren't used
                 iterator.remove();
             }
         }
     }
 
+    /**
+     * Places the temporary RenderBlock without neighbour or shape updates - those happen once, when RenderBlockBE.setRealBlock puts the real block down.
+     * The client update is still flagged, and the chunk holder sends all changes in a section as one packet at the end of the tick.
+     */
+    public static boolean placeRenderBlock(Level level, BlockPos blockPos) {
+        return level.setBlock(blockPos, Registration.RenderBlock.get().defaultBlockState(), Block.UPDATE_CLIENTS | Block.UPDATE_KNOWN_SHAPE);
+    }
+
     public static void build(ServerBuildList serverBuildList, Player player) {
         Level level = serverBuildList.level;
 
-        ArrayList<StatePos> statePosList = serverBuildList.statePosList;
+        ArrayDeque<StatePos> statePosList = serverBuildList.statePosList;
         if (statePosList.isEmpty()) return;
         BG2Data bg2Data = BG2Data.get(Objects.requireNonNull(level.getServer()).overworld());
-        StatePos statePos = statePosList.remove(0);
+        StatePos statePos = statePosList.pollFirst();
         if (statePos.state.equals(Blocks.VOID_AIR.defaultBlockState()))
             return; //Void_AIR is used for blocks we want to skip
-        ArrayList<StatePos> undoList = bg2Data.peekUndoList(GadgetNBT.getUUID(serverBuildList.gadget));
-        if (undoList != null && undoList.contains(statePos))
+        if (serverBuildList.wasPreviouslyBuilt(bg2Data, statePos))
             return; //This really only happens if a cut/paste got interrupted mid-build by a server stop or player logoff
 
         BlockPos blockPos = statePos.pos.offset(serverBuildList.lookingAt);
@@ -144,7 +212,7 @@ public class ServerTickHandler {
         if (!blockState.canSurvive(level, blockPos)) {
             if (serverBuildList.retryList.contains(blockPos))
                 return; //Don't retry if this is already retried
-            statePosList.add(statePos); //Retry placing this after all other blocks are placed - in case torches are placed before their supporting block for example
+            statePosList.addLast(statePos); //Retry placing this after all other blocks are placed - in case torches are placed before their supporting block for example
             serverBuildList.retryList.add(blockPos); //Only retry once!
             return;
         }
@@ -154,7 +222,7 @@ public class ServerTickHandler {
         List<ItemStack> neededItems = GadgetUtils.getDropsForBlockState((ServerLevel) level, blockPos, blockState, player);
         if (blockState.getFluidState().isEmpty()) { //Check for items
             if (!player.isCreative() && serverBuildList.needItems) {
-                if (!removeStacksFromInventory(player, neededItems, true, serverBuildList.boundPos, serverBuildList.getDirection()))
+                if (!serverBuildList.hasReservedItems(neededItems) && !removeStacksFromInventory(player, neededItems, true, serverBuildList.boundPos, serverBuildList.getDirection(), serverBuildList.getInventoryIndex(player), serverBuildList.getAE2Session()))
                     return; //Return without placing the block
             }
         } else {
@@ -169,16 +237,27 @@ public class ServerTickHandler {
             }
         }
 
-        boolean placed = level.setBlockAndUpdate(blockPos, Registration.RenderBlock.get().defaultBlockState());
-        RenderBlockBE be = (RenderBlockBE) level.getBlockEntity(blockPos);
+        RenderBlockBE be = null;
+        CompoundTag compoundTag = new CompoundTag();
+        if (serverBuildList.instant) {
+            compoundTag = serverBuildList.peekTagForPos(blockPos); //The real block goes down now, so it needs its TE data right away
+            if (!RenderBlockBE.placeRealBlock(level, blockPos, blockState, compoundTag.isEmpty() ? null : compoundTag))
+                return; // this can happen when another mod rejects the set block state (fixes #120) - the TE data stays with the build, so it's still saved for recovery
+            serverBuildList.getTagForPos(blockPos); //Placed, so the TE data is used up
+            serverBuildList.addInstantEffect(blockPos);
+        } else {
+            boolean placed = placeRenderBlock(level, blockPos);
+            be = (RenderBlockBE) level.getBlockEntity(blockPos);
 
-        if (!placed || be == null) {
-            // this can happen when another mod rejects the set block state (fixes #120)
-            return;
+            if (!placed || be == null) {
+                // this can happen when another mod rejects the set block state (fixes #120)
+                return;
+            }
         }
         if (blockState.getFluidState().isEmpty()) { //Check for items
             if (!player.isCreative() && serverBuildList.needItems) {
-                removeStacksFromInventory(player, neededItems, false, serverBuildList.boundPos, serverBuildList.getDirection());
+                if (!serverBuildList.takeReservedItems(neededItems))
+                    removeStacksFromInventory(player, neededItems, false, serverBuildList.boundPos, serverBuildList.getDirection(), serverBuildList.getInventoryIndex(player), serverBuildList.getAE2Session());
             }
         } else {
             FluidState fluidState = blockState.getFluidState();
@@ -191,21 +270,24 @@ public class ServerTickHandler {
             }
         }
 
-        be.setRenderData(Blocks.AIR.defaultBlockState(), blockState, serverBuildList.renderType);
+        if (be != null)
+            be.setRenderData(Blocks.AIR.defaultBlockState(), blockState, serverBuildList.renderType);
 
         if (serverBuildList.teData == null && bg2Data.containsUndoList(serverBuildList.buildUUID)) { //Only track 'real undos' for non cut-pasted data
-            serverBuildList.addToBuiltList(new StatePos(blockState, blockPos));
-            bg2Data.addToUndoList(serverBuildList.buildUUID, serverBuildList.actuallyBuildList, level);
+            serverBuildList.addToBuiltList(blockState, blockPos);
+            serverBuildList.markUndoDirty(serverBuildList.buildUUID);
         }
 
         if (serverBuildList.teData != null) { //If theres ANY TE data (even an empty list), we are doing a cut paste
-            serverBuildList.addToBuiltList(new StatePos(blockState, statePos.pos)); //Add the non-adjust blockpos to the list for reference later
-            bg2Data.addToUndoList(GadgetNBT.getUUID(serverBuildList.gadget), serverBuildList.actuallyBuildList, level);
+            serverBuildList.addToBuiltList(blockState, statePos.pos); //Add the non-adjust blockpos to the list for reference later
+            serverBuildList.markUndoDirty(GadgetNBT.getUUID(serverBuildList.gadget));
 
-            CompoundTag compoundTag = serverBuildList.getTagForPos(blockPos); //First check if theres TE data for this block
+            if (be != null)
+                compoundTag = serverBuildList.getTagForPos(blockPos); //First check if theres TE data for this block
             if (!compoundTag.isEmpty()) {
-                be.setBlockEntityData(compoundTag);
-                bg2Data.addToTEMap(GadgetNBT.getUUID(serverBuildList.gadget), serverBuildList.teData); //If the server crashes mid-build you'll maybe dupe blocks but at least not dupe TE data? TODO Improve
+                if (be != null)
+                    be.setBlockEntityData(compoundTag);
+                serverBuildList.markTEDataDirty(); //If the server crashes mid-build you'll maybe dupe blocks but at least not dupe TE data? TODO Improve
             }
         }
     }
@@ -213,15 +295,14 @@ public class ServerTickHandler {
     public static void exchange(ServerBuildList serverBuildList, Player player) {
         Level level = serverBuildList.level;
 
-        ArrayList<StatePos> statePosList = serverBuildList.statePosList;
+        ArrayDeque<StatePos> statePosList = serverBuildList.statePosList;
         if (statePosList.isEmpty()) return;
-        StatePos statePos = statePosList.remove(0);
+        StatePos statePos = statePosList.pollFirst();
         if (statePos.state.equals(Blocks.VOID_AIR.defaultBlockState()))
             return; //Void_AIR is used for blocks we wanna skip
 
         BG2Data bg2Data = BG2Data.get(Objects.requireNonNull(level.getServer()).overworld());
-        ArrayList<StatePos> undoList = bg2Data.peekUndoList(GadgetNBT.getUUID(serverBuildList.gadget));
-        if (undoList != null && undoList.contains(statePos))
+        if (serverBuildList.wasPreviouslyBuilt(bg2Data, statePos))
             return; //This really only happens if a cut/paste got interrupted mid-build by a server stop or player logoff
 
 
@@ -247,7 +328,7 @@ public class ServerTickHandler {
         if (!blockState.canSurvive(level, blockPos)) {
             if (serverBuildList.retryList.contains(blockPos))
                 return; //Don't retry if this is already retried
-            statePosList.add(statePos);
+            statePosList.addLast(statePos);
             serverBuildList.retryList.add(blockPos); //Only retry once!
             return;
         }
@@ -257,7 +338,7 @@ public class ServerTickHandler {
             if (!player.isCreative() && serverBuildList.needItems) {
                 if (!blockState.isAir()) {
                     neededItems.addAll(GadgetUtils.getDropsForBlockState((ServerLevel) level, blockPos, blockState, player));
-                    if (!removeStacksFromInventory(player, neededItems, true, serverBuildList.boundPos, serverBuildList.getDirection()))
+                    if (!removeStacksFromInventory(player, neededItems, true, serverBuildList.boundPos, serverBuildList.getDirection(), serverBuildList.getInventoryIndex(player), serverBuildList.getAE2Session()))
                         return; //Return without placing the block
                 }
             }
@@ -275,6 +356,8 @@ public class ServerTickHandler {
 
 
         boolean placed = false;
+        RenderBlockBE be = null;
+        CompoundTag compoundTag = new CompoundTag();
 
         //Handles situations where we are undoing an exchange
         BlockState oldRenderState = oldState;
@@ -283,16 +366,27 @@ public class ServerTickHandler {
             if (blockEntity instanceof RenderBlockBE renderBlockBE) {
                 oldState = renderBlockBE.targetBlock;
                 oldRenderState = renderBlockBE.renderBlock;
-                drawSize = renderBlockBE.drawSize;
+                drawSize = renderBlockBE.getDrawSize();
                 placed = true;
             }
-        } else {
-            placed = level.setBlockAndUpdate(blockPos, Registration.RenderBlock.get().defaultBlockState());
+        } else if (!serverBuildList.instant) {
+            placed = placeRenderBlock(level, blockPos);
         }
 
-        RenderBlockBE be = (RenderBlockBE) level.getBlockEntity(blockPos);
+        if (serverBuildList.instant) {
+            compoundTag = serverBuildList.peekTagForPos(blockPos); //The real block goes down now, so it needs its TE data right away
+            placed = RenderBlockBE.placeRealBlock(level, blockPos, blockState, compoundTag.isEmpty() ? null : compoundTag);
+            if (placed) {
+                serverBuildList.getTagForPos(blockPos); //Placed, so the TE data is used up - if not, it stays with the build
+                serverBuildList.addInstantEffect(blockPos);
+            }
+        } else {
+            be = (RenderBlockBE) level.getBlockEntity(blockPos);
+            if (be == null)
+                placed = false;
+        }
 
-        if (!placed || be == null) {
+        if (!placed) {
             // this can happen when another mod rejects the set block state (fixes #120)
             return;
         }
@@ -300,7 +394,7 @@ public class ServerTickHandler {
         if (blockState.getFluidState().isEmpty()) { //Check for Items
             if (!player.isCreative() && serverBuildList.needItems) {
                 if (!blockState.isAir()) {
-                    removeStacksFromInventory(player, neededItems, false, serverBuildList.boundPos, serverBuildList.getDirection());
+                    removeStacksFromInventory(player, neededItems, false, serverBuildList.boundPos, serverBuildList.getDirection(), serverBuildList.getInventoryIndex(player), serverBuildList.getAE2Session());
                 }
             }
         } else {
@@ -329,25 +423,29 @@ public class ServerTickHandler {
             }
         }
 
-        if (oldRenderState.equals(blockState))
-            be.setRenderData(Blocks.AIR.defaultBlockState(), blockState, serverBuildList.renderType);
-        else
-            be.setRenderData(oldState, blockState, serverBuildList.renderType);
-        if (drawSize != -1) //Only if changed from default
-            be.drawSize = drawSize;
+        if (be != null) {
+            if (oldRenderState.equals(blockState))
+                be.setRenderData(Blocks.AIR.defaultBlockState(), blockState, serverBuildList.renderType);
+            else
+                be.setRenderData(oldState, blockState, serverBuildList.renderType);
+            if (drawSize != -1) //Only if changed from default
+                be.setDrawSize(drawSize);
+        }
 
         if (serverBuildList.teData == null && bg2Data.containsUndoList(serverBuildList.buildUUID)) {
-            serverBuildList.addToBuiltList(new StatePos(oldState, blockPos));
-            bg2Data.addToUndoList(serverBuildList.buildUUID, serverBuildList.actuallyBuildList, level);
+            serverBuildList.addToBuiltList(oldState, blockPos);
+            serverBuildList.markUndoDirty(serverBuildList.buildUUID);
         }
         if (serverBuildList.teData != null) { //If theres ANY TE data (even an empty list), we are doing a cut paste
-            serverBuildList.addToBuiltList(new StatePos(blockState, statePos.pos)); //Add the non-adjust blockpos to the list for reference later
-            bg2Data.addToUndoList(GadgetNBT.getUUID(serverBuildList.gadget), serverBuildList.actuallyBuildList, level);
+            serverBuildList.addToBuiltList(blockState, statePos.pos); //Add the non-adjust blockpos to the list for reference later
+            serverBuildList.markUndoDirty(GadgetNBT.getUUID(serverBuildList.gadget));
 
-            CompoundTag compoundTag = serverBuildList.getTagForPos(blockPos); //First check if theres TE data for this block
+            if (be != null)
+                compoundTag = serverBuildList.getTagForPos(blockPos); //First check if theres TE data for this block
             if (!compoundTag.isEmpty()) {
-                be.setBlockEntityData(compoundTag);
-                bg2Data.addToTEMap(GadgetNBT.getUUID(serverBuildList.gadget), serverBuildList.teData); //If the server crashes mid-build you'll maybe dupe blocks but at least not dupe TE data? TODO Improve
+                if (be != null)
+                    be.setBlockEntityData(compoundTag);
+                serverBuildList.markTEDataDirty(); //If the server crashes mid-build you'll maybe dupe blocks but at least not dupe TE data? TODO Improve
             }
         }
     }
@@ -355,9 +453,9 @@ public class ServerTickHandler {
     public static void remove(ServerBuildList serverBuildList, Player player) {
         Level level = serverBuildList.level;
 
-        ArrayList<StatePos> statePosList = serverBuildList.statePosList;
+        ArrayDeque<StatePos> statePosList = serverBuildList.statePosList;
         if (statePosList.isEmpty()) return;
-        StatePos statePos = statePosList.remove(0);
+        StatePos statePos = statePosList.pollFirst();
 
         BlockPos blockPos = statePos.pos;
 
@@ -370,13 +468,13 @@ public class ServerTickHandler {
             BlockEntity blockEntity = level.getBlockEntity(blockPos);
             if (blockEntity instanceof RenderBlockBE renderBlockBE) {
                 oldState = renderBlockBE.renderBlock;
-                drawSize = renderBlockBE.drawSize;
+                drawSize = renderBlockBE.getDrawSize();
             }
         }
 
         if (!serverBuildList.dropContents)
             level.removeBlockEntity(blockPos); //Calling this prevents chests from dropping their contents, so only do it if we don't care about the drops (Like cut)
-        level.setBlock(blockPos, Blocks.AIR.defaultBlockState(), 48);
+        level.setBlock(blockPos, Blocks.AIR.defaultBlockState(), serverBuildList.instant ? Block.UPDATE_ALL : 48); //Instant has no RenderBlock to do the updates later
         StatePos affectedBlock = new StatePos(oldState, blockPos);
 
         if (serverBuildList.returnItems) {
@@ -394,26 +492,30 @@ public class ServerTickHandler {
             }
         }
 
-        boolean placed = level.setBlock(affectedBlock.pos, Registration.RenderBlock.get().defaultBlockState(), 3);
-        RenderBlockBE be = (RenderBlockBE) level.getBlockEntity(affectedBlock.pos);
-        if (placed && be != null) {
-            be.setRenderData(affectedBlock.state, Blocks.AIR.defaultBlockState(), serverBuildList.renderType);
-            if (drawSize != -99)
-                be.drawSize = drawSize;
+        if (serverBuildList.instant) {
+            serverBuildList.addInstantEffect(affectedBlock.pos);
+        } else {
+            boolean placed = placeRenderBlock(level, affectedBlock.pos);
+            RenderBlockBE be = (RenderBlockBE) level.getBlockEntity(affectedBlock.pos);
+            if (placed && be != null) {
+                be.setRenderData(affectedBlock.state, Blocks.AIR.defaultBlockState(), serverBuildList.renderType);
+                if (drawSize != -99)
+                    be.setDrawSize(drawSize);
+            }
         }
 
-        serverBuildList.addToBuiltList(affectedBlock);
+        serverBuildList.addToBuiltList(affectedBlock.state, affectedBlock.pos);
         BG2Data bg2Data = BG2Data.get(Objects.requireNonNull(level.getServer()).overworld());
         if (bg2Data.containsUndoList(serverBuildList.buildUUID))
-            bg2Data.addToUndoList(serverBuildList.buildUUID, serverBuildList.actuallyBuildList, level);
+            serverBuildList.markUndoDirty(serverBuildList.buildUUID);
     }
 
     public static void undoDestroy(ServerBuildList serverBuildList, Player player) {
         Level level = serverBuildList.level;
 
-        ArrayList<StatePos> statePosList = serverBuildList.statePosList;
+        ArrayDeque<StatePos> statePosList = serverBuildList.statePosList;
         if (statePosList.isEmpty()) return;
-        StatePos statePos = statePosList.remove(0);
+        StatePos statePos = statePosList.pollFirst();
 
         BlockPos blockPos = statePos.pos;
         BlockState blockState = statePos.state;
@@ -424,15 +526,18 @@ public class ServerTickHandler {
         if (!oldState.canBeReplaced() && !(oldState.getBlock() instanceof RenderBlock))
             return; //Don't overwrite any blocks that have been placed since destroying - only air or replacables like grass/water.
 
-        if ((oldState.getBlock() instanceof RenderBlock)) {
+        if (serverBuildList.instant) {
+            if (RenderBlockBE.placeRealBlock(level, blockPos, blockState, null))
+                serverBuildList.addInstantEffect(blockPos);
+        } else if ((oldState.getBlock() instanceof RenderBlock)) {
             BlockEntity blockEntity = level.getBlockEntity(blockPos);
             if (blockEntity instanceof RenderBlockBE renderBlockBE) {
-                byte drawSize = renderBlockBE.drawSize;
+                byte drawSize = renderBlockBE.getDrawSize();
                 renderBlockBE.setRenderData(Blocks.AIR.defaultBlockState(), blockState, serverBuildList.renderType);
-                renderBlockBE.drawSize = drawSize;
+                renderBlockBE.setDrawSize(drawSize);
             }
         } else {
-            boolean placed = level.setBlockAndUpdate(blockPos, Registration.RenderBlock.get().defaultBlockState());
+            boolean placed = placeRenderBlock(level, blockPos);
             RenderBlockBE be = (RenderBlockBE) level.getBlockEntity(blockPos);
 
             if (!placed || be == null) {
@@ -446,46 +551,50 @@ public class ServerTickHandler {
     public static void cut(ServerBuildList serverBuildList, Player player) {
         Level level = serverBuildList.level;
         if (serverBuildList.teData == null)
-            serverBuildList.teData = new ArrayList<>(); //Initialize the list since it isn't done in the ServerBuildList class
+            serverBuildList.teData = new Long2ObjectOpenHashMap<>(); //Initialize the map since it isn't done in the ServerBuildList class
 
-        ArrayList<StatePos> statePosList = serverBuildList.statePosList;
+        ArrayDeque<StatePos> statePosList = serverBuildList.statePosList;
         if (statePosList.isEmpty()) return;
-        StatePos statePos = statePosList.remove(0);
+        StatePos statePos = statePosList.pollFirst();
 
         BlockPos blockPos = statePos.pos;
         BlockState blockState = level.getBlockState(blockPos);
         boolean doRemove = false;
+        boolean teDataChanged = false;
 
         if (GadgetUtils.isValidBlockState(blockState, level, blockPos) && customCutValidation(blockState, level, player, blockPos)) {
-            serverBuildList.updateActuallyBuiltList(new StatePos(blockState, blockPos.subtract(serverBuildList.cutStart)));
+            serverBuildList.updateCutBuffer(blockState, blockPos.subtract(serverBuildList.cutStart));
             BlockEntity blockEntity = level.getBlockEntity(blockPos);
             if (!blockState.isAir()) //Don't remove air
                 doRemove = true;
             if (blockEntity != null) {
                 CompoundTag blockTag = blockEntity.saveWithFullMetadata(level.registryAccess());
-                TagPos tagPos = new TagPos(blockTag, blockPos.subtract(serverBuildList.cutStart));
-                serverBuildList.teData.add(tagPos);
+                serverBuildList.teData.put(blockPos.subtract(serverBuildList.cutStart).asLong(), blockTag);
+                teDataChanged = true;
             }
         } else { //All blocks in a cut-paste area need to be populated, so fill in air for blocks we skip.
-            serverBuildList.updateActuallyBuiltList(new StatePos(Blocks.AIR.defaultBlockState(), blockPos.subtract(serverBuildList.cutStart))); //We need to have a block in EVERY position, so write air if invalid
+            serverBuildList.updateCutBuffer(Blocks.AIR.defaultBlockState(), blockPos.subtract(serverBuildList.cutStart)); //We need to have a block in EVERY position, so write air if invalid
         }
 
-        //Update world data
-        UUID uuid = GadgetNBT.getUUID(serverBuildList.gadget);
-        BG2Data bg2Data = BG2Data.get(Objects.requireNonNull(player.level().getServer()).overworld());
-        bg2Data.addToCopyPaste(uuid, serverBuildList.actuallyBuildList);
-        bg2Data.addToTEMap(uuid, serverBuildList.teData);
+        //Update world data - written once per tick by flushJournal
+        serverBuildList.markCopyPasteDirty();
+        if (teDataChanged) //Only rewrite the stored list when we actually picked up new TE data
+            serverBuildList.markTEDataDirty();
 
         //Remove blocks from world if appropriate (Not air!)
         if (doRemove) {
             level.removeBlockEntity(blockPos); //Calling this prevents chests from dropping their contents, so only do it if we don't care about the drops (Like cut)
-            level.setBlock(blockPos, Blocks.AIR.defaultBlockState(), 48);
+            level.setBlock(blockPos, Blocks.AIR.defaultBlockState(), serverBuildList.instant ? Block.UPDATE_ALL : 48); //Instant has no RenderBlock to do the updates later
             StatePos affectedBlock = new StatePos(blockState, blockPos);
 
-            boolean placed = level.setBlock(affectedBlock.pos, Registration.RenderBlock.get().defaultBlockState(), 3);
-            RenderBlockBE be = (RenderBlockBE) level.getBlockEntity(affectedBlock.pos);
-            if (placed && be != null) {
-                be.setRenderData(affectedBlock.state, Blocks.AIR.defaultBlockState(), serverBuildList.renderType);
+            if (serverBuildList.instant) {
+                serverBuildList.addInstantEffect(affectedBlock.pos);
+            } else {
+                boolean placed = placeRenderBlock(level, affectedBlock.pos);
+                RenderBlockBE be = (RenderBlockBE) level.getBlockEntity(affectedBlock.pos);
+                if (placed && be != null) {
+                    be.setRenderData(affectedBlock.state, Blocks.AIR.defaultBlockState(), serverBuildList.renderType);
+                }
             }
         }
     }
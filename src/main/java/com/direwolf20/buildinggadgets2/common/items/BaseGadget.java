@@ -6,7 +6,7 @@ import com.direwolf20.buildinggadgets2.common.events.ServerTickHandler;
 import com.direwolf20.buildinggadgets2.common.worlddata.BG2Data;
 import com.direwolf20.buildinggadgets2.util.*;
 import com.direwolf20.buildinggadgets2.util.context.ItemActionContext;
-import com.direwolf20.buildinggadgets2.util.datatypes.StatePos;
+import com.direwolf20.buildinggadgets2.util.datatypes.BlockBuffer;
 import com.direwolf20.buildinggadgets2.util.modes.BaseMode;
 import com.google.common.collect.ImmutableSortedSet;
 import net.minecraft.ChatFormatting;
@@ -221,10 +221,11 @@ public abstract class BaseGadget extends Item {
         BG2Data bg2Data = BG2Data.get(Objects.requireNonNull(level.getServer()).overworld());
         UUID undoUUID = GadgetNBT.peekUndoList(gadget);
         if (undoUUID == null) return false;
-        ArrayList<StatePos> undoList = bg2Data.peekUndoList(undoUUID);
-        for (StatePos statePos : undoList) {
-            if (!level.isLoaded(statePos.pos)) {
-                player.displayClientMessage(Component.translatable("buildinggadgets2.messages.undofailedunloaded", statePos.pos.toShortString()), true);
+        BlockBuffer undoList = bg2Data.peekUndoList(undoUUID);
+        for (int i = 0; i < undoList.size(); i++) {
+            BlockPos pos = undoList.getPos(i);
+            if (!level.isLoaded(pos)) {
+                player.displayClientMessage(Component.translatable("buildinggadgets2.messages.undofailedunloaded", pos.toShortString()), true);
                 return false;
             }
         }
@@ -236,13 +237,12 @@ public abstract class BaseGadget extends Item {
         BG2Data bg2Data = BG2Data.get(Objects.requireNonNull(level.getServer()).overworld());
         UUID buildUUID = GadgetNBT.popUndoList(gadget);
         ServerTickHandler.stopBuilding(buildUUID);
-        ArrayList<StatePos> undoList = bg2Data.popUndoList(buildUUID);
+        BlockBuffer undoList = bg2Data.popUndoList(buildUUID);
         if (undoList.isEmpty()) return;
-        Collections.reverse(undoList);
 
-        ArrayList<BlockPos> todoList = new ArrayList<>();
-        for (StatePos statePos : undoList) {
-            todoList.add(statePos.pos);
+        ArrayList<BlockPos> todoList = new ArrayList<>(undoList.size());
+        for (int i = undoList.size() - 1; i >= 0; i--) { //Undo backwards
+            todoList.add(undoList.getPos(i));
         }
         boolean giveItemsBack = !player.isCreative(); //Might want more conditions later?
         BuildingUtils.removeTickHandler(level, player, todoList, giveItemsBack, giveItemsBack, gadget);
@@ -8,7 +8,7 @@ import com.direwolf20.buildinggadgets2.util.GadgetNBT;
 import com.direwolf20.buildinggadgets2.util.GadgetUtils;
 import com.direwolf20.buildinggadgets2.util.Styles;
 import com.direwolf20.buildinggadgets2.util.context.ItemActionContext;
-import com.direwolf20.buildinggadgets2.util.datatypes.StatePos;
+import com.direwolf20.buildinggadgets2.util.datatypes.BlockBuffer;
 import com.direwolf20.buildinggadgets2.util.modes.BaseMode;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.screens.Screen;
@@ -21,7 +21,6 @@ import net.minecraft.world.level.block.state.BlockState;
 import net.neoforged.api.distmarker.Dist;
 import net.neoforged.api.distmarker.OnlyIn;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -67,10 +66,10 @@ public class GadgetBuilding extends BaseGadget {
         if (setState.isAir()) return InteractionResultHolder.pass(gadget);
 
         var mode = GadgetNBT.getMode(gadget);
-        ArrayList<StatePos> buildList = mode.collect(context.hitResult().getDirection(), context.player(), getHitPos(context), setState);
+        BlockBuffer buildList = mode.collect(context.hitResult().getDirection(), context.player(), getHitPos(context), setState);
 
         UUID buildUUID = BuildingUtils.build(context.level(), context.player(), buildList, getHitPos(context), gadget, true);
-        GadgetUtils.addToUndoList(context.level(), gadget, new ArrayList<>(), buildUUID);
+        GadgetUtils.addToUndoList(context.level(), gadget, new BlockBuffer(), buildUUID);
         GadgetNBT.clearAnchorPos(gadget);
         return InteractionResultHolder.success(gadget);
     }
@@ -2,12 +2,13 @@ package com.direwolf20.buildinggadgets2.common.items;
 
 import com.direwolf20.buildinggadgets2.api.gadgets.GadgetTarget;
 import com.direwolf20.buildinggadgets2.common.worlddata.BG2Data;
+import com.direwolf20.buildinggadgets2.setup.BG2DataComponents;
 import com.direwolf20.buildinggadgets2.setup.Config;
 import com.direwolf20.buildinggadgets2.util.BuildingUtils;
 import com.direwolf20.buildinggadgets2.util.GadgetNBT;
 import com.direwolf20.buildinggadgets2.util.GadgetUtils;
 import com.direwolf20.buildinggadgets2.util.context.ItemActionContext;
-import com.direwolf20.buildinggadgets2.util.datatypes.StatePos;
+import com.direwolf20.buildinggadgets2.util.datatypes.BlockBuffer;
 import com.direwolf20.buildinggadgets2.util.modes.Copy;
 import com.direwolf20.buildinggadgets2.util.modes.Paste;
 import net.minecraft.ChatFormatting;
@@ -15,14 +16,14 @@ import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.screens.Screen;
 import net.minecraft.network.chat.Component;
 import net.minecraft.world.InteractionResultHolder;
+import net.minecraft.world.entity.player.Inventory;
+import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.Item;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.item.TooltipFlag;
-import net.minecraft.world.level.block.Blocks;
 import net.neoforged.api.distmarker.Dist;
 import net.neoforged.api.distmarker.OnlyIn;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
@@ -77,7 +78,7 @@ public class GadgetCopyPaste extends BaseGadget {
         } else if (mode.getId().getPath().equals("paste")) {
             UUID uuid = GadgetNBT.getUUID(gadget);
             BG2Data bg2Data = BG2Data.get(Objects.requireNonNull(context.player().level().getServer()).overworld());
-            ArrayList<StatePos> buildList = bg2Data.getCopyPasteList(uuid, false);
+            BlockBuffer buildList = bg2Data.getCopyPasteBuffer(uuid, false);
             UUID buildUUID;
             boolean replace = GadgetNBT.getPasteReplace(gadget);
             if (!replace)
@@ -85,7 +86,7 @@ public class GadgetCopyPaste extends BaseGadget {
             else
                 buildUUID = BuildingUtils.exchange(context.level(), context.player(), buildList, getHitPos(context).above().offset(GadgetNBT.getRelativePaste(gadget)), gadget, true, false);
 
-            GadgetUtils.addToUndoList(context.level(), gadget, new ArrayList<>(), buildUUID);
+            GadgetUtils.addToUndoList(context.level(), gadget, new BlockBuffer(), buildUUID);
             //GadgetNBT.clearAnchorPos(gadget);
             return InteractionResultHolder.success(gadget);
         } else {
@@ -116,12 +117,34 @@ public class GadgetCopyPaste extends BaseGadget {
     }
 
     public void buildAndStore(ItemActionContext context, ItemStack gadget) {
-        ArrayList<StatePos> buildList = new Copy().collect(context.hitResult().getDirection(), context.player(), context.pos(), Blocks.AIR.defaultBlockState());
         UUID uuid = GadgetNBT.getUUID(gadget);
-        GadgetNBT.setCopyUUID(gadget); //This UUID will be used to determine if the copy/paste we are rendering from the cache is old or not.
-        BG2Data bg2Data = BG2Data.get(Objects.requireNonNull(context.player().level().getServer()).overworld());
-        bg2Data.addToCopyPaste(uuid, buildList);
-        context.player().displayClientMessage(Component.translatable("buildinggadgets2.messages.copyblocks", buildList.size()), true);
+        Player player = context.player();
+        new Copy().collectAsync(player, uuid, buildList -> { //Large copies are worked out off the server thread, and stored once they're done
+            ItemStack currentGadget = findGadget(player, uuid); //The stack we started with may have been moved or replaced by now
+            if (currentGadget.isEmpty()) return; //Gadget is gone, so there's nothing to store the copy for
+            GadgetNBT.setCopyUUID(currentGadget); //This UUID will be used to determine if the copy/paste we are rendering from the cache is old or not.
+            BG2Data bg2Data = BG2Data.get(Objects.requireNonNull(player.level().getServer()).overworld());
+            bg2Data.addToCopyPaste(uuid, buildList);
+            player.displayClientMessage(Component.translatable("buildinggadgets2.messages.copyblocks", buildList.size()), true);
+        });
+    }
+
+    /**
+     * The copy gadget with this UUID, looking in the player's hands first and then the rest of their inventory. Empty if they don't have it anymore
+     */
+    private static ItemStack findGadget(Player player, UUID uuid) {
+        ItemStack heldGadget = BaseGadget.getGadget(player);
+        if (isGadget(heldGadget, uuid)) return heldGadget;
+        Inventory inventory = player.getInventory();
+        for (int i = 0; i < inventory.getContainerSize(); i++) {
+            if (isGadget(inventory.getItem(i), uuid))
+                return inventory.getItem(i);
+        }
+        return ItemStack.EMPTY;
+    }
+
+    private static boolean isGadget(ItemStack itemStack, UUID uuid) {
+        return itemStack.getItem() instanceof GadgetCopyPaste && uuid.equals(itemStack.get(BG2DataComponents.GADGET_UUID)); //Not GadgetNBT.getUUID, which would give the stack a UUID if it had none
     }
 
     /**
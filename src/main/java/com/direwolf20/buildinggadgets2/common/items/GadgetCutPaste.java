@@ -5,10 +5,12 @@ import com.direwolf20.buildinggadgets2.common.events.ServerBuildList;
 import com.direwolf20.buildinggadgets2.common.events.ServerTickHandler;
 import com.direwolf20.buildinggadgets2.common.worlddata.BG2Data;
 import com.direwolf20.buildinggadgets2.setup.Config;
+import com.direwolf20.buildinggadgets2.util.AreaLimits;
 import com.direwolf20.buildinggadgets2.util.BuildingUtils;
 import com.direwolf20.buildinggadgets2.util.GadgetNBT;
 import com.direwolf20.buildinggadgets2.util.VecHelpers;
 import com.direwolf20.buildinggadgets2.util.context.ItemActionContext;
+import com.direwolf20.buildinggadgets2.util.datatypes.BlockBuffer;
 import com.direwolf20.buildinggadgets2.util.datatypes.StatePos;
 import com.direwolf20.buildinggadgets2.util.datatypes.TagPos;
 import com.direwolf20.buildinggadgets2.util.modes.Cut;
@@ -35,7 +37,6 @@ import net.neoforged.neoforge.common.Tags;
 import net.neoforged.neoforge.event.level.BlockEvent;
 
 import java.util.*;
-import java.util.stream.Stream;
 
 public class GadgetCutPaste extends BaseGadget {
     public GadgetCutPaste() {
@@ -86,8 +87,8 @@ public class GadgetCutPaste extends BaseGadget {
                 return InteractionResultHolder.pass(gadget); // Do nothing if this gadget is already doing stuff!
             }
             BG2Data bg2Data = BG2Data.get(Objects.requireNonNull(context.player().level().getServer()).overworld());
-            ArrayList<StatePos> buildList = bg2Data.getCopyPasteList(uuid, false); //Don't remove the data just yet
-            Collections.reverse(buildList);
+            BlockBuffer buildList = bg2Data.getCopyPasteBuffer(uuid, false); //Don't remove the data just yet
+            buildList.reverse();
             ArrayList<TagPos> tagList = bg2Data.peekTEMap(uuid);
 
             ArrayList<StatePos> actuallyBuiltList = BuildingUtils.buildWithTileData(context.level(), context.player(), buildList, getHitPos(context).above().offset(GadgetNBT.getRelativePaste(gadget)), tagList, gadget);
@@ -137,28 +138,10 @@ public class GadgetCutPaste extends BaseGadget {
         if (cutStart.equals(GadgetNBT.nullPos) || cutEnd.equals(GadgetNBT.nullPos)) return;
 
         AABB area = VecHelpers.aabbFromBlockPos(cutStart, cutEnd);
-        int maxAxis = 500; //Todo Config?
-        if (area.getXsize() > maxAxis) {
-            player.displayClientMessage(Component.translatable("buildinggadgets2.messages.axistoolarge", "x", maxAxis, area.getXsize()), false);
-            return;
-        }
-        if (area.getYsize() > maxAxis) {
-            player.displayClientMessage(Component.translatable("buildinggadgets2.messages.axistoolarge", "y", maxAxis, area.getYsize()), false);
-            return;
-        }
-        if (area.getZsize() > maxAxis) {
-            player.displayClientMessage(Component.translatable("buildinggadgets2.messages.axistoolarge", "z", maxAxis, area.getZsize()), false);
-            return;
-        }
-        Stream<BlockPos> areaStream = BlockPos.betweenClosedStream(area);
-        long size = areaStream.count();
-        int maxSize = 100000; //Todo Config?
-        if (size > maxSize) {
-            player.displayClientMessage(Component.translatable("buildinggadgets2.messages.areatoolarge", maxSize, size), false);
-            return;
-        }
+        if (!AreaLimits.checkCutArea(player, cutStart, cutEnd)) return;
+        long size = AreaLimits.getSize(cutStart, cutEnd);
 
-        int totalCost = gadgetCutPaste.getEnergyCost() * (int) size;
+        long totalCost = gadgetCutPaste.getEnergyCost() * size;
         if (!player.isCreative() && !BuildingUtils.hasEnoughEnergy(heldItem, totalCost)) {
             player.displayClientMessage(Component.translatable("buildinggadgets2.messages.notenoughenergy", totalCost, BuildingUtils.getEnergyStored(heldItem)), false);
             return;
@@ -11,6 +11,7 @@ import com.direwolf20.buildinggadgets2.util.GadgetNBT;
 import com.direwolf20.buildinggadgets2.util.GadgetUtils;
 import com.direwolf20.buildinggadgets2.util.VectorHelper;
 import com.direwolf20.buildinggadgets2.util.context.ItemActionContext;
+import com.direwolf20.buildinggadgets2.util.datatypes.BlockBuffer;
 import com.direwolf20.buildinggadgets2.util.datatypes.StatePos;
 import net.minecraft.ChatFormatting;
 import net.minecraft.client.Minecraft;
@@ -26,6 +27,7 @@ import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.item.TooltipFlag;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.phys.BlockHitResult;
 import net.neoforged.api.distmarker.Dist;
 import net.neoforged.api.distmarker.OnlyIn;
@@ -96,13 +98,14 @@ public class GadgetDestruction extends BaseGadget {
         BlockPos startBlock = getHitPos(context);
         Direction facing = (anchorSide == null) ? context.hitResult().getDirection() : anchorSide;
 
-        ArrayList<StatePos> destroyList = GadgetUtils.getDestructionArea(context.level(), startBlock, facing, context.player(), gadget);
-        ArrayList<BlockPos> destroyPosList = new ArrayList<>();
-        destroyList.forEach(e -> destroyPosList.add(e.pos));
+        BlockBuffer destroyList = GadgetUtils.getDestructionArea(context.level(), startBlock, facing, context.player(), gadget);
+        ArrayList<BlockPos> destroyPosList = new ArrayList<>(destroyList.size());
+        for (int i = 0; i < destroyList.size(); i++)
+            destroyPosList.add(destroyList.getPos(i));
         destroyPosList.sort(Comparator.comparingDouble(blockPos -> blockPos.distSqr(context.player().blockPosition())));
 
         UUID buildUUID = BuildingUtils.removeTickHandler(context.level(), context.player(), destroyPosList, false, true, gadget);
-        GadgetUtils.addToUndoList(context.level(), gadget, new ArrayList<>(), buildUUID); //If we placed anything at all, add to the undoList
+        GadgetUtils.addToUndoList(context.level(), gadget, new BlockBuffer(), buildUUID); //If we placed anything at all, add to the undoList
         GadgetNBT.clearAnchorPos(gadget);
         return InteractionResultHolder.success(gadget);
     }
@@ -125,13 +128,13 @@ public class GadgetDestruction extends BaseGadget {
         UUID buildUUID = GadgetNBT.popUndoList(gadget);
         UUID newBuildUUID = UUID.randomUUID(); //Use a new build UUID for the undo-building process
         ServerTickHandler.stopBuilding(buildUUID);
-        ArrayList<StatePos> undoList = bg2Data.popUndoList(buildUUID);
+        BlockBuffer undoList = bg2Data.popUndoList(buildUUID);
         if (undoList.isEmpty()) return;
-        Collections.reverse(undoList); //Undo backwards :)
 
-        for (StatePos statePos : undoList) {
-            if (statePos.state.isAir()) continue; //Since we store air now
-            ServerTickHandler.addToMap(newBuildUUID, statePos, level, GadgetNBT.getRenderTypeByte(gadget), player, false, false, gadget, ServerBuildList.BuildType.UNDO_DESTROY, false, BlockPos.ZERO);
+        for (int i = undoList.size() - 1; i >= 0; i--) { //Undo backwards :)
+            BlockState state = undoList.getState(i);
+            if (state.isAir()) continue; //Since we store air now
+            ServerTickHandler.addToMap(newBuildUUID, new StatePos(state, undoList.getPos(i)), level, GadgetNBT.getRenderTypeByte(gadget), player, false, false, gadget, ServerBuildList.BuildType.UNDO_DESTROY, false, BlockPos.ZERO);
         }
     }
 
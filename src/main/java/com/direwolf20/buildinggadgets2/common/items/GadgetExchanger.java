@@ -11,6 +11,7 @@ import com.direwolf20.buildinggadgets2.util.GadgetNBT;
 import com.direwolf20.buildinggadgets2.util.GadgetUtils;
 import com.direwolf20.buildinggadgets2.util.Styles;
 import com.direwolf20.buildinggadgets2.util.context.ItemActionContext;
+import com.direwolf20.buildinggadgets2.util.datatypes.BlockBuffer;
 import com.direwolf20.buildinggadgets2.util.datatypes.StatePos;
 import com.direwolf20.buildinggadgets2.util.modes.BaseMode;
 import net.minecraft.client.Minecraft;
@@ -76,10 +77,10 @@ public class GadgetExchanger extends BaseGadget {
         if (setState.isAir()) return InteractionResultHolder.pass(gadget);
 
         var mode = GadgetNBT.getMode(gadget);
-        ArrayList<StatePos> buildList = mode.collect(context.hitResult().getDirection(), context.player(), getHitPos(context), setState);
+        BlockBuffer buildList = mode.collect(context.hitResult().getDirection(), context.player(), getHitPos(context), setState);
 
         UUID buildUUID = BuildingUtils.exchange(context.level(), context.player(), buildList, getHitPos(context), gadget, true, true);
-        GadgetUtils.addToUndoList(context.level(), gadget, new ArrayList<>(), buildUUID);
+        GadgetUtils.addToUndoList(context.level(), gadget, new BlockBuffer(), buildUUID);
         GadgetNBT.clearAnchorPos(gadget);
         return InteractionResultHolder.success(gadget);
     }
@@ -109,12 +110,12 @@ public class GadgetExchanger extends BaseGadget {
         BG2Data bg2Data = BG2Data.get(Objects.requireNonNull(level.getServer()).overworld());
         UUID buildUUID = GadgetNBT.popUndoList(gadget);
         ServerTickHandler.stopBuilding(buildUUID);
-        ArrayList<StatePos> undoList = bg2Data.popUndoList(buildUUID);
+        BlockBuffer undoList = bg2Data.popUndoList(buildUUID);
         if (undoList.isEmpty()) return;
-        Collections.reverse(undoList);
         UUID newBuildUUID = UUID.randomUUID();
 
-        for (StatePos pos : undoList) {
+        for (int i = undoList.size() - 1; i >= 0; i--) { //Undo backwards
+            StatePos pos = new StatePos(undoList.getState(i), undoList.getPos(i));
             if (pos.state.isAir()) continue; //Since we store air now
             if (!pos.state.canSurvive(level, pos.pos)) continue;
             if (!player.isCreative() && !hasEnoughEnergy(gadget)) {
@@ -123,7 +124,7 @@ public class GadgetExchanger extends BaseGadget {
             }
             if (!player.isCreative())
                 useEnergy(gadget);
-            ServerTickHandler.addToMap(newBuildUUID, new StatePos(pos.state, pos.pos), level, GadgetNBT.getRenderTypeByte(gadget), player, true, true, gadget, ServerBuildList.BuildType.EXCHANGE, true, GadgetNBT.nullPos);
+            ServerTickHandler.addToMap(newBuildUUID, pos, level, GadgetNBT.getRenderTypeByte(gadget), player, true, true, gadget, ServerBuildList.BuildType.EXCHANGE, true, GadgetNBT.nullPos);
         }
     }
 
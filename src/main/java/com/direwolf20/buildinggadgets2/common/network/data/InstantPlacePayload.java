@@ -0,0 +1,26 @@
+package com.direwolf20.buildinggadgets2.common.network.data;
+
+import com.direwolf20.buildinggadgets2.BuildingGadgets2;
+import net.minecraft.network.FriendlyByteBuf;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+
+/**
+ * Positions (BlockPos.asLong()) in one chunk placed by the Instant render type during one tick, so clients tracking that chunk can show a placement effect
+ */
+public record InstantPlacePayload(
+        long[] positions
+) implements CustomPacketPayload {
+    public static final Type<InstantPlacePayload> TYPE = new Type<>(ResourceLocation.fromNamespaceAndPath(BuildingGadgets2.MODID, "instant_place_payload"));
+
+    @Override
+    public Type<InstantPlacePayload> type() {
+        return TYPE;
+    }
+
+    public static final StreamCodec<FriendlyByteBuf, InstantPlacePayload> STREAM_CODEC = StreamCodec.composite(
+            StreamCodec.of(FriendlyByteBuf::writeLongArray, FriendlyByteBuf::readLongArray), InstantPlacePayload::positions, //Unboxed, these can be a few thousand entries
+            InstantPlacePayload::new
+    );
+}
@@ -11,9 +11,15 @@ import net.minecraft.resources.ResourceLocation;
 
 import java.util.UUID;
 
+/**
+ * One piece of a copy data transfer, see CopyDataStreamer. Sequence 0 carries the header (bounds and palette) as well as the first runs.
+ */
 public record SendCopyDataPayload(
+        int transferID,
         UUID gadgetUUID,
         UUID copyUUID,
+        int sequence,
+        int totalChunks,
         CompoundTag tag
 ) implements CustomPacketPayload {
     public static final Type<SendCopyDataPayload> TYPE = new Type<>(ResourceLocation.fromNamespaceAndPath(BuildingGadgets2.MODID, "send_copy_data_payload"));
@@ -24,8 +30,11 @@ public record SendCopyDataPayload(
     }
 
     public static final StreamCodec<FriendlyByteBuf, SendCopyDataPayload> STREAM_CODEC = StreamCodec.composite(
+            ByteBufCodecs.VAR_INT, SendCopyDataPayload::transferID,
             UUIDUtil.STREAM_CODEC, SendCopyDataPayload::gadgetUUID,
             UUIDUtil.STREAM_CODEC, SendCopyDataPayload::copyUUID,
+            ByteBufCodecs.VAR_INT, SendCopyDataPayload::sequence,
+            ByteBufCodecs.VAR_INT, SendCopyDataPayload::totalChunks,
             ByteBufCodecs.COMPOUND_TAG, SendCopyDataPayload::tag,
             SendCopyDataPayload::new
     );
@@ -6,7 +6,7 @@ import com.direwolf20.buildinggadgets2.common.items.GadgetExchanger;
 import com.direwolf20.buildinggadgets2.common.network.data.AnchorPayload;
 import com.direwolf20.buildinggadgets2.util.GadgetNBT;
 import com.direwolf20.buildinggadgets2.util.VectorHelper;
-import com.direwolf20.buildinggadgets2.util.datatypes.StatePos;
+import com.direwolf20.buildinggadgets2.util.datatypes.BlockBuffer;
 import com.direwolf20.buildinggadgets2.util.modes.BaseMode;
 import net.minecraft.core.BlockPos;
 import net.minecraft.network.chat.Component;
@@ -48,9 +48,10 @@ public class PacketAnchor {
                 BlockState renderBlockState = GadgetNBT.getGadgetBlockState(gadgetStack);
                 if (renderBlockState.isAir()) return;
                 BaseMode mode = GadgetNBT.getMode(gadgetStack);
-                ArrayList<StatePos> buildList = mode.collect(lookingAt.getDirection(), player, lookingAtPos, renderBlockState);
-                ArrayList<BlockPos> blockPosList = new ArrayList<>();
-                buildList.forEach(e -> blockPosList.add(e.pos));
+                BlockBuffer buildList = mode.collect(lookingAt.getDirection(), player, lookingAtPos, renderBlockState);
+                ArrayList<BlockPos> blockPosList = new ArrayList<>(buildList.size());
+                for (int i = 0; i < buildList.size(); i++)
+                    blockPosList.add(buildList.getPos(i));
                 GadgetNBT.setAnchorList(gadgetStack, blockPosList);
             }
             player.displayClientMessage(Component.translatable("buildinggadgets2.messages.anchorset").append(lookingAtPos.toShortString()), true);
@@ -0,0 +1,17 @@
+package com.direwolf20.buildinggadgets2.common.network.handler;
+
+import com.direwolf20.buildinggadgets2.client.renderer.InstantPlaceRenderer;
+import com.direwolf20.buildinggadgets2.common.network.data.InstantPlacePayload;
+import net.neoforged.neoforge.network.handling.IPayloadContext;
+
+public class PacketInstantPlace {
+    public static final PacketInstantPlace INSTANCE = new PacketInstantPlace();
+
+    public static PacketInstantPlace get() {
+        return INSTANCE;
+    }
+
+    public void handle(final InstantPlacePayload payload, final IPayloadContext context) {
+        context.enqueueWork(() -> InstantPlaceRenderer.addFlashes(payload.positions()));
+    }
+}
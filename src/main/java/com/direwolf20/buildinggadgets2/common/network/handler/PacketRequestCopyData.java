@@ -1,10 +1,9 @@
 package com.direwolf20.buildinggadgets2.common.network.handler;
 
+import com.direwolf20.buildinggadgets2.common.events.CopyDataStreamer;
 import com.direwolf20.buildinggadgets2.common.events.ServerTickHandler;
 import com.direwolf20.buildinggadgets2.common.network.data.RequestCopyDataPayload;
-import com.direwolf20.buildinggadgets2.common.network.data.SendCopyDataPayload;
 import com.direwolf20.buildinggadgets2.common.worlddata.BG2Data;
-import net.minecraft.nbt.CompoundTag;
 import net.minecraft.server.level.ServerPlayer;
 import net.neoforged.neoforge.network.handling.IPayloadContext;
 
@@ -36,24 +35,7 @@ public class PacketRequestCopyData {
 
             ServerPlayer player = (ServerPlayer) context.player();
             BG2Data bg2Data = BG2Data.get(Objects.requireNonNull(player.level().getServer()).overworld());
-            CompoundTag tag = bg2Data.getCopyPasteListAsNBTMap(payload.gadgetUUID(), false);
-            //Will bring this back if needed, but the block limit in place should make this obsolete
-            /*FriendlyByteBuf buffer = new FriendlyByteBuf(Unpooled.buffer());
-            PacketSendCopyData packet = new PacketSendCopyData(GadgetNBT.getUUID(gadget), GadgetNBT.getCopyUUID(gadget), tag);
-            PacketSendCopyData.encode(packet, buffer);
-            int packetSize = buffer.writerIndex();
-            if (tag.sizeInBytes() > 2000000) {
-                sender.displayClientMessage(Component.literal("Size too big for request! It was: " + tag.sizeInBytes()), false);
-            } else {
-                sender.displayClientMessage(Component.literal("NBT Tag Size is: " + tag.sizeInBytes() + ". Packet size is: " + packetSize), false);
-                PacketHandler.sendTo(new PacketSendCopyData(GadgetNBT.getUUID(gadget), GadgetNBT.getCopyUUID(gadget), tag), sender);
-            }*/
-
-            player.connection.send(new SendCopyDataPayload(
-                    payload.gadgetUUID(),
-                    payload.copyUUID(),
-                    tag
-            ));
+            CopyDataStreamer.sendCopyData(player, bg2Data, payload.gadgetUUID(), payload.copyUUID()); //Streamed in pieces across ticks, so big copies don't hit packet size limits
         });
     }
 }
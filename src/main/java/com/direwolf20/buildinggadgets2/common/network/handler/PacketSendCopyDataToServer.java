@@ -1,14 +1,13 @@
 package com.direwolf20.buildinggadgets2.common.network.handler;
 
 import com.direwolf20.buildinggadgets2.common.containers.TemplateManagerContainer;
+import com.direwolf20.buildinggadgets2.common.events.CopyDataStreamer;
 import com.direwolf20.buildinggadgets2.common.items.BaseGadget;
-import com.direwolf20.buildinggadgets2.common.network.data.SendCopyDataPayload;
 import com.direwolf20.buildinggadgets2.common.network.data.SendCopyDataToServerPayload;
 import com.direwolf20.buildinggadgets2.common.worlddata.BG2Data;
 import com.direwolf20.buildinggadgets2.setup.Registration;
 import com.direwolf20.buildinggadgets2.util.GadgetNBT;
 import com.direwolf20.buildinggadgets2.util.datatypes.StatePos;
-import net.minecraft.nbt.CompoundTag;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.inventory.AbstractContainerMenu;
@@ -53,15 +52,7 @@ public class PacketSendCopyDataToServer {
             GadgetNBT.setCopyUUID(templateStack);
 
             //Update the client - Yes - even though this came from the client!! This is to make sure the server sanity checked the blocks list
-            CompoundTag tag = bg2Data.getCopyPasteListAsNBTMap(GadgetNBT.getUUID(templateStack), false);
-
-            ((ServerPlayer) context.player()).connection.send(
-                    new SendCopyDataPayload(
-                            GadgetNBT.getUUID(templateStack),
-                            GadgetNBT.getCopyUUID(templateStack),
-                            tag
-                    )
-            );
+            CopyDataStreamer.sendCopyData((ServerPlayer) context.player(), bg2Data, GadgetNBT.getUUID(templateStack), GadgetNBT.getCopyUUID(templateStack));
         });
     }
 }
@@ -1,15 +1,14 @@
 package com.direwolf20.buildinggadgets2.common.network.handler;
 
 import com.direwolf20.buildinggadgets2.common.containers.TemplateManagerContainer;
-import com.direwolf20.buildinggadgets2.common.network.data.SendCopyDataPayload;
+import com.direwolf20.buildinggadgets2.common.events.CopyDataStreamer;
 import com.direwolf20.buildinggadgets2.common.network.data.UpdateTemplateManagerPayload;
 import com.direwolf20.buildinggadgets2.common.worlddata.BG2Data;
 import com.direwolf20.buildinggadgets2.setup.Registration;
 import com.direwolf20.buildinggadgets2.util.GadgetNBT;
-import com.direwolf20.buildinggadgets2.util.datatypes.StatePos;
+import com.direwolf20.buildinggadgets2.util.datatypes.StateRegion;
 import com.direwolf20.buildinggadgets2.util.datatypes.TagPos;
 import net.minecraft.core.Holder;
-import net.minecraft.nbt.CompoundTag;
 import net.minecraft.network.chat.Component;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerPlayer;
@@ -53,8 +52,8 @@ public class PacketUpdateTemplateManager {
                 if (templateStack.is(Items.PAPER)) {
                     UUID sourceUUID = GadgetNBT.getUUID(gadgetStack);
                     BG2Data bg2Data = BG2Data.get(Objects.requireNonNull(player.level().getServer()).overworld());
-                    ArrayList<StatePos> buildList = bg2Data.getCopyPasteList(sourceUUID, false);
-                    if (buildList == null || buildList.isEmpty()) {
+                    StateRegion stateRegion = bg2Data.getCopyPasteRegion(sourceUUID, false);
+                    if (stateRegion == null || stateRegion.isEmpty()) {
                         playSound((ServerPlayer) player, Holder.direct(SoundEvent.createVariableRangeEvent(ResourceLocation.parse(SoundEvents.WAXED_SIGN_INTERACT_FAIL.getLocation().toString()))));
                         return;
                     }
@@ -108,13 +107,13 @@ public class PacketUpdateTemplateManager {
                 return;
             }
         }
-        ArrayList<StatePos> buildList = bg2Data.getCopyPasteList(sourceUUID, false);
-        if (buildList == null || buildList.isEmpty()) {
+        StateRegion stateRegion = bg2Data.getCopyPasteRegion(sourceUUID, false);
+        if (stateRegion == null || stateRegion.isEmpty()) {
             playSound(sender, Holder.direct(SoundEvent.createVariableRangeEvent(ResourceLocation.parse(SoundEvents.WAXED_SIGN_INTERACT_FAIL.getLocation().toString()))));
             return;
         }
         GadgetNBT.setCopyUUID(targetStack); //This UUID will be used to determine if the copy/paste we are rendering from the cache is old or not.
-        bg2Data.addToCopyPaste(targetUUID, buildList);
+        bg2Data.copyCopyPaste(sourceUUID, targetUUID);
 
         if (sourceStack.is(Registration.Redprint.get()) || targetStack.is(Registration.Redprint.get())) { //If we are reading or writing to a redprint, also copy the TEMap Data
             ArrayList<TagPos> teMap = bg2Data.peekTEMap(sourceUUID);
@@ -127,11 +126,8 @@ public class PacketUpdateTemplateManager {
         }
 
         //Ensure client has the updated values for both objects
-        CompoundTag tag = bg2Data.getCopyPasteListAsNBTMap(sourceUUID, false);
-        sender.connection.send(new SendCopyDataPayload(sourceUUID, GadgetNBT.getCopyUUID(sourceStack), tag));
-
-        tag = bg2Data.getCopyPasteListAsNBTMap(targetUUID, false);
-        sender.connection.send(new SendCopyDataPayload(targetUUID, GadgetNBT.getCopyUUID(targetStack), tag));
+        CopyDataStreamer.sendCopyData(sender, bg2Data, sourceUUID, GadgetNBT.getCopyUUID(sourceStack));
+        CopyDataStreamer.sendCopyData(sender, bg2Data, targetUUID, GadgetNBT.getCopyUUID(targetStack));
 
         playSound(sender, Holder.direct(SoundEvent.createVariableRangeEvent(ResourceLocation.parse(SoundEvents.ENCHANTMENT_TABLE_USE.getLocation().toString()))));
     }
@@ -1,45 +1,154 @@
 package com.direwolf20.buildinggadgets2.common.worlddata;
 
-import com.direwolf20.buildinggadgets2.util.VecHelpers;
+import com.direwolf20.buildinggadgets2.util.MaterialReservation;
+import com.direwolf20.buildinggadgets2.util.datatypes.BlockBuffer;
 import com.direwolf20.buildinggadgets2.util.datatypes.StatePos;
+import com.direwolf20.buildinggadgets2.util.datatypes.StateRegion;
 import com.direwolf20.buildinggadgets2.util.datatypes.TagPos;
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
+import com.mojang.logging.LogUtils;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.Util;
 import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.core.GlobalPos;
 import net.minecraft.core.HolderLookup;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.NbtAccounter;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtOps;
+import net.minecraft.nbt.NbtUtils;
+import net.minecraft.nbt.StringTag;
 import net.minecraft.nbt.Tag;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.level.Level;
-import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.saveddata.SavedData;
-import net.minecraft.world.phys.AABB;
-
+import net.minecraft.world.level.storage.LevelResource;
+import org.slf4j.Logger;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
-import java.util.stream.Collectors;
-
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * The buildinggadgets2.dat file itself is only a small index (Redprint names, which gadgets have a file and which copy data file each uses, and the items running builds took up front).
+ * Everything else is stored in its own file under data/buildinggadgets2 - one per gadget for undo lists and TE data, and one per unique copy for copy/paste data.
+ * Those files are loaded the first time a gadget's data is needed, written on save only if they changed, and dropped from memory once they've been idle a while.
+ */
 public class BG2Data extends SavedData {
+    private static final Logger LOGGER = LogUtils.getLogger();
     private static final String NAME = "buildinggadgets2";
-    private final HashMap<UUID, ArrayList<StatePos>> undoList; //GadgetUUID -> UndoList StatePosData
-    private final HashMap<UUID, ArrayList<StatePos>> copyPasteLookup; //GadgetUUID -> StatePosData
-    private final HashMap<UUID, ArrayList<TagPos>> teMap; //GadgetUUID -> Tile Entity Data
+    private static final long IDLE_EVICT_MILLIS = 10 * 60 * 1000; //Gadget data that hasn't been used in this long is dropped from memory on the next save
     private final BiMap<UUID, String> redprintLookup; //A list of RedPrint names to UUIDs
+    private final HashMap<UUID, String> copyPasteHashes; //GadgetUUID -> Content hash of the copy data file it uses
+    private final Object2IntOpenHashMap<String> copyPasteRefCounts = new Object2IntOpenHashMap<>(); //Content hash -> How many gadgets use that file, its deleted when this reaches 0
+    private final HashMap<UUID, GadgetData> loadedGadgets; //GadgetUUID -> Data we've loaded or changed this session
+    private final HashMap<String, WeakReference<StateRegion>> loadedRegions = new HashMap<>(); //Content hash -> Copy data, so gadgets sharing a copy share it in memory too
+    private final HashMap<UUID, PendingRefund> reservations; //BuildUUID -> Items that build took up front and hasn't used yet
+    private final ArrayList<String> unreferencedHashes; //Copy data files nothing uses anymore - deleted on the next save, once an index that doesn't point at them is on disk
+    private HashSet<UUID> gadgetFiles; //GadgetUUIDs that have a file on disk, so looking up a gadget that has none (Like a new build's UUID) never touches the disk
+    private Path storageDir; //<world>/data/buildinggadgets2, set in get()
+
+    /**
+     * A build's MaterialReservation (Or the items its AE2Session pulled from the network) and where to give it back to. Builds don't survive a server stop, so any of these read back from disk are refunded on the player's next login
+     */
+    public record PendingRefund(UUID playerUUID, @Nullable GlobalPos boundPos, int direction, MaterialReservation reservation) {
+        public Direction getDirection() {
+            if (direction == -1) return null;
+            return Direction.values()[direction];
+        }
+    }
+
+    private static class GadgetData {
+        private BlockBuffer undoList; //UndoList StatePosData, in the order it was built
+        private StateRegion copyPaste; //StatePosData, run length encoded to keep large (mostly air) copies cheap to hold
+        private ArrayList<TagPos> teMap; //Tile Entity Data
+        private boolean dirty; //Undo list or TE data changed since the last save
+        private boolean copyPasteDirty; //Copy data changed since the last save, so its content hash needs to be worked out again
+        private long lastAccess;
+
+        private boolean isEmpty() {
+            return undoList == null && teMap == null;
+        }
 
-    public BG2Data(HashMap<UUID, ArrayList<StatePos>> undoList, HashMap<UUID, ArrayList<StatePos>> copyPasteLookup, HashMap<UUID, ArrayList<TagPos>> teMap, BiMap<UUID, String> redprintLookup) {
-        this.undoList = undoList;
-        this.copyPasteLookup = copyPasteLookup;
-        this.teMap = teMap;
+        private CompoundTag getTag() {
+            CompoundTag tag = new CompoundTag();
+            if (undoList != null)
+                tag.put("undobuffer", undoList.toNBT());
+            if (teMap != null) {
+                ListTag tempList = new ListTag();
+                for (TagPos tagPos : teMap)
+                    tempList.add(tagPos.getTag());
+                tag.put("temaplist", tempList);
+            }
+            return tag;
+        }
+
+        private void readTag(CompoundTag tag) {
+            if (tag.contains("undobuffer"))
+                undoList = BlockBuffer.fromNBT(tag.getCompound("undobuffer"));
+            else if (tag.contains("stateposlist")) //Written by older versions
+                undoList = readUndoList(tag.getList("stateposlist", Tag.TAG_COMPOUND));
+            if (tag.contains("temaplist"))
+                teMap = readTEMap(tag.getList("temaplist", Tag.TAG_COMPOUND));
+        }
+    }
+
+    private BG2Data(BiMap<UUID, String> redprintLookup, HashMap<UUID, String> copyPasteHashes, HashMap<UUID, GadgetData> loadedGadgets, HashMap<UUID, PendingRefund> reservations, ArrayList<String> unreferencedHashes, @Nullable HashSet<UUID> gadgetFiles) {
         this.redprintLookup = redprintLookup;
+        this.copyPasteHashes = copyPasteHashes;
+        this.loadedGadgets = loadedGadgets;
+        this.reservations = reservations;
+        this.unreferencedHashes = unreferencedHashes;
+        this.gadgetFiles = gadgetFiles;
+        for (String hash : copyPasteHashes.values())
+            copyPasteRefCounts.addTo(hash, 1);
+        if (!loadedGadgets.isEmpty())
+            this.setDirty(); //Data migrated from the old single file format, write it out to the new files
+    }
+
+    private GadgetData getGadgetData(UUID uuid) {
+        GadgetData gadgetData = loadedGadgets.get(uuid);
+        if (gadgetData == null) {
+            gadgetData = loadGadgetData(uuid);
+            loadedGadgets.put(uuid, gadgetData);
+        }
+        gadgetData.lastAccess = Util.getMillis();
+        return gadgetData;
+    }
+
+    private void markDirty(GadgetData gadgetData) {
+        gadgetData.dirty = true;
+        this.setDirty();
+    }
+
+    private void setCopyPaste(GadgetData gadgetData, StateRegion stateRegion) {
+        gadgetData.copyPaste = stateRegion;
+        gadgetData.copyPasteDirty = true;
+        this.setDirty();
     }
 
     public boolean addToRedprints(UUID uuid, String name) {
         if (redprintLookup.containsKey(uuid)) return false;
         if (redprintLookup.containsValue(name)) return false;
         redprintLookup.put(uuid, name);
+        this.setDirty();
         return true;
     }
 
@@ -47,8 +156,10 @@ public class BG2Data extends SavedData {
         if (redprintLookup.containsValue(name)) {
             UUID uuid = redprintLookup.inverse().get(name);
             redprintLookup.remove(uuid);
-            copyPasteLookup.remove(uuid);
-            teMap.remove(uuid);
+            GadgetData gadgetData = getGadgetData(uuid);
+            setCopyPaste(gadgetData, null);
+            gadgetData.teMap = null;
+            markDirty(gadgetData);
             return true;
         }
         return false;
@@ -65,94 +176,168 @@ public class BG2Data extends SavedData {
     }
 
     public boolean containsUndoList(UUID uuid) {
-        return undoList.containsKey(uuid);
+        return getGadgetData(uuid).undoList != null;
     }
 
-    public void addToUndoList(UUID uuid, ArrayList<StatePos> list, Level level) {
-        undoList.put(uuid, list);
-        this.setDirty();
+    public void addToUndoList(UUID uuid, BlockBuffer list, Level level) {
+        GadgetData gadgetData = getGadgetData(uuid);
+        gadgetData.undoList = list;
+        markDirty(gadgetData);
     }
 
     public void removeFromUndoList(UUID uuid) {
-        undoList.remove(uuid);
-        this.setDirty();
+        GadgetData gadgetData = getGadgetData(uuid);
+        gadgetData.undoList = null;
+        markDirty(gadgetData);
     }
 
     public void addToCopyPaste(UUID uuid, ArrayList<StatePos> list) {
-        copyPasteLookup.put(uuid, list);
-        this.setDirty();
+        setCopyPaste(getGadgetData(uuid), StateRegion.of(BlockBuffer.of(list)));
+    }
+
+    /**
+     * Stores a buffer that may still be changing (Like a running cut), it's only encoded when it's next read or saved
+     */
+    public void addToCopyPaste(UUID uuid, BlockBuffer blockBuffer) {
+        setCopyPaste(getGadgetData(uuid), StateRegion.lazyOf(blockBuffer));
+    }
+
+    /**
+     * Points targetUUID at the same copy data as sourceUUID. Encoded regions never change, so they can be shared instead of copied - a running cut's
+     * region still follows its live buffer though, so it's encoded first to share what it holds right now
+     */
+    public void copyCopyPaste(UUID sourceUUID, UUID targetUUID) {
+        StateRegion stateRegion = getGadgetData(sourceUUID).copyPaste;
+        if (stateRegion != null)
+            stateRegion.ensureEncoded();
+        setCopyPaste(getGadgetData(targetUUID), stateRegion == null ? StateRegion.of(null) : stateRegion);
     }
 
     public void addToTEMap(UUID uuid, ArrayList<TagPos> list) {
-        teMap.put(uuid, list);
-        this.setDirty();
+        GadgetData gadgetData = getGadgetData(uuid);
+        gadgetData.teMap = list;
+        markDirty(gadgetData);
     }
 
     public ArrayList<StatePos> getCopyPasteList(UUID uuid, boolean remove) {
-        ArrayList<StatePos> returnList = copyPasteLookup.get(uuid);
-        if (remove) {
-            returnList = copyPasteLookup.remove(uuid);
-            this.setDirty();
-        }
-        return returnList;
+        StateRegion stateRegion = getCopyPasteRegion(uuid, remove);
+        return stateRegion == null ? null : stateRegion.toBlockBuffer().toStatePosList();
+    }
+
+    public BlockBuffer getCopyPasteBuffer(UUID uuid, boolean remove) {
+        StateRegion stateRegion = getCopyPasteRegion(uuid, remove);
+        return stateRegion == null ? new BlockBuffer() : stateRegion.toBlockBuffer();
+    }
+
+    public StateRegion getCopyPasteRegion(UUID uuid, boolean remove) {
+        GadgetData gadgetData = getGadgetData(uuid);
+        StateRegion returnRegion = gadgetData.copyPaste;
+        if (remove)
+            setCopyPaste(gadgetData, null);
+        return returnRegion;
     }
 
     public CompoundTag getCopyPasteListAsNBTMap(UUID uuid, boolean remove) {
-        return statePosListToNBTMapArray(getCopyPasteList(uuid, remove));
+        StateRegion stateRegion = getCopyPasteRegion(uuid, remove);
+        return stateRegion == null ? new CompoundTag() : stateRegion.toNBT();
     }
 
-    public ArrayList<StatePos> peekUndoList(UUID uuid) {
-        ArrayList<StatePos> posList = undoList.get(uuid);
-        this.setDirty();
-        return posList;
+    public BlockBuffer peekUndoList(UUID uuid) {
+        GadgetData gadgetData = getGadgetData(uuid);
+        markDirty(gadgetData); //Callers may change the list they get back
+        return gadgetData.undoList;
     }
 
-    public ArrayList<StatePos> popUndoList(UUID uuid) {
-        ArrayList<StatePos> posList = undoList.remove(uuid);
-        this.setDirty();
+    public BlockBuffer popUndoList(UUID uuid) {
+        GadgetData gadgetData = getGadgetData(uuid);
+        BlockBuffer posList = gadgetData.undoList;
+        gadgetData.undoList = null;
+        markDirty(gadgetData);
         return posList;
     }
 
     public ArrayList<TagPos> peekTEMap(UUID uuid) {
-        ArrayList<TagPos> tagList = teMap.get(uuid);
-        return tagList;
+        return getGadgetData(uuid).teMap;
     }
 
     public ArrayList<TagPos> getTEMap(UUID uuid) {
-        ArrayList<TagPos> tagList = teMap.remove(uuid);
-        this.setDirty();
+        GadgetData gadgetData = getGadgetData(uuid);
+        ArrayList<TagPos> tagList = gadgetData.teMap;
+        gadgetData.teMap = null;
+        markDirty(gadgetData);
         return tagList;
     }
 
+    /**
+     * Keeps a reference to the reservation, which is written out as it is at each save. Call setDirty() whenever it changes
+     */
+    public void addReservation(UUID buildUUID, PendingRefund pendingRefund) {
+        reservations.put(buildUUID, pendingRefund);
+        this.setDirty();
+    }
+
+    public void removeReservation(UUID buildUUID) {
+        if (reservations.remove(buildUUID) != null)
+            this.setDirty();
+    }
+
+    /**
+     * Removes and returns this player's reservations that don't belong to a running build
+     */
+    public ArrayList<PendingRefund> takeOrphanedReservations(UUID playerUUID, Predicate<UUID> isRunning) {
+        ArrayList<PendingRefund> orphaned = new ArrayList<>();
+        Iterator<Map.Entry<UUID, PendingRefund>> iterator = reservations.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<UUID, PendingRefund> entry = iterator.next();
+            if (entry.getValue().playerUUID().equals(playerUUID) && !isRunning.test(entry.getKey())) {
+                orphaned.add(entry.getValue());
+                iterator.remove();
+            }
+        }
+        if (!orphaned.isEmpty())
+            this.setDirty();
+        return orphaned;
+    }
+
     public static CompoundTag statePosListToNBTMapArray(ArrayList<StatePos> list) {
+        if (list == null) return new CompoundTag();
+        return blockBufferToNBTMapArray(BlockBuffer.of(list));
+    }
+
+    /**
+     * Writes the original format, one int per position. Templates (Clipboard JSON) use this so they stay readable by older versions of the mod
+     */
+    public static CompoundTag blockBufferToNBTMapArray(BlockBuffer blockBuffer) {
         CompoundTag tag = new CompoundTag();
-        if (list == null || list.isEmpty()) return tag;
-        ArrayList<BlockState> blockStateMap = StatePos.getBlockStateMap(list);
-        ListTag blockStateMapList = StatePos.getBlockStateNBT(blockStateMap);
-        int[] blocklist = new int[list.size()];
-        final int[] counter = {0};
-        BlockPos start = list.get(0).pos;
-        BlockPos end = list.get(list.size() - 1).pos;
-        AABB aabb = VecHelpers.aabbFromBlockPos(start, end);
-
-        Map<BlockPos, BlockState> blockStateByPos = list.stream()
-                .collect(Collectors.toMap(e -> e.pos, e -> e.state));
-
-        BlockPos.betweenClosedStream(aabb).map(BlockPos::immutable).forEach(pos -> {
-            BlockState blockState = blockStateByPos.get(pos);
-            blocklist[counter[0]++] = blockStateMap.indexOf(blockState);
-        });
-        /*for (StatePos statePos : list) {
-            blocklist[k] = blockStateMap.indexOf(statePos.state);
-            k++;
-        }*/
+        if (blockBuffer == null || blockBuffer.isEmpty()) return tag;
+        BlockPos start = blockBuffer.getPos(0);
+        BlockPos end = blockBuffer.getPos(blockBuffer.size() - 1);
         tag.put("startpos", writeBlockPos(start));
         tag.put("endpos", writeBlockPos(end));
-        tag.put("blockstatemap", blockStateMapList);
-        tag.putIntArray("statelist", blocklist); //Todo - Short Array?
+        tag.put("blockstatemap", blockBuffer.getPalette().toNBT());
+        tag.putIntArray("statelist", getStateIndexes(blockBuffer, start, end));
         return tag;
     }
 
+    /**
+     * Walks the area between start and end in BlockPos.betweenClosed order, and returns the palette index of each position (-1 if we have nothing there)
+     */
+    private static int[] getStateIndexes(BlockBuffer blockBuffer, BlockPos start, BlockPos end) {
+        int[] blocklist = new int[blockBuffer.size()];
+        int counter = 0;
+
+        Long2IntOpenHashMap stateIdByPos = new Long2IntOpenHashMap(blockBuffer.size());
+        stateIdByPos.defaultReturnValue(-1);
+        for (int i = 0; i < blockBuffer.size(); i++)
+            stateIdByPos.put(blockBuffer.getPosLong(i), blockBuffer.getStateId(i));
+
+        for (BlockPos pos : BlockPos.betweenClosed(start, end)) {
+            if (counter >= blocklist.length) break;
+            blocklist[counter++] = stateIdByPos.get(pos.asLong());
+        }
+        return blocklist;
+    }
+
     /**
      * Something Changed in NBTUtils.ReadBlockPos that broke templates, so i made the below as a workaround
      */
@@ -171,59 +356,171 @@ public class BG2Data extends SavedData {
     }
 
     public static ArrayList<StatePos> statePosListFromNBTMapArray(CompoundTag tag) {
-        ArrayList<StatePos> statePosList = new ArrayList<>();
-        if (!tag.contains("blockstatemap") || !tag.contains("statelist")) return statePosList;
-        ArrayList<BlockState> blockStateMap = StatePos.getBlockStateMapFromNBT(tag.getList("blockstatemap", Tag.TAG_COMPOUND));
-        BlockPos start = readBlockPos(tag, "startpos");
-        BlockPos end = readBlockPos(tag, "endpos");
-        AABB aabb = VecHelpers.aabbFromBlockPos(start, end);
-        int[] blocklist = tag.getIntArray("statelist");
-        final int[] counter = {0};
-        BlockPos.betweenClosedStream(aabb).map(BlockPos::immutable).forEach(pos -> {
-            int blockStateLookup = blocklist[counter[0]++];
-            BlockState blockState = blockStateMap.get(blockStateLookup);
-            statePosList.add(new StatePos(blockState, pos));
-        });
-        return statePosList;
+        return blockBufferFromNBTMapArray(tag).toStatePosList();
+    }
+
+    /**
+     * Reads any version of the copy data format, see StateRegion
+     */
+    public static BlockBuffer blockBufferFromNBTMapArray(CompoundTag tag) {
+        return StateRegion.fromNBT(tag).toBlockBuffer();
+    }
+
+    private Path getGadgetFile(UUID uuid) {
+        return storageDir.resolve("gadgets").resolve(uuid + ".dat");
+    }
+
+    private Path getCopyPasteFile(String hash) {
+        return storageDir.resolve("copies").resolve(hash + ".dat");
+    }
+
+    private static CompoundTag readFile(Path file) {
+        if (!Files.exists(file)) return null;
+        try {
+            return NbtIo.readCompressed(file, NbtAccounter.unlimitedHeap());
+        } catch (IOException e) {
+            LOGGER.error("Failed to read {}", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes to a temp file and moves it over the target, so a crash partway through a write leaves the old file intact rather than a truncated one
+     */
+    private static void writeFile(Path file, CompoundTag tag) {
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            NbtIo.writeCompressed(tag, tempFile);
+            try {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Failed to write {}", file, e);
+            deleteFile(tempFile);
+        }
+    }
+
+    private static void deleteFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOGGER.error("Failed to delete {}", file, e);
+        }
+    }
+
+    /**
+     * Lists the gadget files once, for indexes written before they kept track of them
+     */
+    private HashSet<UUID> scanGadgetFiles() {
+        HashSet<UUID> uuids = new HashSet<>();
+        Path gadgetDir = storageDir.resolve("gadgets");
+        if (!Files.isDirectory(gadgetDir)) return uuids;
+        try (Stream<Path> files = Files.list(gadgetDir)) {
+            files.forEach(file -> {
+                String name = file.getFileName().toString();
+                if (!name.endsWith(".dat")) return;
+                try {
+                    uuids.add(UUID.fromString(name.substring(0, name.length() - 4)));
+                } catch (IllegalArgumentException e) {
+                    //Not one of ours
+                }
+            });
+        } catch (IOException e) {
+            LOGGER.error("Failed to list {}", gadgetDir, e);
+        }
+        return uuids;
+    }
+
+    private GadgetData loadGadgetData(UUID uuid) {
+        GadgetData gadgetData = new GadgetData();
+        CompoundTag tag = gadgetFiles.contains(uuid) ? readFile(getGadgetFile(uuid)) : null;
+        if (tag != null)
+            gadgetData.readTag(tag);
+        String hash = copyPasteHashes.get(uuid);
+        if (hash != null)
+            gadgetData.copyPaste = loadRegion(hash);
+        return gadgetData;
+    }
+
+    private StateRegion loadRegion(String hash) {
+        WeakReference<StateRegion> reference = loadedRegions.get(hash);
+        StateRegion stateRegion = reference == null ? null : reference.get();
+        if (stateRegion != null) return stateRegion;
+        CompoundTag tag = readFile(getCopyPasteFile(hash));
+        if (tag == null) return null;
+        stateRegion = StateRegion.fromNBT(tag);
+        loadedRegions.put(hash, new WeakReference<>(stateRegion));
+        return stateRegion;
+    }
+
+    /**
+     * Works out the new content hash of a gadget's copy data, writing a file for it if no other gadget uses the same data yet. If nothing uses the old one anymore
+     * its file is only deleted on the next save, since the index we're about to write is the first one that doesn't point at it
+     */
+    private void updateCopyPasteFile(UUID uuid, GadgetData gadgetData) {
+        String newHash = gadgetData.copyPaste == null ? null : gadgetData.copyPaste.getContentHash();
+        String oldHash = newHash == null ? copyPasteHashes.remove(uuid) : copyPasteHashes.put(uuid, newHash);
+        if (Objects.equals(oldHash, newHash)) return;
+        if (newHash != null) {
+            StateRegion sharedRegion = loadRegion(newHash);
+            if (sharedRegion != null) {
+                gadgetData.copyPaste = sharedRegion; //Identical copies made separately share one region in memory
+            } else {
+                writeFile(getCopyPasteFile(newHash), gadgetData.copyPaste.toNBT());
+                loadedRegions.put(newHash, new WeakReference<>(gadgetData.copyPaste));
+            }
+            copyPasteRefCounts.addTo(newHash, 1);
+        }
+        if (oldHash != null && copyPasteRefCounts.addTo(oldHash, -1) <= 1) {
+            copyPasteRefCounts.removeInt(oldHash);
+            loadedRegions.remove(oldHash);
+            unreferencedHashes.add(oldHash);
+        }
     }
 
     @Override
     public CompoundTag save(CompoundTag nbt, HolderLookup.Provider provider) {
-        ListTag undoTagList = new ListTag();
-        for (Map.Entry<UUID, ArrayList<StatePos>> entry : undoList.entrySet()) {
-            CompoundTag tempTag = new CompoundTag();
-            tempTag.putUUID("uuid", entry.getKey());
-            ListTag tempList = new ListTag();
-            for (StatePos statePos : entry.getValue()) {
-                tempList.add(statePos.getTag());
+        //The last save wrote an index without these, so they're safe to delete now - unless a gadget has since copied the same data again
+        for (String hash : unreferencedHashes) {
+            if (!copyPasteRefCounts.containsKey(hash))
+                deleteFile(getCopyPasteFile(hash));
+        }
+        unreferencedHashes.clear();
+
+        //Only write the gadgets that actually changed
+        for (Map.Entry<UUID, GadgetData> entry : loadedGadgets.entrySet()) {
+            GadgetData gadgetData = entry.getValue();
+            if (gadgetData.copyPasteDirty) {
+                updateCopyPasteFile(entry.getKey(), gadgetData);
+                gadgetData.copyPasteDirty = false;
+            }
+            if (gadgetData.dirty) {
+                if (gadgetData.isEmpty()) {
+                    if (gadgetFiles.remove(entry.getKey()))
+                        deleteFile(getGadgetFile(entry.getKey()));
+                } else {
+                    writeFile(getGadgetFile(entry.getKey()), gadgetData.getTag());
+                    gadgetFiles.add(entry.getKey());
+                }
+                gadgetData.dirty = false;
             }
-            tempTag.put("stateposlist", tempList);
-            undoTagList.add(tempTag);
         }
-        nbt.put("undolist", undoTagList);
+        long now = Util.getMillis();
+        loadedGadgets.values().removeIf(gadgetData -> now - gadgetData.lastAccess > IDLE_EVICT_MILLIS);
+        loadedRegions.values().removeIf(reference -> reference.get() == null);
 
         ListTag copyPasteTag = new ListTag();
-        for (Map.Entry<UUID, ArrayList<StatePos>> entry : copyPasteLookup.entrySet()) {
+        for (Map.Entry<UUID, String> entry : copyPasteHashes.entrySet()) {
             CompoundTag tempTag = new CompoundTag();
             tempTag.putUUID("uuid", entry.getKey());
-            tempTag.put("stateposlist", statePosListToNBTMapArray(entry.getValue()));
+            tempTag.putString("hash", entry.getValue());
             copyPasteTag.add(tempTag);
         }
         nbt.put("copypaste", copyPasteTag);
 
-        ListTag teMapTag = new ListTag();
-        for (Map.Entry<UUID, ArrayList<TagPos>> entry : teMap.entrySet()) {
-            CompoundTag tempTag = new CompoundTag();
-            tempTag.putUUID("uuid", entry.getKey());
-            ListTag tempList = new ListTag();
-            for (TagPos tagPos : entry.getValue()) {
-                tempList.add(tagPos.getTag());
-            }
-            tempTag.put("temaplist", tempList);
-            teMapTag.add(tempTag);
-        }
-        nbt.put("temaptag", teMapTag);
-
         ListTag redprintTag = new ListTag();
         for (Map.Entry<UUID, String> entry : redprintLookup.entrySet()) {
             CompoundTag tempTag = new CompoundTag();
@@ -232,41 +529,97 @@ public class BG2Data extends SavedData {
             redprintTag.add(tempTag);
         }
         nbt.put("redprinttag", redprintTag);
+
+        ListTag reservationTag = new ListTag();
+        for (Map.Entry<UUID, PendingRefund> entry : reservations.entrySet()) {
+            PendingRefund pendingRefund = entry.getValue();
+            if (pendingRefund.reservation().isEmpty()) continue;
+            CompoundTag tempTag = new CompoundTag();
+            tempTag.putUUID("uuid", entry.getKey());
+            tempTag.putUUID("player", pendingRefund.playerUUID());
+            if (pendingRefund.boundPos() != null)
+                GlobalPos.CODEC.encodeStart(NbtOps.INSTANCE, pendingRefund.boundPos()).result().ifPresent(tag -> tempTag.put("boundpos", tag));
+            tempTag.putInt("direction", pendingRefund.direction());
+            tempTag.put("items", pendingRefund.reservation().toNBT(provider));
+            reservationTag.add(tempTag);
+        }
+        nbt.put("reservations", reservationTag);
+
+        ListTag unreferencedTag = new ListTag();
+        for (String hash : unreferencedHashes)
+            unreferencedTag.add(StringTag.valueOf(hash));
+        nbt.put("unreferenced", unreferencedTag);
+
+        ListTag gadgetFilesTag = new ListTag();
+        for (UUID uuid : gadgetFiles)
+            gadgetFilesTag.add(NbtUtils.createUUID(uuid));
+        nbt.put("gadgetfiles", gadgetFilesTag);
         return nbt;
     }
 
+    private static BlockBuffer readUndoList(ListTag statePosList) {
+        BlockBuffer tempList = new BlockBuffer(statePosList.size());
+        for (int j = 0; j < statePosList.size(); j++) {
+            StatePos statePos = new StatePos(statePosList.getCompound(j));
+            tempList.add(statePos.state, statePos.pos);
+        }
+        return tempList;
+    }
+
+    private static ArrayList<TagPos> readTEMap(ListTag temaplistTag) {
+        ArrayList<TagPos> tagPosList = new ArrayList<>();
+        for (int j = 0; j < temaplistTag.size(); j++) {
+            TagPos tagPos = new TagPos(temaplistTag.getCompound(j));
+            tagPosList.add(tagPos);
+        }
+        return tagPosList;
+    }
+
     public static BG2Data readNbt(CompoundTag nbt, HolderLookup.Provider provider) {
-        HashMap<UUID, ArrayList<StatePos>> undoList = new HashMap<>();
+        //Older versions kept everything in this one file - anything found here is loaded into memory and marked dirty, so the next save moves it into the new files
+        HashMap<UUID, GadgetData> migrated = new HashMap<>();
         ListTag undoTagList = nbt.getList("undolist", Tag.TAG_COMPOUND);
         for (int i = 0; i < undoTagList.size(); i++) {
             UUID uuid = undoTagList.getCompound(i).getUUID("uuid");
-            ListTag statePosList = undoTagList.getCompound(i).getList("stateposlist", CompoundTag.TAG_COMPOUND);
-            ArrayList<StatePos> tempList = new ArrayList<>();
-            for (int j = 0; j < statePosList.size(); j++) {
-                tempList.add(new StatePos(statePosList.getCompound(j)));
-            }
-            undoList.put(uuid, tempList);
+            GadgetData gadgetData = migrated.computeIfAbsent(uuid, k -> new GadgetData());
+            gadgetData.undoList = readUndoList(undoTagList.getCompound(i).getList("stateposlist", CompoundTag.TAG_COMPOUND));
+            gadgetData.dirty = true;
         }
 
-        HashMap<UUID, ArrayList<StatePos>> copyPaste = new HashMap<>();
-        ListTag copyPasteList = nbt.getList("copypaste", Tag.TAG_COMPOUND);
-        for (int i = 0; i < copyPasteList.size(); i++) {
-            UUID uuid = copyPasteList.getCompound(i).getUUID("uuid");
-            CompoundTag statePosList = copyPasteList.getCompound(i).getCompound("stateposlist");
-            copyPaste.put(uuid, statePosListFromNBTMapArray(statePosList));
-        }
-
-        HashMap<UUID, ArrayList<TagPos>> teMap = new HashMap<>();
         ListTag teMapListTag = nbt.getList("temaptag", Tag.TAG_COMPOUND);
         for (int i = 0; i < teMapListTag.size(); i++) {
             UUID uuid = teMapListTag.getCompound(i).getUUID("uuid");
-            ListTag temaplistTag = teMapListTag.getCompound(i).getList("temaplist", Tag.TAG_COMPOUND);
-            ArrayList<TagPos> tagPosList = new ArrayList<>();
-            for (int j = 0; j < temaplistTag.size(); j++) {
-                TagPos tagPos = new TagPos(temaplistTag.getCompound(j));
-                tagPosList.add(tagPos);
+            GadgetData gadgetData = migrated.computeIfAbsent(uuid, k -> new GadgetData());
+            gadgetData.teMap = readTEMap(teMapListTag.getCompound(i).getList("temaplist", Tag.TAG_COMPOUND));
+            gadgetData.dirty = true;
+        }
+
+        HashMap<String, StateRegion> copyPasteBlobs = new HashMap<>();
+        ListTag copyPasteBlobList = nbt.getList("copypasteblobs", Tag.TAG_COMPOUND);
+        for (int i = 0; i < copyPasteBlobList.size(); i++) {
+            CompoundTag blobTag = copyPasteBlobList.getCompound(i);
+            copyPasteBlobs.put(blobTag.getString("hash"), StateRegion.fromNBT(blobTag.getCompound("stateposlist")));
+        }
+
+        HashMap<UUID, String> copyPasteHashes = new HashMap<>();
+        ListTag copyPasteList = nbt.getList("copypaste", Tag.TAG_COMPOUND);
+        for (int i = 0; i < copyPasteList.size(); i++) {
+            CompoundTag copyPasteEntry = copyPasteList.getCompound(i);
+            UUID uuid = copyPasteEntry.getUUID("uuid");
+            StateRegion stateRegion;
+            if (copyPasteEntry.contains("hash")) {
+                String hash = copyPasteEntry.getString("hash");
+                stateRegion = copyPasteBlobs.get(hash);
+                if (stateRegion == null) { //The normal case - the data lives in its own file
+                    copyPasteHashes.put(uuid, hash);
+                    continue;
+                }
+            } else {
+                stateRegion = StateRegion.fromNBT(copyPasteEntry.getCompound("stateposlist"));
             }
-            teMap.put(uuid, tagPosList);
+            GadgetData gadgetData = migrated.computeIfAbsent(uuid, k -> new GadgetData());
+            gadgetData.copyPaste = stateRegion;
+            gadgetData.copyPasteDirty = true;
         }
 
         BiMap<UUID, String> redPrints = HashBiMap.create();
@@ -276,19 +629,48 @@ public class BG2Data extends SavedData {
             String name = redPrintsTag.getCompound(i).getString("name");
             redPrints.put(uuid, name);
         }
-        return new BG2Data(undoList, copyPaste, teMap, redPrints);
+
+        HashMap<UUID, PendingRefund> reservations = new HashMap<>();
+        ListTag reservationTag = nbt.getList("reservations", Tag.TAG_COMPOUND);
+        for (int i = 0; i < reservationTag.size(); i++) {
+            CompoundTag tempTag = reservationTag.getCompound(i);
+            GlobalPos boundPos = tempTag.contains("boundpos") ? GlobalPos.CODEC.parse(NbtOps.INSTANCE, tempTag.get("boundpos")).result().orElse(null) : null;
+            MaterialReservation reservation = MaterialReservation.fromNBT(tempTag.getList("items", Tag.TAG_COMPOUND), provider);
+            reservations.put(tempTag.getUUID("uuid"), new PendingRefund(tempTag.getUUID("player"), boundPos, tempTag.getInt("direction"), reservation));
+        }
+
+        ArrayList<String> unreferencedHashes = new ArrayList<>();
+        ListTag unreferencedTag = nbt.getList("unreferenced", Tag.TAG_STRING);
+        for (int i = 0; i < unreferencedTag.size(); i++)
+            unreferencedHashes.add(unreferencedTag.getString(i));
+
+        HashSet<UUID> gadgetFiles = null; //Older indexes didn't track these, get() lists the directory instead
+        if (nbt.contains("gadgetfiles")) {
+            gadgetFiles = new HashSet<>();
+            ListTag gadgetFilesTag = nbt.getList("gadgetfiles", Tag.TAG_INT_ARRAY);
+            for (Tag tag : gadgetFilesTag)
+                gadgetFiles.add(NbtUtils.loadUUID(tag));
+        }
+
+        long now = Util.getMillis();
+        for (GadgetData gadgetData : migrated.values())
+            gadgetData.lastAccess = now;
+        return new BG2Data(redPrints, copyPasteHashes, migrated, reservations, unreferencedHashes, gadgetFiles);
     }
 
     public static BG2Data get(ServerLevel world) {
         BG2Data bg2Data = world.getDataStorage().computeIfAbsent(
                 new SavedData.Factory<BG2Data>(
-                        () -> new BG2Data(new HashMap<>(), new HashMap<>(), new HashMap<>(), HashBiMap.create()),
+                        () -> new BG2Data(HashBiMap.create(), new HashMap<>(), new HashMap<>(), new HashMap<>(), new ArrayList<>(), null),
                         BG2Data::readNbt
                 ),
                 NAME
         );
 
-        bg2Data.setDirty();
+        if (bg2Data.storageDir == null)
+            bg2Data.storageDir = world.getServer().getWorldPath(LevelResource.ROOT).resolve("data").resolve(NAME);
+        if (bg2Data.gadgetFiles == null)
+            bg2Data.gadgetFiles = bg2Data.scanGadgetFiles();
         return bg2Data;
     }
 }
@@ -1,22 +1,25 @@
 package com.direwolf20.buildinggadgets2.common.worlddata;
 
 import com.direwolf20.buildinggadgets2.common.network.data.RequestCopyDataPayload;
+import com.direwolf20.buildinggadgets2.common.network.data.SendCopyDataPayload;
 import com.direwolf20.buildinggadgets2.util.GadgetNBT;
-import com.direwolf20.buildinggadgets2.util.datatypes.StatePos;
+import com.direwolf20.buildinggadgets2.util.datatypes.BlockBuffer;
+import com.direwolf20.buildinggadgets2.util.datatypes.StateRegion;
 import net.minecraft.world.item.ItemStack;
 import net.neoforged.neoforge.network.PacketDistributor;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.UUID;
 
 public class BG2DataClient {
-    private static final HashMap<UUID, ArrayList<StatePos>> copyPasteLookup = new HashMap<>();
+    private static final HashMap<UUID, BlockBuffer> copyPasteLookup = new HashMap<>();
     private static final HashMap<UUID, UUID> copyPasteCache = new HashMap<>();
+    private static final HashMap<UUID, UUID> dataVersions = new HashMap<>(); //GadgetUUID -> Random UUID that changes whenever the lookup list changes, including partial updates
+    private static final HashMap<UUID, IncomingCopy> incomingCopies = new HashMap<>(); //GadgetUUID -> Copy data transfer in progress
     public static boolean awaitingUpdate = false;
     public static int updateTimer = 0;
 
-    public static void updateLookupFromNBT(UUID gadgetUUID, UUID copyUUID, ArrayList<StatePos> list) {
+    public static void updateLookupFromNBT(UUID gadgetUUID, UUID copyUUID, BlockBuffer list) {
         if (copyPasteLookup.containsKey(gadgetUUID))
             copyPasteLookup.remove(gadgetUUID);
         copyPasteLookup.put(gadgetUUID, list); //Store GadgetUUID -> list of blocks
@@ -24,12 +27,50 @@ public class BG2DataClient {
         if (copyPasteCache.containsKey(gadgetUUID))
             copyPasteCache.remove(gadgetUUID);
         copyPasteCache.put(gadgetUUID, copyUUID); //Store GadgetUUID -> copyUUID (Where copyUUID is a unique id set each time we copy a new set of blocks)
+        dataVersions.put(gadgetUUID, UUID.randomUUID());
 
         //Reset the update timers
         updateTimer = 0;
         awaitingUpdate = false;
     }
 
+    /**
+     * Copy data arrives in pieces (See CopyDataStreamer) - decode each one as it comes in, and publish what we have so far for the preview.
+     * Each publish makes the preview rebuild everything received so far, so we only publish once the copy has doubled in size since the last one,
+     * which keeps the total rebuild work linear in the size of the copy
+     */
+    public static void receiveChunk(SendCopyDataPayload payload) {
+        UUID gadgetUUID = payload.gadgetUUID();
+        if (payload.sequence() == 0)
+            incomingCopies.put(gadgetUUID, new IncomingCopy(payload.transferID(), payload.copyUUID(), new StateRegion.Reader(payload.tag().getCompound("header"))));
+
+        IncomingCopy incomingCopy = incomingCopies.get(gadgetUUID);
+        if (incomingCopy == null || incomingCopy.transferID != payload.transferID() || incomingCopy.nextSequence != payload.sequence()) {
+            incomingCopies.remove(gadgetUUID); //Missed a piece, or this is left over from an older transfer - drop it and let the update timer request it again
+            return;
+        }
+        incomingCopy.reader.readRuns(payload.tag(), incomingCopy.statePosList);
+        incomingCopy.nextSequence++;
+        updateTimer = 0; //Still receiving, so don't ask the server again yet
+
+        if (incomingCopy.nextSequence >= payload.totalChunks()) {
+            incomingCopies.remove(gadgetUUID);
+            updateLookupFromNBT(gadgetUUID, incomingCopy.copyUUID, incomingCopy.statePosList);
+        } else if (incomingCopy.statePosList.size() >= incomingCopy.nextPublishSize) {
+            copyPasteLookup.put(gadgetUUID, incomingCopy.statePosList.view()); //Only sees what we have now, and the buffer only ever appends, so nothing needs copying
+            dataVersions.put(gadgetUUID, UUID.randomUUID());
+            incomingCopy.nextPublishSize = Math.max(incomingCopy.statePosList.size() * 2, 1);
+        }
+    }
+
+    /**
+     * True if we're partway through receiving the copy data this gadget currently holds, in which case the preview can render what we have so far
+     */
+    public static boolean isReceiving(ItemStack gadget) {
+        IncomingCopy incomingCopy = incomingCopies.get(GadgetNBT.getUUID(gadget));
+        return incomingCopy != null && GadgetNBT.hasCopyUUID(gadget) && incomingCopy.copyUUID.equals(GadgetNBT.getCopyUUID(gadget));
+    }
+
     public static boolean isClientUpToDate(ItemStack gadget) {
         UUID gadgetUUID = GadgetNBT.getUUID(gadget);
         if (!GadgetNBT.hasCopyUUID(gadget))
@@ -38,6 +79,8 @@ public class BG2DataClient {
         UUID copyPasteUUIDCache = copyPasteCache.get(gadgetUUID); //Get the CopyUUID of this gadget thats cached here
         if (copyPasteUUIDCache != null && copyPasteUUIDCache.equals(copyUUID)) //If the Cache'd UUID of the copy/paste matches whats on the item, we don't need to rebuild the render
             return true; //No need to rebuild cache because its up to date!
+        if (isReceiving(gadget))
+            return false; //Its on the way already, no need to ask again
         //This classes data is not up to date - request it from server
         if (awaitingUpdate && updateTimer < 100) { //If we already requested an update from the server, don't try again for a few seconds
             updateTimer++;
@@ -52,11 +95,30 @@ public class BG2DataClient {
     }
 
 
-    public static ArrayList<StatePos> getLookupFromUUID(UUID gadgetUUID) {
+    public static BlockBuffer getLookupFromUUID(UUID gadgetUUID) {
         return copyPasteLookup.get(gadgetUUID);
     }
 
     public static UUID getCopyUUID(UUID gadgetUUID) {
         return copyPasteCache.get(gadgetUUID);
     }
+
+    public static UUID getDataVersion(UUID gadgetUUID) {
+        return dataVersions.get(gadgetUUID);
+    }
+
+    private static class IncomingCopy {
+        private final int transferID;
+        private final UUID copyUUID;
+        private final StateRegion.Reader reader;
+        private final BlockBuffer statePosList = new BlockBuffer();
+        private int nextSequence = 0;
+        private int nextPublishSize = 0;
+
+        private IncomingCopy(int transferID, UUID copyUUID, StateRegion.Reader reader) {
+            this.transferID = transferID;
+            this.copyUUID = copyUUID;
+            this.reader = reader;
+        }
+    }
 }
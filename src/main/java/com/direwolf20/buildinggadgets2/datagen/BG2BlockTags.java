@@ -23,6 +23,7 @@ public class BG2BlockTags extends BlockTagsProvider {
     }
 
     public static final TagKey<Block> BG2DENY = BlockTags.create(ResourceLocation.fromNamespaceAndPath(BuildingGadgets2.MODID, "deny"));
+    public static final TagKey<Block> BG2NO_DROP_CACHE = BlockTags.create(ResourceLocation.fromNamespaceAndPath(BuildingGadgets2.MODID, "no_drop_cache")); //Blocks whose required items depend on their position or block entity
 
     @Override
     protected void addTags(HolderLookup.Provider provider) {
@@ -34,6 +35,9 @@ public class BG2BlockTags extends BlockTagsProvider {
                 .addTag(BlockTags.BEDS)
                 .addTag(BlockTags.PORTALS)
                 .addTag(BlockTags.DOORS);
+        tag(BG2NO_DROP_CACHE)
+                .add(Blocks.DECORATED_POT)
+                .addTag(BlockTags.BANNERS);
         /*tag(BlockTags.MINEABLE_WITH_PICKAXE)
                 .add(Registration.LaserNode.get())
                 .add(Registration.LaserConnector.get());*/
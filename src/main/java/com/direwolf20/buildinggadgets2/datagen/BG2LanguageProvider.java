@@ -37,6 +37,7 @@ public class BG2LanguageProvider extends LanguageProvider {
         add("buildinggadgets2.riseup", "Rise Up");
         add("buildinggadgets2.growup", "Grow Up");
         add("buildinggadgets2.snap", "The SNAP!");
+        add("buildinggadgets2.instant", "Instant");
         add("buildinggadgets2.voidwarning", "WARNING: Voids Drops of removed blocks!!");
         add("buildinggadgets2.templatename", "Name: %s");
 
@@ -129,6 +130,7 @@ public class BG2LanguageProvider extends LanguageProvider {
         add("buildinggadgets2.messages.anchorset", "Anchor Set to: ");
         add("buildinggadgets2.messages.overwritecut", "Tool already has cut data stored - click again to OVERWRITE this data");
         add("buildinggadgets2.messages.copyblocks", "Copied %d blocks");
+        add("buildinggadgets2.messages.copyprogress", "Copying... %d%%");
         add("buildinggadgets2.messages.cutblocks", "Cut %d blocks");
         add("buildinggadgets2.messages.range_set", "Range set to: %d");
         add("buildinggadgets2.messages.render_set", "Render Type set to: %s");
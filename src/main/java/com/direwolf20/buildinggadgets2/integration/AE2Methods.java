@@ -74,6 +74,27 @@ public class AE2Methods {
         }
     }
 
+    /**
+     * Takes up to count of an item, partial amounts are fine here. Returns how many we still need
+     */
+    public static int extractFromAE2(GlobalPos boundInventory, Player player, ItemStack itemStack, int count, List<ItemStack> extracted) {
+        Level level = getLevel(player.getServer(), boundInventory);
+        if (level == null) return count;
+        BlockEntity blockEntity = level.getBlockEntity(boundInventory.pos());
+        if (blockEntity == null) return count;
+        if (blockEntity instanceof IWirelessAccessPoint accessPoint) {
+            IGrid grid = accessPoint.getGrid();
+            if (grid == null) return count;
+            MEStorage networkInv = grid.getStorageService().getInventory();
+            AEItemKey itemKey = AEItemKey.of(itemStack);
+            int amountExtracted = (int) networkInv.extract(itemKey, count, Actionable.MODULATE, IActionSource.ofPlayer(player));
+            if (amountExtracted > 0)
+                extracted.add(itemKey.toStack(amountExtracted));
+            return count - amountExtracted;
+        }
+        return count;
+    }
+
     public static void checkAE2ForFluids(GlobalPos boundInventory, Player player, FluidStack fluidStack, boolean simulate) {
         Level level = getLevel(player.getServer(), boundInventory);
         if (level == null) return;
@@ -0,0 +1,136 @@
+package com.direwolf20.buildinggadgets2.integration;
+
+import appeng.api.config.Actionable;
+import appeng.api.implementations.blockentities.IWirelessAccessPoint;
+import appeng.api.networking.IGrid;
+import appeng.api.networking.security.IActionSource;
+import appeng.api.stacks.AEItemKey;
+import appeng.api.storage.MEStorage;
+import com.direwolf20.buildinggadgets2.util.BuildingUtils;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.core.GlobalPos;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.entity.BlockEntity;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static com.direwolf20.buildinggadgets2.util.BuildingUtils.getLevel;
+
+/**
+ * Takes items from an AE2 network for one build. The network's storage and item keys are looked up once rather than for every block,
+ * and items are extracted EXTRACT_CHUNK at a time into a buffer the following blocks take from. The buffer lasts for the whole build, and whatever's left
+ * goes back to the network with returnSurplus() when it ends. ServerBuildList saves the buffer in BG2Data whenever it changes (See takeDirty), like a
+ * MaterialReservation, so a crash mid build refunds it instead of losing it. Simulated removes only ever ask the network with Actionable.SIMULATE.
+ */
+public class AE2Session {
+    private static final int EXTRACT_CHUNK = 64;
+    private final GlobalPos boundInventory;
+    private final Reference2ObjectOpenHashMap<Item, AEItemKey> itemKeys = new Reference2ObjectOpenHashMap<>(); //Only for stacks without components, which is nearly all block drops
+    private final Object2LongOpenHashMap<AEItemKey> buffer = new Object2LongOpenHashMap<>(); //Extracted from the network but not used yet
+    private MEStorage networkInv;
+    private long resolvedAt = Long.MIN_VALUE;
+    private boolean dirty; //The buffer changed since takeDirty() was last called
+
+    public AE2Session(GlobalPos boundInventory) {
+        this.boundInventory = boundInventory;
+    }
+
+    private MEStorage getStorage(Player player) {
+        long gameTime = player.level().getGameTime();
+        if (gameTime != resolvedAt) { //Look the network up again once a tick, in case the access point was broken or moved to another grid
+            resolvedAt = gameTime;
+            networkInv = null;
+            Level level = getLevel(player.getServer(), boundInventory);
+            if (level == null) return null;
+            BlockEntity blockEntity = level.getBlockEntity(boundInventory.pos());
+            if (blockEntity instanceof IWirelessAccessPoint accessPoint) {
+                IGrid grid = accessPoint.getGrid();
+                if (grid != null)
+                    networkInv = grid.getStorageService().getInventory();
+            }
+        }
+        return networkInv;
+    }
+
+    private AEItemKey getKey(ItemStack itemStack) {
+        if (!itemStack.isComponentsPatchEmpty()) return AEItemKey.of(itemStack);
+        return itemKeys.computeIfAbsent(itemStack.getItem(), k -> AEItemKey.of(itemStack));
+    }
+
+    /**
+     * Same as AE2Methods.checkAE2ForItems - each stack we can supply in full is removed from testArray
+     */
+    public void removeStacks(Player player, List<ItemStack> testArray, boolean simulate) {
+        Iterator<ItemStack> iterator = testArray.iterator();
+        while (iterator.hasNext()) {
+            ItemStack itemStack = iterator.next();
+            AEItemKey itemKey = getKey(itemStack);
+            long buffered = buffer.getLong(itemKey);
+            if (buffered < itemStack.getCount()) {
+                MEStorage storage = getStorage(player);
+                if (storage == null) continue;
+                if (simulate) { //Only ask the network - it's the caller's job to extract for real later
+                    if (buffered + storage.extract(itemKey, itemStack.getCount() - buffered, Actionable.SIMULATE, IActionSource.ofPlayer(player)) >= itemStack.getCount())
+                        iterator.remove();
+                    continue;
+                }
+                buffered += storage.extract(itemKey, Math.max(itemStack.getCount() - buffered, EXTRACT_CHUNK), Actionable.MODULATE, IActionSource.ofPlayer(player));
+                buffer.put(itemKey, buffered);
+                dirty = true;
+                if (buffered < itemStack.getCount()) continue; //I don't wanna do partial removes - because if you need 2 slabs and only have 1, i don't wanna place the half
+            }
+            if (!simulate) {
+                buffer.put(itemKey, buffered - itemStack.getCount());
+                dirty = true;
+            }
+            iterator.remove();
+        }
+    }
+
+    /**
+     * True if the buffer changed since the last call, and clears the flag
+     */
+    public boolean takeDirty() {
+        boolean wasDirty = dirty;
+        dirty = false;
+        return wasDirty;
+    }
+
+    /**
+     * What we've extracted but not used yet, as stacks (Possibly bigger than their max stack size) for saving with MaterialReservation.of()
+     */
+    public List<ItemStack> getBuffered() {
+        List<ItemStack> buffered = new ArrayList<>(buffer.size());
+        for (Object2LongMap.Entry<AEItemKey> entry : buffer.object2LongEntrySet()) {
+            if (entry.getLongValue() > 0)
+                buffered.add(entry.getKey().toStack((int) Math.min(entry.getLongValue(), Integer.MAX_VALUE)));
+        }
+        return buffered;
+    }
+
+    public void returnSurplus(Player player) {
+        if (buffer.isEmpty()) return;
+        resolvedAt = Long.MIN_VALUE;
+        MEStorage storage = getStorage(player);
+        for (Object2LongMap.Entry<AEItemKey> entry : buffer.object2LongEntrySet()) {
+            long remaining = entry.getLongValue();
+            if (remaining > 0 && storage != null)
+                remaining -= storage.insert(entry.getKey(), remaining, Actionable.MODULATE, IActionSource.ofPlayer(player));
+            int maxStackSize = entry.getKey().toStack().getMaxStackSize();
+            while (remaining > 0) { //The network is gone or full, give them to the player instead of voiding them
+                int amount = (int) Math.min(remaining, maxStackSize);
+                BuildingUtils.giveItemToPlayer(player, entry.getKey().toStack(amount), null, null);
+                remaining -= amount;
+            }
+        }
+        buffer.clear();
+        dirty = true;
+    }
+}
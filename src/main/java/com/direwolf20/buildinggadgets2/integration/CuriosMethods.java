@@ -1,5 +1,6 @@
 package com.direwolf20.buildinggadgets2.integration;
 
+import com.direwolf20.buildinggadgets2.util.InventoryIndex;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.ItemStack;
 import net.neoforged.neoforge.capabilities.Capabilities;
@@ -7,6 +8,7 @@ import net.neoforged.neoforge.fluids.FluidStack;
 import top.theillusivec4.curios.api.CuriosApi;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import static com.direwolf20.buildinggadgets2.util.BuildingUtils.*;
 
@@ -36,6 +38,32 @@ public class CuriosMethods {
         }));
     }
 
+    public static int extractItems(Player player, ItemStack itemStack, int count, List<ItemStack> extracted) {
+        var curios = CuriosApi.getCuriosInventory(player);
+        final int[] remaining = {count};
+        curios.ifPresent(iCuriosItemHandler -> iCuriosItemHandler.getCurios().forEach((id, stackHandler) -> {
+            for (int j = 0; j < stackHandler.getSlots() && remaining[0] > 0; j++) {
+                ItemStack itemInSlot = stackHandler.getStacks().getStackInSlot(j);
+                var itemStackCapability = itemInSlot.getCapability(Capabilities.ItemHandler.ITEM, null);
+                if (itemStackCapability != null)
+                    remaining[0] = extractFromHandler(itemStackCapability, itemStack, remaining[0], extracted);
+            }
+        }));
+        return remaining[0];
+    }
+
+    public static void indexInventory(Player player, InventoryIndex inventoryIndex) {
+        var curios = CuriosApi.getCuriosInventory(player);
+        curios.ifPresent(iCuriosItemHandler -> iCuriosItemHandler.getCurios().forEach((id, stackHandler) -> {
+            for (int j = 0; j < stackHandler.getSlots(); j++) {
+                ItemStack itemInSlot = stackHandler.getStacks().getStackInSlot(j);
+                var itemStackCapability = itemInSlot.getCapability(Capabilities.ItemHandler.ITEM, null);
+                if (itemStackCapability != null)
+                    inventoryIndex.indexBag(itemStackCapability, stackHandler.getStacks(), j, itemInSlot);
+            }
+        }));
+    }
+
     public static void countItemStacks(Player player, ItemStack itemStack, int[] counter) {
         var curiosOpt = CuriosApi.getCuriosInventory(player);
         curiosOpt.ifPresent(iCuriosItemHandler -> iCuriosItemHandler.getCurios().forEach((id, stackHandler) -> {
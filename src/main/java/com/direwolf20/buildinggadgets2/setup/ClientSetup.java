@@ -6,6 +6,7 @@ import com.direwolf20.buildinggadgets2.client.blockentityrenders.RenderBlockBER;
 import com.direwolf20.buildinggadgets2.client.events.EventKeyInput;
 import com.direwolf20.buildinggadgets2.client.events.RenderLevelLast;
 import com.direwolf20.buildinggadgets2.client.screen.TemplateManagerGUI;
+import com.direwolf20.buildinggadgets2.util.CollectCache;
 import net.neoforged.api.distmarker.Dist;
 import net.neoforged.bus.api.SubscribeEvent;
 import net.neoforged.fml.common.EventBusSubscriber;
@@ -19,6 +20,7 @@ import net.neoforged.neoforge.common.NeoForge;
 public class ClientSetup {
     public static void init(final FMLClientSetupEvent event) {
         NeoForge.EVENT_BUS.addListener(KeyBindings::onClientInput);
+        NeoForge.EVENT_BUS.addListener(CollectCache::onChunkLoad);
 
         //Register our Render Events Class
         NeoForge.EVENT_BUS.register(RenderLevelLast.class);
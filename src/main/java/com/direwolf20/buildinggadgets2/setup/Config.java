@@ -5,6 +5,8 @@ import net.neoforged.fml.ModContainer;
 import net.neoforged.fml.config.ModConfig;
 import net.neoforged.neoforge.common.ModConfigSpec;
 
+import java.util.List;
+
 public class Config {
     public static final ModConfigSpec.Builder CLIENT_BUILDER = new ModConfigSpec.Builder();
     public static final ModConfigSpec.Builder COMMON_BUILDER = new ModConfigSpec.Builder();
@@ -12,6 +14,8 @@ public class Config {
 
     public static final String CATEGORY_GENERAL = "general";
     public static final String CATEGORY_POWER = "power";
+    public static final String CATEGORY_AREA_LIMITS = "area_limits";
+    public static final String CATEGORY_PLACEMENT = "placement";
     public static final String SUBCATEGORY_BUILDINGGADGET = "building_gadget";
     public static final String SUBCATEGORY_EXCHANGINGGADGET = "exchanging_gadget";
     public static final String SUBCATEGORY_CUTPASTEGADGET = "cutpaste_gadget";
@@ -30,9 +34,17 @@ public class Config {
     public static ModConfigSpec.IntValue DESTRUCTIONGADGET_COST;
 
     public static ModConfigSpec.IntValue RAYTRACE_RANGE;
+    public static ModConfigSpec.IntValue BUILD_TICK_BUDGET_MIN;
+    public static ModConfigSpec.IntValue BUILD_TICK_BUDGET_MAX;
+
+    public static ModConfigSpec.ConfigValue<List<? extends Integer>> AREA_MAX_AXIS;
+    public static ModConfigSpec.ConfigValue<List<? extends Integer>> AREA_MAX_SIZE;
+    public static ModConfigSpec.IntValue COPY_JOB_THRESHOLD;
+    public static ModConfigSpec.IntValue COPY_JOB_CHUNKS_PER_TICK;
+    public static ModConfigSpec.BooleanValue FORCE_INSTANT_PLACEMENT;
 
     public static void register(ModContainer container) {
-        //registerServerConfigs();
+        registerServerConfigs(container);
         registerCommonConfigs(container);
         //registerClientConfigs();
     }
@@ -58,6 +70,13 @@ public class Config {
     private static void registerServerConfigs(ModContainer container) {
         //GeneratorConfig.registerServerConfig(SERVER_BUILDER);
         //PowergenConfig.registerServerConfig(SERVER_BUILDER);
+        SERVER_BUILDER.comment("Copy and Cut area limits").push(CATEGORY_AREA_LIMITS);
+        serverConfig();
+        SERVER_BUILDER.pop();
+
+        SERVER_BUILDER.comment("Placement settings").push(CATEGORY_PLACEMENT);
+        placementConfig();
+        SERVER_BUILDER.pop();
         container.registerConfig(ModConfig.Type.SERVER, SERVER_BUILDER.build());
     }
 
@@ -112,7 +131,23 @@ public class Config {
     }
 
     private static void serverConfig() {
+        AREA_MAX_AXIS = SERVER_BUILDER.comment("Maximum length of any one side of a Copy or Cut area, by permission level (0 = Normal players, 2+ = Operators). Missing levels use the last entry. Cut never goes past 500")
+                .defineList("maxAxis", List.of(500, 500, 1000, 1000, 1000), e -> e instanceof Integer i && i > 0);
+        AREA_MAX_SIZE = SERVER_BUILDER.comment("Maximum number of blocks in a Copy or Cut area, by permission level (0 = Normal players, 2+ = Operators). Missing levels use the last entry. Cut never goes past 100000")
+                .defineList("maxSize", List.of(100000, 100000, 1000000, 1000000, 1000000), e -> e instanceof Integer i && i > 0);
+        COPY_JOB_THRESHOLD = SERVER_BUILDER.comment("Copies larger than this many blocks read the world a few chunks per tick in the background, instead of all at once")
+                .defineInRange("copyJobThreshold", 100000, 1, Integer.MAX_VALUE);
+        COPY_JOB_CHUNKS_PER_TICK = SERVER_BUILDER.comment("How many chunk columns a background copy reads per tick")
+                .defineInRange("copyJobChunksPerTick", 16, 1, 1024);
+    }
 
+    private static void placementConfig() {
+        FORCE_INSTANT_PLACEMENT = SERVER_BUILDER.comment("Place every block with the Instant render type, whatever the player picked - skips the animated block entity per block, which is much cheaper on busy servers")
+                .define("forceInstantPlacement", false);
+        BUILD_TICK_BUDGET_MIN = SERVER_BUILDER.comment("Minimum time (in microseconds) per server tick shared by all active builds - used when the server is falling behind")
+                .defineInRange("buildTickBudgetMin", 1000, 1, 50000);
+        BUILD_TICK_BUDGET_MAX = SERVER_BUILDER.comment("Maximum time (in microseconds) per server tick shared by all active builds - used when the server has spare tick time")
+                .defineInRange("buildTickBudgetMax", 10000, 1, 50000);
     }
 
 }
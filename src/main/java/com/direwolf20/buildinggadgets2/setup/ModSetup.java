@@ -1,9 +1,13 @@
 package com.direwolf20.buildinggadgets2.setup;
 
 import com.direwolf20.buildinggadgets2.BuildingGadgets2;
+import com.direwolf20.buildinggadgets2.common.events.CopyCaptureJobs;
+import com.direwolf20.buildinggadgets2.common.events.CopyDataStreamer;
+import com.direwolf20.buildinggadgets2.common.events.RenderBlockTicker;
 import com.direwolf20.buildinggadgets2.common.events.ServerTickHandler;
 import com.direwolf20.buildinggadgets2.integration.AE2Integration;
 import com.direwolf20.buildinggadgets2.integration.AE2Methods;
+import com.direwolf20.buildinggadgets2.util.GadgetUtils;
 import net.minecraft.core.registries.Registries;
 import net.minecraft.network.chat.Component;
 import net.minecraft.world.item.CreativeModeTab;
@@ -18,6 +22,10 @@ import net.neoforged.neoforge.registries.DeferredRegister;
 public class ModSetup {
     public static void init(final FMLCommonSetupEvent event) {
         NeoForge.EVENT_BUS.register(ServerTickHandler.class);
+        NeoForge.EVENT_BUS.register(CopyDataStreamer.class);
+        NeoForge.EVENT_BUS.register(CopyCaptureJobs.class);
+        NeoForge.EVENT_BUS.register(RenderBlockTicker.class);
+        NeoForge.EVENT_BUS.addListener(GadgetUtils::onTagsUpdated);
         if (AE2Integration.isLoaded()) {
             AE2Methods.registerItems();
         }
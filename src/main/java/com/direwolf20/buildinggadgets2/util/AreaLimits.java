@@ -0,0 +1,75 @@
+package com.direwolf20.buildinggadgets2.util;
+
+import com.direwolf20.buildinggadgets2.setup.Config;
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.chat.Component;
+import net.minecraft.world.entity.player.Player;
+
+import java.util.List;
+
+/**
+ * Size limits for Copy and Cut areas, which depend on the player's permission level (See Config.AREA_MAX_AXIS and Config.AREA_MAX_SIZE)
+ */
+public class AreaLimits {
+    //Cut still queues its whole area on the server thread in one go (Copy has CopyCaptureJobs for that), so it never goes past the limits it always had
+    public static final int CUT_MAX_AXIS = 500;
+    public static final int CUT_MAX_SIZE = 100000;
+
+    private static int getPermissionLevel(Player player) {
+        for (int level = 4; level > 0; level--) {
+            if (player.hasPermissions(level))
+                return level;
+        }
+        return 0;
+    }
+
+    private static int getTier(List<? extends Integer> tiers, Player player) {
+        return tiers.get(Math.min(getPermissionLevel(player), tiers.size() - 1));
+    }
+
+    public static int getMaxAxis(Player player) {
+        return getTier(Config.AREA_MAX_AXIS.get(), player);
+    }
+
+    public static int getMaxSize(Player player) {
+        return getTier(Config.AREA_MAX_SIZE.get(), player);
+    }
+
+    /**
+     * The number of blocks between start and end, inclusive
+     */
+    public static long getSize(BlockPos start, BlockPos end) {
+        return (long) (Math.abs(end.getX() - start.getX()) + 1) * (Math.abs(end.getY() - start.getY()) + 1) * (Math.abs(end.getZ() - start.getZ()) + 1);
+    }
+
+    /**
+     * Checks the area between start and end is within this player's limits, telling them why not if it isn't
+     */
+    public static boolean checkArea(Player player, BlockPos start, BlockPos end) {
+        return checkArea(player, start, end, getMaxAxis(player), getMaxSize(player));
+    }
+
+    /**
+     * Same as checkArea, but never allows more than CUT_MAX_AXIS / CUT_MAX_SIZE
+     */
+    public static boolean checkCutArea(Player player, BlockPos start, BlockPos end) {
+        return checkArea(player, start, end, Math.min(getMaxAxis(player), CUT_MAX_AXIS), Math.min(getMaxSize(player), CUT_MAX_SIZE));
+    }
+
+    private static boolean checkArea(Player player, BlockPos start, BlockPos end, int maxAxis, int maxSize) {
+        int[] axisSizes = {Math.abs(end.getX() - start.getX()), Math.abs(end.getY() - start.getY()), Math.abs(end.getZ() - start.getZ())};
+        String[] axisNames = {"x", "y", "z"};
+        for (int i = 0; i < 3; i++) {
+            if (axisSizes[i] > maxAxis) {
+                player.displayClientMessage(Component.translatable("buildinggadgets2.messages.axistoolarge", axisNames[i], maxAxis, axisSizes[i]), false);
+                return false;
+            }
+        }
+        long size = getSize(start, end);
+        if (size > maxSize) {
+            player.displayClientMessage(Component.translatable("buildinggadgets2.messages.areatoolarge", maxSize, size), false);
+            return false;
+        }
+        return true;
+    }
+}
@@ -6,8 +6,10 @@ import com.direwolf20.buildinggadgets2.common.items.BaseGadget;
 import com.direwolf20.buildinggadgets2.common.items.GadgetBuilding;
 import com.direwolf20.buildinggadgets2.common.worlddata.BG2Data;
 import com.direwolf20.buildinggadgets2.integration.AE2Integration;
+import com.direwolf20.buildinggadgets2.integration.AE2Session;
 import com.direwolf20.buildinggadgets2.integration.CuriosIntegration;
 import com.direwolf20.buildinggadgets2.integration.CuriosMethods;
+import com.direwolf20.buildinggadgets2.util.datatypes.BlockBuffer;
 import com.direwolf20.buildinggadgets2.util.datatypes.StatePos;
 import com.direwolf20.buildinggadgets2.util.datatypes.TagPos;
 import net.minecraft.core.BlockPos;
@@ -242,12 +244,23 @@ public class BuildingUtils {
     }
 
     public static boolean removeStacksFromInventory(Player player, List<ItemStack> itemStacks, boolean simulate, GlobalPos boundInventory, Direction direction) {
+        return removeStacksFromInventory(player, itemStacks, simulate, boundInventory, direction, null, null);
+    }
+
+    /**
+     * If inventoryIndex isn't null, its used to find items in the player's Curios and inventory instead of scanning them.
+     * If ae2Session isn't null, its used instead of querying a bound AE2 network directly
+     */
+    public static boolean removeStacksFromInventory(Player player, List<ItemStack> itemStacks, boolean simulate, GlobalPos boundInventory, Direction direction, InventoryIndex inventoryIndex, AE2Session ae2Session) {
         if (itemStacks.isEmpty() || itemStacks.contains(Items.AIR.getDefaultInstance())) return false;
         ArrayList<ItemStack> testArray = new ArrayList<>(itemStacks);
         //Check Bound Inventory First
         if (boundInventory != null) {
             if (AE2Integration.isLoaded()) { //Check if we are bound to an AE Device
-                checkAE2ForItems(boundInventory, player, testArray, simulate);
+                if (ae2Session != null)
+                    ae2Session.removeStacks(player, testArray, simulate);
+                else
+                    checkAE2ForItems(boundInventory, player, testArray, simulate);
                 if (testArray.isEmpty()) return true;
             }
             IItemHandler boundHandler = getHandlerFromBound(player, boundInventory, direction);
@@ -257,6 +270,10 @@ public class BuildingUtils {
         }
 
         if (testArray.isEmpty()) return true;
+        if (inventoryIndex != null) {
+            inventoryIndex.removeStacks(testArray, simulate);
+            return testArray.isEmpty();
+        }
         //Check curious slots second:
 
         if (CuriosIntegration.isLoaded()) {
@@ -270,6 +287,63 @@ public class BuildingUtils {
         return false;
     }
 
+    /**
+     * Takes up to count of an item from the same places as removeStacksFromInventory, but spread over as many stacks as it takes. Returns what was taken
+     */
+    public static ArrayList<ItemStack> extractItems(Player player, ItemStack itemStack, int count, GlobalPos boundInventory, Direction direction) {
+        ArrayList<ItemStack> extracted = new ArrayList<>();
+        int remaining = count;
+        //Check Bound Inventory First
+        if (boundInventory != null) {
+            if (AE2Integration.isLoaded()) { //Check if we are bound to an AE Device
+                remaining = extractFromAE2(boundInventory, player, itemStack, remaining, extracted);
+                if (remaining == 0) return extracted;
+            }
+            IItemHandler boundHandler = getHandlerFromBound(player, boundInventory, direction);
+            if (boundHandler != null) {
+                remaining = extractFromHandler(boundHandler, itemStack, remaining, extracted);
+            }
+        }
+        if (remaining == 0) return extracted;
+
+        if (CuriosIntegration.isLoaded()) {
+            remaining = CuriosMethods.extractItems(player, itemStack, remaining, extracted);
+        }
+        if (remaining == 0) return extracted;
+
+        Inventory playerInventory = player.getInventory();
+        for (int i = 0; i < playerInventory.getContainerSize() && remaining > 0; i++) {
+            ItemStack itemInSlot = playerInventory.getItem(i);
+            var itemStackCapability = itemInSlot.getCapability(Capabilities.ItemHandler.ITEM, null);
+            if (itemStackCapability != null) {
+                remaining = extractFromHandler(itemStackCapability, itemStack, remaining, extracted);
+            } else if (ItemStack.isSameItem(itemStack, itemInSlot)) {
+                ItemStack removed = playerInventory.removeItem(i, remaining);
+                remaining -= removed.getCount();
+                extracted.add(removed);
+            }
+        }
+        return extracted;
+    }
+
+    public static int extractFromHandler(IItemHandler handler, ItemStack itemStack, int count, List<ItemStack> extracted) {
+        int remaining = count;
+        for (int j = 0; j < handler.getSlots() && remaining > 0; j++) {
+            ItemStack itemInSlot = handler.getStackInSlot(j);
+            var itemStackCapability = itemInSlot.getCapability(Capabilities.ItemHandler.ITEM, null);
+            if (itemStackCapability != null) {
+                remaining = extractFromHandler(itemStackCapability, itemStack, remaining, extracted);
+            } else if (ItemStack.isSameItem(itemStack, itemInSlot)) {
+                ItemStack removed = handler.extractItem(j, remaining, false);
+                if (!removed.isEmpty()) {
+                    remaining -= removed.getCount();
+                    extracted.add(removed);
+                }
+            }
+        }
+        return remaining;
+    }
+
     public static int countItemStacks(Player player, ItemStack itemStack) {
         if (itemStack.isEmpty() || itemStack.is(Items.AIR)) return 0;
         Inventory playerInventory = player.getInventory();
@@ -404,7 +478,7 @@ public class BuildingUtils {
         return energyCost <= energyStored;
     }
 
-    public static boolean hasEnoughEnergy(ItemStack gadget, int cost) {
+    public static boolean hasEnoughEnergy(ItemStack gadget, long cost) {
         int energyStored = getEnergyStored(gadget);
         return cost <= energyStored;
     }
@@ -418,14 +492,19 @@ public class BuildingUtils {
         }
     }
 
-    public static UUID build(Level level, Player player, ArrayList<StatePos> blockPosList, BlockPos lookingAt, ItemStack gadget, boolean needItems) {
+    public static UUID build(Level level, Player player, BlockBuffer blockPosList, BlockPos lookingAt, ItemStack gadget, boolean needItems) {
         UUID buildUUID = UUID.randomUUID();
         FakeRenderingWorld fakeRenderingWorld = new FakeRenderingWorld(level, blockPosList, lookingAt);
         GlobalPos boundPos = GadgetNBT.getBoundPos(gadget);
         int dir = boundPos == null ? -1 : GadgetNBT.getToolValue(gadget, GadgetNBT.IntSettings.BIND_DIRECTION.getName());
         Direction direction = dir == -1 ? null : Direction.values()[dir];
-        for (StatePos pos : blockPosList) {
-            if (pos.state.isAir()) continue; //Since we store air now
+        MaterialReservation reservation = !player.isCreative() && needItems ? new MaterialReservation() : null;
+        ArrayList<StatePos> buildablePositions = new ArrayList<>();
+        ArrayList<List<ItemStack>> buildableItems = new ArrayList<>(); //Items needed for each entry in buildablePositions, null for fluids
+        for (int index = 0; index < blockPosList.size(); index++) {
+            BlockState state = blockPosList.getState(index);
+            if (state.isAir()) continue; //Since we store air now
+            StatePos pos = new StatePos(state, blockPosList.getPos(index));
             BlockPos blockPos = pos.pos;
             if (!level.mayInteract(player, blockPos.offset(lookingAt)))
                 continue; //Chunk Protection like spawn
@@ -435,12 +514,24 @@ public class BuildingUtils {
                 continue; //Skip this block if it can't be placed (Avoids using energy)
             if (gadget.getItem() instanceof GadgetBuilding && needItems && !pos.state.canSurvive(level, blockPos.offset(lookingAt)))
                 continue; //Don't do this validation for copy/paste
-            if (pos.state.getFluidState().isEmpty()) { //Check for items
-                List<ItemStack> neededItems = GadgetUtils.getDropsForBlockState((ServerLevel) level, blockPos.offset(lookingAt), pos.state, player);
-                if (!player.isCreative() && needItems) { //Check if player has needed items before using energy -- a real check happens again in ServerTicks
-                    if (!removeStacksFromInventory(player, neededItems, true, boundPos, direction))
-                        continue; //Continue to the next position
-                }
+            List<ItemStack> neededItems = null;
+            if (pos.state.getFluidState().isEmpty()) {
+                neededItems = GadgetUtils.getDropsForBlockState((ServerLevel) level, blockPos.offset(lookingAt), pos.state, player);
+                if (reservation != null)
+                    reservation.addNeeded(neededItems);
+            }
+            buildablePositions.add(pos);
+            buildableItems.add(neededItems);
+        }
+        if (reservation != null)
+            reservation.reserve(player, boundPos, direction); //Take the items for the whole build at once, rather than checking the inventory for each block
+
+        for (int i = 0; i < buildablePositions.size(); i++) {
+            StatePos pos = buildablePositions.get(i);
+            List<ItemStack> neededItems = buildableItems.get(i);
+            if (neededItems != null) { //Check for items
+                if (reservation != null && !reservation.allocate(neededItems))
+                    continue; //Continue to the next position
             } else { //Check For Fluids
                 FluidState fluidState = pos.state.getFluidState();
                 if (!fluidState.isEmpty() && fluidState.isSource()) { //This should always be true since we only copy sources
@@ -461,16 +552,21 @@ public class BuildingUtils {
             }
             ServerTickHandler.addToMap(buildUUID, new StatePos(fakeRenderingWorld.getBlockStateWithoutReal(pos.pos), pos.pos), level, GadgetNBT.getRenderTypeByte(gadget), player, needItems, false, gadget, ServerBuildList.BuildType.BUILD, true, lookingAt);
         }
+        if (reservation != null && !ServerTickHandler.setReservation(buildUUID, reservation))
+            reservation.refund(player, boundPos, direction); //Nothing got queued, so give it all back
         return buildUUID;
     }
 
-    public static UUID exchange(Level level, Player player, ArrayList<StatePos> blockPosList, BlockPos lookingAt, ItemStack gadget, boolean needItems, boolean returnItems) {
+    public static UUID exchange(Level level, Player player, BlockBuffer blockPosList, BlockPos lookingAt, ItemStack gadget, boolean needItems, boolean returnItems) {
         UUID buildUUID = UUID.randomUUID();
         FakeRenderingWorld fakeRenderingWorld = new FakeRenderingWorld(level, blockPosList, lookingAt);
         GlobalPos boundPos = GadgetNBT.getBoundPos(gadget);
         int dir = boundPos == null ? -1 : GadgetNBT.getToolValue(gadget, GadgetNBT.IntSettings.BIND_DIRECTION.getName());
         Direction direction = dir == -1 ? null : Direction.values()[dir];
-        for (StatePos pos : blockPosList) {
+        InventoryIndex inventoryIndex = new InventoryIndex(player);
+        AE2Session ae2Session = boundPos != null && AE2Integration.isLoaded() ? new AE2Session(boundPos) : null;
+        for (int index = 0; index < blockPosList.size(); index++) {
+            StatePos pos = new StatePos(blockPosList.getState(index), blockPosList.getPos(index));
             BlockPos blockPos = pos.pos;
             if (!level.mayInteract(player, blockPos.offset(lookingAt)))
                 continue; //Chunk Protection like spawn and FTB Utils
@@ -487,7 +583,7 @@ public class BuildingUtils {
             if (pos.state.getFluidState().isEmpty()) { //Check for items
                 List<ItemStack> neededItems = GadgetUtils.getDropsForBlockState((ServerLevel) level, blockPos.offset(lookingAt), pos.state, player);
                 if (!player.isCreative() && needItems && !pos.state.isAir()) { //Check if player has needed items before using energy -- a real check happens again in ServerTicks
-                    if (!removeStacksFromInventory(player, neededItems, true, boundPos, direction))
+                    if (!removeStacksFromInventory(player, neededItems, true, boundPos, direction, inventoryIndex, ae2Session))
                         continue; //Continue to the next position
                 }
             } else { //Check For Fluids
@@ -510,10 +606,11 @@ public class BuildingUtils {
             }
             ServerTickHandler.addToMap(buildUUID, new StatePos(fakeRenderingWorld.getBlockStateWithoutReal(pos.pos), pos.pos), level, GadgetNBT.getRenderTypeByte(gadget), player, needItems, returnItems, gadget, ServerBuildList.BuildType.EXCHANGE, true, lookingAt);
         }
+        //The session only simulated here, so nothing was taken from the network - the real extraction happens later in ServerTickHandler
         return buildUUID;
     }
 
-    public static ArrayList<StatePos> buildWithTileData(Level level, Player player, ArrayList<StatePos> blockPosList, BlockPos lookingAt, ArrayList<TagPos> teData, ItemStack gadget) {
+    public static ArrayList<StatePos> buildWithTileData(Level level, Player player, BlockBuffer blockPosList, BlockPos lookingAt, ArrayList<TagPos> teData, ItemStack gadget) {
         ArrayList<StatePos> actuallyBuiltList = new ArrayList<>();
         if (teData == null) return actuallyBuiltList;
         UUID buildUUID;
@@ -526,7 +623,7 @@ public class BuildingUtils {
         ServerTickHandler.addTEData(buildUUID, teData);
         BG2Data bg2Data = BG2Data.get(Objects.requireNonNull(level.getServer()).overworld());
         if (!bg2Data.containsUndoList(GadgetNBT.getUUID(gadget))) //Only if theres not already an undo list for this gadget, otherwise it'll clear it (Duh dire)
-            GadgetUtils.addToUndoList(level, gadget, new ArrayList<>(), GadgetNBT.getUUID(gadget)); //For cut gadget, undo list will be a tracker of whats been built so far! Only 1 per gadget, so use gadgetUUID
+            GadgetUtils.addToUndoList(level, gadget, new BlockBuffer(), GadgetNBT.getUUID(gadget)); //For cut gadget, undo list will be a tracker of whats been built so far! Only 1 per gadget, so use gadgetUUID
         return actuallyBuiltList;
     }
 
@@ -0,0 +1,127 @@
+package com.direwolf20.buildinggadgets2.util;
+
+import com.direwolf20.buildinggadgets2.BuildingGadgets2;
+import com.direwolf20.buildinggadgets2.common.items.BaseGadget;
+import com.direwolf20.buildinggadgets2.util.datatypes.BlockBuffer;
+import com.direwolf20.buildinggadgets2.util.modes.BaseMode;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.core.SectionPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.phys.Vec3;
+import net.neoforged.neoforge.event.level.ChunkEvent;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the client player's last BaseMode.collect and GadgetUtils.getDestructionArea result, so the preview and the overlays, which ask for it
+ * several times a frame, don't each redo the world validation over the whole range. A result is reused for an identical request until a block changes
+ * in one of the chunks around the area the collect could have looked at. The client has no block change event, so that comes from the chunks' unsaved
+ * flag - client chunks are never saved, so we clear it when caching and LevelChunk.setBlockState sets it again. Chunks that get (re)loaded are caught by
+ * onChunkLoad and by checking the chunk objects are still the same. Client only - the server always collects fresh for the real action, so nothing
+ * stale can ever be built. The buffers are shared - don't modify them!
+ */
+public class CollectCache {
+    private static final ResourceLocation DESTRUCTION_ID = ResourceLocation.fromNamespaceAndPath(BuildingGadgets2.MODID, "destruction");
+
+    private static Entry lastEntry; //Only the local player previews anything, so one entry is enough
+
+    //Everything a collect looks at besides the world itself. The modes read the player's position and facing, and the exchanger compares against the block being looked at, so those are in here too
+    private record Key(ResourceLocation modeId, ResourceKey<Level> dimension, BlockPos hitPos, Direction hitSide, @Nullable BlockState state,
+                       int settingsHash, BlockPos lookPos, Vec3 playerPos, double eyeY, Direction playerFacing, boolean mayBuild) {
+    }
+
+    //chunkPositions are ChunkPos.asLong(), chunks the LevelChunk that was loaded there when the result was collected (Or null if there wasn't one)
+    private record Entry(Key key, ItemStack gadget, BlockBuffer result, long[] chunkPositions, LevelChunk[] chunks) {
+        private boolean isUnchanged(Level level) {
+            for (int i = 0; i < chunks.length; i++) {
+                LevelChunk chunk = level.getChunkSource().getChunk(ChunkPos.getX(chunkPositions[i]), ChunkPos.getZ(chunkPositions[i]), false);
+                if (chunk != chunks[i] || (chunk != null && chunk.isUnsaved()))
+                    return false;
+            }
+            return true;
+        }
+
+        private boolean watches(long chunkPos) {
+            for (long watched : chunkPositions) {
+                if (watched == chunkPos) return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Cached BaseMode.collect
+     */
+    public static BlockBuffer collect(BaseMode mode, Direction hitSide, Player player, BlockPos start, BlockState state) {
+        ItemStack gadget = BaseGadget.getGadget(player);
+        return get(mode.getId(), hitSide, player, start, state, gadget, mode.getReach(gadget), () -> mode.collect(hitSide, player, start, state));
+    }
+
+    /**
+     * Cached GadgetUtils.getDestructionArea
+     */
+    public static BlockBuffer getDestructionArea(Level level, BlockPos pos, Direction face, Player player, ItemStack gadget) {
+        int reach = GadgetNBT.getToolValue(gadget, GadgetNBT.IntSettings.DEPTH.getName());
+        for (GadgetNBT.IntSettings setting : List.of(GadgetNBT.IntSettings.LEFT, GadgetNBT.IntSettings.RIGHT, GadgetNBT.IntSettings.UP, GadgetNBT.IntSettings.DOWN))
+            reach = Math.max(reach, GadgetNBT.getToolValue(gadget, setting.getName()));
+        return get(DESTRUCTION_ID, face, player, pos, null, gadget, reach, () -> GadgetUtils.getDestructionArea(level, pos, face, player, gadget));
+    }
+
+    /**
+     * A chunk arriving from the server, new or replacing one we already had, doesn't go through setBlockState - so drop the entry if it was watching it
+     */
+    public static void onChunkLoad(ChunkEvent.Load event) {
+        Entry entry = lastEntry;
+        if (entry != null && event.getLevel().isClientSide() && entry.watches(event.getChunk().getPos().toLong()))
+            lastEntry = null;
+    }
+
+    private static BlockBuffer get(ResourceLocation modeId, Direction hitSide, Player player, BlockPos start, @Nullable BlockState state, ItemStack gadget, int reach, Supplier<BlockBuffer> collector) {
+        Level level = player.level();
+        if (!level.isClientSide) return collector.get();
+        BlockPos lookPos = VectorHelper.getLookingAt(player, gadget).getBlockPos();
+        Key key = new Key(modeId, level.dimension(), start, hitSide, state, ItemStack.hashItemAndComponents(gadget), lookPos,
+                player.position(), player.getEyeY(), player.getDirection(), player.mayBuild());
+
+        Entry entry = lastEntry;
+        if (entry != null && entry.key().equals(key) && ItemStack.isSameItemSameComponents(entry.gadget(), gadget) && entry.isUnchanged(level))
+            return entry.result();
+
+        BlockBuffer result = collector.get();
+        lastEntry = watch(level, key, gadget.copy(), result, start, reach + 1, lookPos); //+1 since placement checks like canSurvive look at the neighbours
+        return result;
+    }
+
+    //Marks every chunk within reach of start, plus the one being looked at, as unchanged from here on
+    private static Entry watch(Level level, Key key, ItemStack gadget, BlockBuffer result, BlockPos start, int reach, BlockPos lookPos) {
+        LongArrayList chunkPositions = new LongArrayList();
+        int minX = SectionPos.blockToSectionCoord(start.getX() - reach), maxX = SectionPos.blockToSectionCoord(start.getX() + reach);
+        int minZ = SectionPos.blockToSectionCoord(start.getZ() - reach), maxZ = SectionPos.blockToSectionCoord(start.getZ() + reach);
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++)
+                chunkPositions.add(ChunkPos.asLong(x, z));
+        }
+        long lookChunk = ChunkPos.asLong(SectionPos.blockToSectionCoord(lookPos.getX()), SectionPos.blockToSectionCoord(lookPos.getZ()));
+        if (!chunkPositions.contains(lookChunk))
+            chunkPositions.add(lookChunk);
+
+        LevelChunk[] chunks = new LevelChunk[chunkPositions.size()];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = level.getChunkSource().getChunk(ChunkPos.getX(chunkPositions.getLong(i)), ChunkPos.getZ(chunkPositions.getLong(i)), false);
+            if (chunks[i] != null)
+                chunks[i].setUnsaved(false);
+        }
+        return new Entry(key, gadget, result, chunkPositions.toLongArray(), chunks);
+    }
+}
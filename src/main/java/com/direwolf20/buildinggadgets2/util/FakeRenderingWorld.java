@@ -1,12 +1,16 @@
 package com.direwolf20.buildinggadgets2.util;
 
-import com.direwolf20.buildinggadgets2.util.datatypes.StatePos;
+import com.direwolf20.buildinggadgets2.util.datatypes.BlockBuffer;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.multiplayer.ClientLevel;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
 import net.minecraft.core.Holder;
+import net.minecraft.core.QuartPos;
 import net.minecraft.core.RegistryAccess;
+import net.minecraft.core.SectionPos;
 import net.minecraft.core.particles.ParticleOptions;
 import net.minecraft.server.MinecraftServer;
 import net.minecraft.sounds.SoundEvent;
@@ -16,8 +20,10 @@ import net.minecraft.world.DifficultyInstance;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.flag.FeatureFlagSet;
+import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.LevelAccessor;
+import net.minecraft.world.level.LightLayer;
 import net.minecraft.world.level.biome.Biome;
 import net.minecraft.world.level.biome.BiomeManager;
 import net.minecraft.world.level.block.Block;
@@ -28,11 +34,14 @@ import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.border.WorldBorder;
 import net.minecraft.world.level.chunk.ChunkAccess;
 import net.minecraft.world.level.chunk.ChunkSource;
+import net.minecraft.world.level.chunk.DataLayer;
+import net.minecraft.world.level.chunk.PalettedContainer;
 import net.minecraft.world.level.chunk.status.ChunkStatus;
 import net.minecraft.world.level.dimension.DimensionType;
 import net.minecraft.world.level.entity.EntityTypeTest;
 import net.minecraft.world.level.gameevent.GameEvent;
 import net.minecraft.world.level.levelgen.Heightmap;
+import net.minecraft.world.level.lighting.LayerLightEventListener;
 import net.minecraft.world.level.lighting.LevelLightEngine;
 import net.minecraft.world.level.material.Fluid;
 import net.minecraft.world.level.material.FluidState;
@@ -44,7 +53,6 @@ import net.minecraft.world.ticks.BlackholeTickAccess;
 import net.minecraft.world.ticks.LevelTickAccess;
 
 import javax.annotation.Nullable;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.function.Predicate;
@@ -53,17 +61,28 @@ public class FakeRenderingWorld implements LevelAccessor {
     public final HashMap<BlockPos, BlockState> positions = new HashMap<>();
     private Level realWorld;
     private BlockPos lookingAt;
+    @Nullable
+    private final Snapshot snapshot; //If set, everything outside positions comes from here instead of realWorld - see Snapshot
+
+    public FakeRenderingWorld(Level rWorld, BlockBuffer coordinates, BlockPos lookingAt) {
+        this(rWorld, null, coordinates, lookingAt);
+    }
 
-    public FakeRenderingWorld(Level rWorld, ArrayList<StatePos> coordinates, BlockPos lookingAt) {
+    /**
+     * With a snapshot taken on the main thread (See Snapshot.take), this never reads the live level, so it can be built and used on a worker thread
+     */
+    public FakeRenderingWorld(Level rWorld, @Nullable Snapshot snapshot, BlockBuffer coordinates, BlockPos lookingAt) {
         this.realWorld = rWorld;
         this.lookingAt = lookingAt;
-        for (StatePos statePos : coordinates) {
-            this.setBlock(statePos.pos, statePos.state, 0);
+        this.snapshot = snapshot;
+        for (int i = 0; i < coordinates.size(); i++) {
+            this.setBlock(coordinates.getPos(i), coordinates.getState(i), 0);
         }
-        for (StatePos statePos : coordinates) {
+        for (int i = 0; i < coordinates.size(); i++) {
+            BlockPos pos = coordinates.getPos(i);
             try {
-                BlockState adjustedState = Block.updateFromNeighbourShapes(statePos.state, this, statePos.pos);
-                this.setBlock(statePos.pos, adjustedState, 0);
+                BlockState adjustedState = Block.updateFromNeighbourShapes(coordinates.getState(i), this, pos);
+                this.setBlock(pos, adjustedState, 0);
             } catch (Exception e) {
                 System.out.println(e);
             }
@@ -76,7 +95,8 @@ public class FakeRenderingWorld implements LevelAccessor {
         BlockState blockState = getBlockState(pos);
         if (blockState.hasBlockEntity()) {
             BlockEntity blockEntity = ((EntityBlock) blockState.getBlock()).newBlockEntity(pos.offset(lookingAt), blockState);
-            blockEntity.setLevel(this.realWorld);
+            if (blockEntity != null && snapshot == null) //Worker threads mustn't hand the live level to block entities
+                blockEntity.setLevel(this.realWorld);
             return blockEntity;
         }
         return null;
@@ -84,7 +104,8 @@ public class FakeRenderingWorld implements LevelAccessor {
 
     @Override
     public BlockState getBlockState(BlockPos pos) {
-        return positions.containsKey(pos) ? positions.get(pos) : realWorld.getBlockState(pos.offset(lookingAt));
+        if (positions.containsKey(pos)) return positions.get(pos);
+        return snapshot != null ? snapshot.getBlockState(pos.offset(lookingAt)) : realWorld.getBlockState(pos.offset(lookingAt));
     }
 
     public BlockState getBlockStateWithoutReal(BlockPos pos) {
@@ -148,6 +169,11 @@ public class FakeRenderingWorld implements LevelAccessor {
         return realWorld.getBiomeManager();
     }
 
+    @Override
+    public Holder<Biome> getBiome(BlockPos pos) {
+        return snapshot != null ? snapshot.getBiome(pos) : realWorld.getBiome(pos);
+    }
+
     @Override
     public Holder<Biome> getUncachedNoiseBiome(int p_204159_, int p_204160_, int p_204161_) {
         return null;
@@ -175,12 +201,22 @@ public class FakeRenderingWorld implements LevelAccessor {
 
     @Override
     public int getRawBrightness(BlockPos blockPos, int amount) {
-        return realWorld.getRawBrightness(blockPos.offset(lookingAt), amount);
+        if (snapshot == null)
+            return realWorld.getRawBrightness(blockPos.offset(lookingAt), amount);
+        BlockPos realPos = blockPos.offset(lookingAt);
+        return Math.max(snapshot.getLight(LightLayer.BLOCK, realPos), snapshot.getLight(LightLayer.SKY, realPos) - amount);
+    }
+
+    @Override
+    public int getBrightness(LightLayer lightLayer, BlockPos blockPos) {
+        return snapshot != null ? snapshot.getLight(lightLayer, blockPos) : getLightEngine().getLayerListener(lightLayer).getLightValue(blockPos);
     }
 
     @Override
     public boolean canSeeSky(BlockPos blockPos) {
-        return realWorld.canSeeSky(blockPos.offset(lookingAt));
+        if (snapshot == null)
+            return realWorld.canSeeSky(blockPos.offset(lookingAt));
+        return snapshot.getLight(LightLayer.SKY, blockPos.offset(lookingAt)) >= getMaxLightLevel();
     }
 
     @Override
@@ -246,8 +282,7 @@ public class FakeRenderingWorld implements LevelAccessor {
 
     @Override
     public float getShade(Direction pDirection, boolean pShade) {
-        ClientLevel clientLevel = (ClientLevel) realWorld;
-        boolean flag = clientLevel.effects().constantAmbientLight();
+        boolean flag = snapshot != null ? snapshot.constantAmbientLight : ((ClientLevel) realWorld).effects().constantAmbientLight();
         if (!pShade) {
             return flag ? 0.9F : 1.0F;
         } else {
@@ -312,4 +347,103 @@ public class FakeRenderingWorld implements LevelAccessor {
     public boolean destroyBlock(BlockPos p_46957_, boolean p_46958_, @org.jetbrains.annotations.Nullable Entity p_46959_, int p_46960_) {
         return false;
     }
+
+    /**
+     * A copy of the real level around a preview - the chunk sections holding it and their neighbours, their light, and a biome per 4x4 column - so a FakeRenderingWorld
+     * can be built and tesselated off the main thread without touching the live level, like vanilla's RenderChunkRegion. Positions outside the copy read as air in full skylight,
+     * which is what the preview's tesselation (Done 255 blocks up) saw in the real level anyway
+     */
+    public static class Snapshot {
+        private final Long2ObjectOpenHashMap<PalettedContainer<BlockState>> sections = new Long2ObjectOpenHashMap<>(); //SectionPos.asLong() -> Copy of its states
+        private final Long2ObjectOpenHashMap<DataLayer> blockLight = new Long2ObjectOpenHashMap<>();
+        private final Long2ObjectOpenHashMap<DataLayer> skyLight = new Long2ObjectOpenHashMap<>();
+        private final Long2ObjectOpenHashMap<Holder<Biome>> biomes = new Long2ObjectOpenHashMap<>(); //ChunkPos.asLong() of the quart x/z -> Biome at the preview's height
+        private final Holder<Biome> defaultBiome;
+        private final boolean constantAmbientLight;
+        private final int outsideSkyLight;
+
+        /**
+         * Main thread only. lookingAt is what the coordinates are relative to, same as the FakeRenderingWorld
+         */
+        public static Snapshot take(Level level, BlockBuffer coordinates, BlockPos lookingAt) {
+            return new Snapshot(level, coordinates, lookingAt);
+        }
+
+        private Snapshot(Level level, BlockBuffer coordinates, BlockPos lookingAt) {
+            defaultBiome = level.getBiome(lookingAt);
+            constantAmbientLight = level instanceof ClientLevel clientLevel && clientLevel.effects().constantAmbientLight();
+            outsideSkyLight = level.dimensionType().hasSkyLight() ? level.getMaxLightLevel() : 0;
+
+            LongOpenHashSet previewSections = new LongOpenHashSet();
+            for (int i = 0; i < coordinates.size(); i++) {
+                long pos = coordinates.getPosLong(i);
+                previewSections.add(SectionPos.asLong(SectionPos.blockToSectionCoord(BlockPos.getX(pos) + lookingAt.getX()), SectionPos.blockToSectionCoord(BlockPos.getY(pos) + lookingAt.getY()), SectionPos.blockToSectionCoord(BlockPos.getZ(pos) + lookingAt.getZ())));
+            }
+            LongOpenHashSet wanted = new LongOpenHashSet(); //Blocks on a section's edge look at the next section over
+            for (long sectionKey : previewSections) {
+                for (int x = -1; x <= 1; x++)
+                    for (int y = -1; y <= 1; y++)
+                        for (int z = -1; z <= 1; z++)
+                            wanted.add(SectionPos.offset(sectionKey, x, y, z));
+            }
+
+            LayerLightEventListener blockListener = level.getLightEngine().getLayerListener(LightLayer.BLOCK);
+            LayerLightEventListener skyListener = level.getLightEngine().getLayerListener(LightLayer.SKY);
+            int quartY = QuartPos.fromBlock(lookingAt.getY());
+            for (long sectionKey : wanted) {
+                SectionPos sectionPos = SectionPos.of(sectionKey);
+                ChunkAccess chunk = level.getChunk(sectionPos.x(), sectionPos.z(), ChunkStatus.FULL, false);
+                if (chunk == null) continue; //Not loaded, reads as air
+                int sectionIndex = chunk.getSectionIndexFromSectionY(sectionPos.y());
+                if (sectionIndex < 0 || sectionIndex >= chunk.getSectionsCount()) continue;
+                sections.put(sectionKey, chunk.getSection(sectionIndex).getStates().copy());
+
+                DataLayer blockLayer = blockListener.getDataLayerData(sectionPos);
+                if (blockLayer != null)
+                    blockLight.put(sectionKey, blockLayer.copy());
+                DataLayer skyLayer = skyListener.getDataLayerData(sectionPos);
+                if (skyLayer != null) {
+                    skyLight.put(sectionKey, skyLayer.copy());
+                } else { //No data of its own means the sky light comes straight down from the section above, so it's the same all the way down each column
+                    DataLayer columns = new DataLayer();
+                    BlockPos origin = sectionPos.origin();
+                    BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+                    for (int x = 0; x < 16; x++) {
+                        for (int z = 0; z < 16; z++) {
+                            int light = skyListener.getLightValue(pos.set(origin.getX() + x, origin.getY(), origin.getZ() + z));
+                            for (int y = 0; y < 16; y++)
+                                columns.set(x, y, z, light);
+                        }
+                    }
+                    skyLight.put(sectionKey, columns);
+                }
+
+                for (int x = 0; x < 4; x++) {
+                    for (int z = 0; z < 4; z++) {
+                        int quartX = QuartPos.fromSection(sectionPos.x()) + x;
+                        int quartZ = QuartPos.fromSection(sectionPos.z()) + z;
+                        biomes.computeIfAbsent(ChunkPos.asLong(quartX, quartZ), k -> level.getNoiseBiome(quartX, quartY, quartZ));
+                    }
+                }
+            }
+        }
+
+        public BlockState getBlockState(BlockPos realPos) {
+            PalettedContainer<BlockState> states = sections.get(SectionPos.asLong(realPos));
+            return states == null ? Blocks.AIR.defaultBlockState() : states.get(realPos.getX() & 15, realPos.getY() & 15, realPos.getZ() & 15);
+        }
+
+        public int getLight(LightLayer lightLayer, BlockPos realPos) {
+            long sectionKey = SectionPos.asLong(realPos);
+            if (!sections.containsKey(sectionKey))
+                return lightLayer == LightLayer.SKY ? outsideSkyLight : 0;
+            DataLayer dataLayer = lightLayer == LightLayer.SKY ? skyLight.get(sectionKey) : blockLight.get(sectionKey);
+            return dataLayer == null ? 0 : dataLayer.get(realPos.getX() & 15, realPos.getY() & 15, realPos.getZ() & 15);
+        }
+
+        public Holder<Biome> getBiome(BlockPos realPos) {
+            Holder<Biome> biome = biomes.get(ChunkPos.asLong(QuartPos.fromBlock(realPos.getX()), QuartPos.fromBlock(realPos.getZ())));
+            return biome == null ? defaultBiome : biome;
+        }
+    }
 }
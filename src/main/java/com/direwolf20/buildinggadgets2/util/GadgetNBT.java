@@ -72,6 +72,7 @@ public class GadgetNBT {
         GROWUP("buildinggadgets2.growup"),
         RISEUP("buildinggadgets2.riseup"),
         SNAP("buildinggadgets2.snap"),
+        INSTANT("buildinggadgets2.instant"), //Places the final block straight away, no RenderBlock
         ;
 
         private final String lang;
@@ -4,7 +4,7 @@ import com.direwolf20.buildinggadgets2.common.blocks.RenderBlock;
 import com.direwolf20.buildinggadgets2.common.worlddata.BG2Data;
 import com.direwolf20.buildinggadgets2.datagen.BG2BlockTags;
 import com.direwolf20.buildinggadgets2.setup.Registration;
-import com.direwolf20.buildinggadgets2.util.datatypes.StatePos;
+import com.direwolf20.buildinggadgets2.util.datatypes.BlockBuffer;
 import com.google.common.collect.ImmutableList;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
@@ -26,10 +26,13 @@ import net.minecraft.world.phys.AABB;
 import net.minecraft.world.phys.BlockHitResult;
 import net.minecraft.world.phys.Vec3;
 import net.neoforged.neoforge.common.NeoForge;
+import net.neoforged.neoforge.event.TagsUpdatedEvent;
 import net.neoforged.neoforge.event.level.BlockEvent;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
 
@@ -47,8 +50,14 @@ public class GadgetUtils {
     );
 
     public static boolean isValidBlockState(BlockState blockState, Level level, BlockPos blockPos) {
+        return isValidStateIgnoringPos(blockState) && blockState.getDestroySpeed(level, blockPos) >= 0;
+    }
+
+    /**
+     * The part of isValidBlockState that only depends on the state itself, so it can be worked out once per state
+     */
+    public static boolean isValidStateIgnoringPos(BlockState blockState) {
         if (blockState.is(BG2BlockTags.BG2DENY)) return false;
-        if (blockState.getDestroySpeed(level, blockPos) < 0) return false;
         if (!blockState.getFluidState().isEmpty() && !blockState.getFluidState().isSource()) return false;
         return true;
     }
@@ -74,7 +83,44 @@ public class GadgetUtils {
         return blockState.getCloneItemStack(new BlockHitResult(Vec3.ZERO, Direction.UP, blockPos, false), level, blockPos, player);
     }
 
+    /**
+     * Drops are the same for every copy of a BlockState (Except for blocks in BG2NO_DROP_CACHE), so we only roll the loot table once per state.
+     * Kept separately for calls with and without a player, since those resolve the base item differently. Cleared when tags or datapacks reload
+     */
+    private static final int DROPS_CACHE_SIZE = 4096;
+    private static final Map<BlockState, List<ItemStack>> DROPS_CACHE = createDropsCache();
+    private static final Map<BlockState, List<ItemStack>> SIMPLE_DROPS_CACHE = createDropsCache();
+
+    private static Map<BlockState, List<ItemStack>> createDropsCache() {
+        return new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<BlockState, List<ItemStack>> eldest) {
+                return size() > DROPS_CACHE_SIZE;
+            }
+        };
+    }
+
+    public static void onTagsUpdated(TagsUpdatedEvent event) {
+        DROPS_CACHE.clear();
+        SIMPLE_DROPS_CACHE.clear();
+    }
+
     public static List<ItemStack> getDropsForBlockState(ServerLevel level, BlockPos blockPos, BlockState blockState, Player player) {
+        if (blockState.is(BG2BlockTags.BG2NO_DROP_CACHE))
+            return resolveDropsForBlockState(level, blockPos, blockState, player);
+        Map<BlockState, List<ItemStack>> cache = player != null ? DROPS_CACHE : SIMPLE_DROPS_CACHE;
+        List<ItemStack> drops = cache.get(blockState);
+        if (drops == null) {
+            drops = resolveDropsForBlockState(level, blockPos, blockState, player);
+            cache.put(blockState, drops);
+        }
+        List<ItemStack> copies = new ArrayList<>(drops.size()); //Callers are free to change what they get back
+        for (ItemStack itemStack : drops)
+            copies.add(itemStack.copy());
+        return copies;
+    }
+
+    private static List<ItemStack> resolveDropsForBlockState(ServerLevel level, BlockPos blockPos, BlockState blockState, Player player) {
         ItemStack tempStack = new ItemStack(Registration.Exchanging_Gadget.get());
         HolderLookup.RegistryLookup<Enchantment> registrylookup = level.getServer().registryAccess().lookupOrThrow(Registries.ENCHANTMENT);
         tempStack.enchant(registrylookup.getOrThrow(Enchantments.SILK_TOUCH), 1);
@@ -116,13 +162,13 @@ public class GadgetUtils {
         return placeState;
     }
 
-    public static void addToUndoList(Level level, ItemStack gadget, ArrayList<StatePos> buildList, UUID uuid) {
+    public static void addToUndoList(Level level, ItemStack gadget, BlockBuffer buildList, UUID uuid) {
         BG2Data bg2Data = BG2Data.get(Objects.requireNonNull(level.getServer()).overworld());
         bg2Data.addToUndoList(uuid, buildList, level);
         GadgetNBT.addToUndoList(gadget, uuid, bg2Data);
     }
 
-    public static void addToUndoList(Level level, ItemStack gadget, ArrayList<StatePos> buildList) {
+    public static void addToUndoList(Level level, ItemStack gadget, BlockBuffer buildList) {
         addToUndoList(level, gadget, buildList, UUID.randomUUID());
     }
 
@@ -149,11 +195,11 @@ public class GadgetUtils {
         }
     }
 
-    public static ArrayList<StatePos> getDestructionArea(Level level, BlockPos pos, Direction face, Player player, ItemStack gadget) {
+    public static BlockBuffer getDestructionArea(Level level, BlockPos pos, Direction face, Player player, ItemStack gadget) {
         int depth = GadgetNBT.getToolValue(gadget, GadgetNBT.IntSettings.DEPTH.getName());
 
         if (gadget.isEmpty() || depth == 0 || !player.mayBuild())
-            return new ArrayList<>();
+            return new BlockBuffer();
 
         boolean vertical = face.getAxis().isVertical();
         Direction up = vertical ? player.getDirection() : Direction.UP;
@@ -168,7 +214,7 @@ public class GadgetUtils {
 
         //boolean isFluidOnly = getIsFluidOnly(gadget); //Todo
         AABB box = VecHelpers.aabbFromBlockPos(first, second);
-        ArrayList<StatePos> returnList = new ArrayList<>();
+        BlockBuffer returnList = new BlockBuffer();
         BlockPos.betweenClosedStream(box).map(BlockPos::immutable).forEach(blockPos -> {
             BlockState blockState = level.getBlockState(blockPos);
             if (!level.isClientSide) { //Only check these on server side
@@ -180,7 +226,7 @@ public class GadgetUtils {
             if (blockState.hasBlockEntity() && !GadgetNBT.getSetting(gadget, GadgetNBT.ToggleableSettings.AFFECT_TILES.getName()))
                 return;
             if (isValidDestroyBlockState(blockState, level, blockPos))
-                returnList.add(new StatePos(blockState, blockPos));
+                returnList.add(blockState, blockPos);
         });
         return returnList;
     }
@@ -0,0 +1,137 @@
+package com.direwolf20.buildinggadgets2.util;
+
+import com.direwolf20.buildinggadgets2.integration.CuriosIntegration;
+import com.direwolf20.buildinggadgets2.integration.CuriosMethods;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.world.entity.player.Inventory;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.neoforged.neoforge.capabilities.Capabilities;
+import net.neoforged.neoforge.items.IItemHandler;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Remembers which slots hold which item in a player's Curios bags and inventory (Including items inside backpacks), so a build doesn't have to scan every slot for every block.
+ * Slots are checked again when we take from them - if something moved, or we can't find an item at all, the inventory is scanned again (At most once a tick for misses).
+ * A backpack's handler works on the backpack stack itself, so its slots are only trusted while the top level slot still holds that exact stack.
+ */
+public class InventoryIndex {
+    private record Slot(IItemHandler handler, int slot, @Nullable Owner owner) { //handler is null for the player's own inventory slots, owner is null unless the slot is inside a backpack
+    }
+
+    //The top level slot a backpack was in when we indexed it, and the stack that was there. container is null for the player's own inventory
+    private record Owner(@Nullable IItemHandler container, int slot, ItemStack stack) {
+    }
+
+    private final Player player;
+    private final Reference2ObjectOpenHashMap<Item, ArrayList<Slot>> slotsByItem = new Reference2ObjectOpenHashMap<>();
+    private long scannedAt;
+    private boolean stale = true; //True if the index no longer matches the inventory, and needs a rescan before the next lookup
+
+    public InventoryIndex(Player player) {
+        this.player = player;
+    }
+
+    public boolean isFor(Player player) {
+        return this.player == player;
+    }
+
+    private void rescan() {
+        slotsByItem.clear();
+        //Same order BuildingUtils.removeStacksFromInventory checks them - Curios first, then the player's inventory
+        if (CuriosIntegration.isLoaded())
+            CuriosMethods.indexInventory(player, this);
+        Inventory inventory = player.getInventory();
+        for (int i = 0; i < inventory.getContainerSize(); i++) {
+            ItemStack itemInSlot = inventory.getItem(i);
+            var itemStackCapability = itemInSlot.getCapability(Capabilities.ItemHandler.ITEM, null);
+            if (itemStackCapability != null)
+                indexHandler(itemStackCapability, new Owner(null, i, itemInSlot));
+            else
+                addSlot(itemInSlot, null, i, null);
+        }
+        scannedAt = player.level().getGameTime();
+        stale = false;
+    }
+
+    /**
+     * Indexes the handler of the backpack in slot of container (A Curios slot, for example)
+     */
+    public void indexBag(IItemHandler handler, IItemHandler container, int slot, ItemStack bag) {
+        indexHandler(handler, new Owner(container, slot, bag));
+    }
+
+    private void indexHandler(IItemHandler handler, Owner owner) {
+        for (int j = 0; j < handler.getSlots(); j++) {
+            ItemStack itemInSlot = handler.getStackInSlot(j);
+            var itemStackCapability = itemInSlot.getCapability(Capabilities.ItemHandler.ITEM, null);
+            if (itemStackCapability != null)
+                indexHandler(itemStackCapability, owner); //Only the top level slot can be moved by the player, so nested bags share their owner
+            else
+                addSlot(itemInSlot, handler, j, owner);
+        }
+    }
+
+    private void addSlot(ItemStack itemInSlot, IItemHandler handler, int slot, Owner owner) {
+        if (itemInSlot.isEmpty()) return;
+        slotsByItem.computeIfAbsent(itemInSlot.getItem(), k -> new ArrayList<>()).add(new Slot(handler, slot, owner));
+    }
+
+    private ItemStack getStack(Slot slot) {
+        return slot.handler == null ? player.getInventory().getItem(slot.slot) : slot.handler.getStackInSlot(slot.slot);
+    }
+
+    //False if the backpack this slot is in was moved, swapped or removed since we indexed it, in which case its handler may not be in the player's inventory anymore
+    private boolean isOwnerValid(Slot slot) {
+        if (slot.owner == null) return true;
+        Owner owner = slot.owner;
+        ItemStack stack = owner.container == null ? player.getInventory().getItem(owner.slot) : owner.slot < owner.container.getSlots() ? owner.container.getStackInSlot(owner.slot) : ItemStack.EMPTY;
+        return stack == owner.stack;
+    }
+
+    /**
+     * Removes every stack we managed to take from testArray, like BuildingUtils.checkInventoryForItems does
+     */
+    public void removeStacks(List<ItemStack> testArray, boolean simulate) {
+        if (stale) rescan();
+        testArray.removeIf(itemStack -> extract(itemStack, simulate));
+        if (!testArray.isEmpty() && (stale || scannedAt != player.level().getGameTime())) {
+            rescan(); //The player may have picked up or moved items since we last looked
+            testArray.removeIf(itemStack -> extract(itemStack, simulate));
+        }
+    }
+
+    private boolean extract(ItemStack neededStack, boolean simulate) {
+        ArrayList<Slot> slots = slotsByItem.get(neededStack.getItem());
+        if (slots == null) return false;
+        Iterator<Slot> iterator = slots.iterator();
+        while (iterator.hasNext()) {
+            Slot slot = iterator.next();
+            if (!isOwnerValid(slot)) {
+                iterator.remove();
+                stale = true;
+                continue;
+            }
+            ItemStack itemInSlot = getStack(slot);
+            if (!ItemStack.isSameItem(neededStack, itemInSlot)) { //Changed by something other than us
+                iterator.remove();
+                stale = true;
+                continue;
+            }
+            if (itemInSlot.getCount() < neededStack.getCount()) continue; //Todo: Support multiple stacks of same item
+            if (slot.handler != null)
+                slot.handler.extractItem(slot.slot, neededStack.getCount(), simulate);
+            else if (!simulate)
+                itemInSlot.shrink(neededStack.getCount());
+            if (!simulate && getStack(slot).isEmpty())
+                iterator.remove();
+            return true;
+        }
+        return false;
+    }
+}
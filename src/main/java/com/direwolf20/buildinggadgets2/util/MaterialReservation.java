@@ -0,0 +1,162 @@
+package com.direwolf20.buildinggadgets2.util;
+
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import net.minecraft.core.Direction;
+import net.minecraft.core.GlobalPos;
+import net.minecraft.core.HolderLookup;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Items taken from the player up front for a whole build, so placing each block only has to take from here instead of searching their inventories.
+ * Whatever hasn't been used when the build finishes, is cancelled, or the player logs off is given back with refund().
+ * BG2Data saves what's left of it with the world, so a crash or server stop mid build refunds it on the player's next login instead of losing it.
+ */
+public class MaterialReservation {
+    private final Reference2IntOpenHashMap<Item> neededCounts = new Reference2IntOpenHashMap<>(); //Bill of materials for the whole build
+    private final Reference2ObjectOpenHashMap<Item, ItemStack> neededStacks = new Reference2ObjectOpenHashMap<>(); //The stack each needed item came from, to match against when extracting
+    private final Reference2ObjectOpenHashMap<Item, ArrayList<ItemStack>> reserved = new Reference2ObjectOpenHashMap<>(); //What we actually took, kept as is so refunds give back the same items
+    private final Reference2IntOpenHashMap<Item> reservedCounts = new Reference2IntOpenHashMap<>();
+    private final Reference2IntOpenHashMap<Item> unallocated = new Reference2IntOpenHashMap<>(); //Reserved items not yet promised to a queued block
+
+    public void addNeeded(List<ItemStack> itemStacks) {
+        for (ItemStack itemStack : itemStacks) {
+            neededCounts.addTo(itemStack.getItem(), itemStack.getCount());
+            neededStacks.putIfAbsent(itemStack.getItem(), itemStack);
+        }
+    }
+
+    /**
+     * Takes everything added with addNeeded() from the player in one go - or as much of it as they have
+     */
+    public void reserve(Player player, GlobalPos boundInventory, Direction direction) {
+        for (Reference2IntMap.Entry<Item> entry : neededCounts.reference2IntEntrySet()) {
+            for (ItemStack extracted : BuildingUtils.extractItems(player, neededStacks.get(entry.getKey()), entry.getIntValue(), boundInventory, direction)) {
+                reserved.computeIfAbsent(extracted.getItem(), k -> new ArrayList<>()).add(extracted);
+                reservedCounts.addTo(extracted.getItem(), extracted.getCount());
+            }
+        }
+        unallocated.putAll(reservedCounts);
+    }
+
+    private static boolean hasAll(List<ItemStack> itemStacks, Reference2IntOpenHashMap<Item> counts) {
+        if (itemStacks.isEmpty()) return false; //Same as removeStacksFromInventory - blocks without drops can't be paid for
+        for (ItemStack itemStack : itemStacks) {
+            int needed = 0;
+            for (ItemStack other : itemStacks) { //These lists are tiny, but may have the same item more than once
+                if (other.getItem() == itemStack.getItem())
+                    needed += other.getCount();
+            }
+            if (counts.getInt(itemStack.getItem()) < needed) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Promises reserved items to a block while the build is being queued, returns false if there isn't enough left for it
+     */
+    public boolean allocate(List<ItemStack> itemStacks) {
+        if (!hasAll(itemStacks, unallocated)) return false;
+        for (ItemStack itemStack : itemStacks)
+            unallocated.addTo(itemStack.getItem(), -itemStack.getCount());
+        return true;
+    }
+
+    public boolean has(List<ItemStack> itemStacks) {
+        return hasAll(itemStacks, reservedCounts);
+    }
+
+    /**
+     * Uses up reserved items for a block that was placed, returns false (Taking nothing) if there isn't enough
+     */
+    public boolean take(List<ItemStack> itemStacks) {
+        if (!hasAll(itemStacks, reservedCounts)) return false;
+        for (ItemStack itemStack : itemStacks) {
+            reservedCounts.addTo(itemStack.getItem(), -itemStack.getCount());
+            ArrayList<ItemStack> stacks = reserved.get(itemStack.getItem());
+            int remaining = itemStack.getCount();
+            while (remaining > 0) {
+                ItemStack reservedStack = stacks.getLast();
+                int taken = Math.min(remaining, reservedStack.getCount());
+                reservedStack.shrink(taken);
+                remaining -= taken;
+                if (reservedStack.isEmpty())
+                    stacks.removeLast();
+            }
+        }
+        return true;
+    }
+
+    public boolean isEmpty() {
+        for (ArrayList<ItemStack> stacks : reserved.values()) {
+            if (!stacks.isEmpty()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Only the items we still hold are saved - that's all a refund needs
+     */
+    public ListTag toNBT(HolderLookup.Provider provider) {
+        ListTag listTag = new ListTag();
+        for (ArrayList<ItemStack> stacks : reserved.values()) {
+            for (ItemStack reservedStack : stacks) {
+                if (reservedStack.isEmpty()) continue;
+                CompoundTag tag = new CompoundTag();
+                tag.put("item", reservedStack.copyWithCount(1).save(provider));
+                tag.putInt("count", reservedStack.getCount()); //AE2 can give us more than a stack at once, which ItemStack's own codec won't save
+                listTag.add(tag);
+            }
+        }
+        return listTag;
+    }
+
+    public static MaterialReservation fromNBT(ListTag listTag, HolderLookup.Provider provider) {
+        MaterialReservation reservation = new MaterialReservation();
+        for (int i = 0; i < listTag.size(); i++) {
+            CompoundTag tag = listTag.getCompound(i);
+            ItemStack reservedStack = ItemStack.parseOptional(provider, tag.getCompound("item"));
+            if (reservedStack.isEmpty()) continue; //Item was removed from the game
+            reservedStack.setCount(tag.getInt("count"));
+            reservation.addReserved(reservedStack);
+        }
+        return reservation;
+    }
+
+    /**
+     * A reservation holding items that were already taken some other way, like an AE2Session's buffer, so BG2Data can save and refund them
+     */
+    public static MaterialReservation of(List<ItemStack> itemStacks) {
+        MaterialReservation reservation = new MaterialReservation();
+        for (ItemStack itemStack : itemStacks) {
+            if (!itemStack.isEmpty())
+                reservation.addReserved(itemStack);
+        }
+        return reservation;
+    }
+
+    private void addReserved(ItemStack reservedStack) {
+        reserved.computeIfAbsent(reservedStack.getItem(), k -> new ArrayList<>()).add(reservedStack);
+        reservedCounts.addTo(reservedStack.getItem(), reservedStack.getCount());
+    }
+
+    public void refund(Player player, GlobalPos boundInventory, Direction direction) {
+        for (ArrayList<ItemStack> stacks : reserved.values()) {
+            for (ItemStack reservedStack : stacks) {
+                while (!reservedStack.isEmpty()) //Extracting from AE2 can give us more than a stack at once
+                    BuildingUtils.giveItemToPlayer(player, reservedStack.split(reservedStack.getMaxStackSize()), boundInventory, direction);
+            }
+        }
+        reserved.clear();
+        reservedCounts.clear();
+        unallocated.clear();
+    }
+}
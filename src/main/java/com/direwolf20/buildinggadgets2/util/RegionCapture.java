@@ -0,0 +1,167 @@
+package com.direwolf20.buildinggadgets2.util;
+
+import com.direwolf20.buildinggadgets2.common.blocks.RenderBlock;
+import com.direwolf20.buildinggadgets2.util.datatypes.BlockBuffer;
+import com.mojang.logging.LogUtils;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import net.minecraft.Util;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.PalettedContainer;
+import org.slf4j.Logger;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Captures an area of the world for Copy mode. snapshotChunk() runs on the server thread and copies the block palette of every chunk section in one chunk column,
+ * working out what to store for each distinct BlockState once. process() then builds the list from those copies and is safe to run on worker threads.
+ * Hardness can depend on the position (Usually through a block entity), so states with block entities have getDestroySpeed checked at each position instead.
+ */
+public class RegionCapture {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private final BlockPos min;
+    private final BlockPos max;
+    private final BlockPos copyStart;
+    private final Long2ObjectOpenHashMap<PalettedContainer<BlockState>> sections = new Long2ObjectOpenHashMap<>(); //SectionPos.asLong() -> Copy of that section's states, missing if outside the world
+    private final Reference2ObjectOpenHashMap<BlockState, BlockState> copyStates = new Reference2ObjectOpenHashMap<>(); //State in the world -> State we store for it
+    private final ReferenceOpenHashSet<BlockState> perPositionStates = new ReferenceOpenHashSet<>(); //States in copyStates whose getDestroySpeed still has to be checked at each position
+    private final LongOpenHashSet unbreakablePositions = new LongOpenHashSet(); //BlockPos.asLong() of the perPositionStates that turned out to be unbreakable, these are stored as air
+    private final int minChunkX;
+    private final int minChunkZ;
+    private final int chunksX;
+    private final int chunksZ;
+
+    public RegionCapture(BlockPos start, BlockPos end, BlockPos copyStart) {
+        this.min = BlockPos.min(start, end);
+        this.max = BlockPos.max(start, end);
+        this.copyStart = copyStart;
+        this.minChunkX = SectionPos.blockToSectionCoord(min.getX());
+        this.minChunkZ = SectionPos.blockToSectionCoord(min.getZ());
+        this.chunksX = SectionPos.blockToSectionCoord(max.getX()) - minChunkX + 1;
+        this.chunksZ = SectionPos.blockToSectionCoord(max.getZ()) - minChunkZ + 1;
+    }
+
+    public static RegionCapture snapshot(Level level, BlockPos start, BlockPos end, BlockPos copyStart) {
+        return new RegionCapture(start, end, copyStart).snapshotAll(level);
+    }
+
+    public RegionCapture snapshotAll(Level level) {
+        for (int i = 0; i < getChunkCount(); i++)
+            snapshotChunk(level, i);
+        return this;
+    }
+
+    public long getSize() {
+        return AreaLimits.getSize(min, max);
+    }
+
+    public int getChunkCount() {
+        return chunksX * chunksZ;
+    }
+
+    /**
+     * Snapshots one chunk column of the area, index is from 0 to getChunkCount() - 1. Must be called on the server thread
+     */
+    public void snapshotChunk(Level level, int index) {
+        resolve(Blocks.VOID_AIR.defaultBlockState(), level, min); //What getBlockState returns outside the world
+        int chunkX = minChunkX + index % chunksX;
+        int chunkZ = minChunkZ + index / chunksX;
+        LevelChunk chunk = level.getChunk(chunkX, chunkZ);
+        for (int sectionY = SectionPos.blockToSectionCoord(min.getY()); sectionY <= SectionPos.blockToSectionCoord(max.getY()); sectionY++) {
+            int sectionIndex = chunk.getSectionIndexFromSectionY(sectionY);
+            if (sectionIndex < 0 || sectionIndex >= chunk.getSectionsCount()) continue;
+            PalettedContainer<BlockState> states = chunk.getSection(sectionIndex).getStates().copy();
+            BlockPos sectionOrigin = SectionPos.of(chunkX, sectionY, chunkZ).origin();
+            boolean[] hasPerPosition = {false};
+            states.count((state, count) -> {
+                resolve(state, level, sectionOrigin);
+                if (perPositionStates.contains(state))
+                    hasPerPosition[0] = true;
+            });
+            if (hasPerPosition[0])
+                checkPositions(level, states, sectionOrigin);
+            sections.put(SectionPos.asLong(chunkX, sectionY, chunkZ), states);
+        }
+    }
+
+    private void resolve(BlockState state, Level level, BlockPos pos) {
+        if (copyStates.containsKey(state)) return;
+        if (!GadgetUtils.isValidStateIgnoringPos(state) || state.getBlock() instanceof RenderBlock) {
+            copyStates.put(state, Blocks.AIR.defaultBlockState()); //We need to have a block in EVERY position, so write air if invalid
+        } else if (state.hasBlockEntity()) {
+            copyStates.put(state, GadgetUtils.cleanBlockState(state));
+            perPositionStates.add(state);
+        } else if (state.getDestroySpeed(level, pos) < 0) {
+            copyStates.put(state, Blocks.AIR.defaultBlockState());
+        } else {
+            copyStates.put(state, GadgetUtils.cleanBlockState(state));
+        }
+    }
+
+    //Checks the hardness of every perPositionStates block in this section that's inside the area
+    private void checkPositions(Level level, PalettedContainer<BlockState> states, BlockPos sectionOrigin) {
+        BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+        for (int y = Math.max(min.getY(), sectionOrigin.getY()); y <= Math.min(max.getY(), sectionOrigin.getY() + 15); y++) {
+            for (int z = Math.max(min.getZ(), sectionOrigin.getZ()); z <= Math.min(max.getZ(), sectionOrigin.getZ() + 15); z++) {
+                for (int x = Math.max(min.getX(), sectionOrigin.getX()); x <= Math.min(max.getX(), sectionOrigin.getX() + 15); x++) {
+                    BlockState state = states.get(x & 15, y & 15, z & 15);
+                    if (perPositionStates.contains(state) && state.getDestroySpeed(level, pos.set(x, y, z)) < 0)
+                        unbreakablePositions.add(pos.asLong());
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds the copy list in BlockPos.betweenClosed order, one z slice per task
+     */
+    public BlockBuffer process() {
+        List<BlockBuffer> slices = IntStream.rangeClosed(min.getZ(), max.getZ()).parallel().mapToObj(this::processSlice).toList();
+        BlockBuffer coordinates = new BlockBuffer(slices.size() * slices.getFirst().size());
+        for (BlockBuffer slice : slices)
+            coordinates.addAll(slice);
+        return coordinates;
+    }
+
+    private BlockBuffer processSlice(int z) {
+        BlockBuffer slice = new BlockBuffer((max.getX() - min.getX() + 1) * (max.getY() - min.getY() + 1));
+        BlockState voidState = copyStates.get(Blocks.VOID_AIR.defaultBlockState());
+        for (int y = min.getY(); y <= max.getY(); y++) {
+            for (int x = min.getX(); x <= max.getX(); x++) {
+                PalettedContainer<BlockState> states = sections.get(SectionPos.asLong(SectionPos.blockToSectionCoord(x), SectionPos.blockToSectionCoord(y), SectionPos.blockToSectionCoord(z)));
+                BlockState state;
+                if (states == null) {
+                    state = voidState;
+                } else {
+                    BlockState worldState = states.get(x & 15, y & 15, z & 15);
+                    state = !unbreakablePositions.isEmpty() && perPositionStates.contains(worldState) && unbreakablePositions.contains(BlockPos.asLong(x, y, z)) ? Blocks.AIR.defaultBlockState() : copyStates.get(worldState);
+                }
+                slice.add(state, BlockPos.asLong(x - copyStart.getX(), y - copyStart.getY(), z - copyStart.getZ()));
+            }
+        }
+        return slice;
+    }
+
+    /**
+     * Runs process() on a background thread, and hands the result to onDone back on the server thread
+     */
+    public void processAsync(MinecraftServer server, Consumer<BlockBuffer> onDone) {
+        CompletableFuture.supplyAsync(this::process, Util.backgroundExecutor())
+                .thenAcceptAsync(onDone, server)
+                .exceptionally(e -> {
+                    LOGGER.error("Failed to capture copy region {} to {}", min, max, e);
+                    return null;
+                });
+    }
+}
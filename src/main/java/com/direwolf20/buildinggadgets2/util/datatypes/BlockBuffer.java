@@ -0,0 +1,180 @@
+package com.direwolf20.buildinggadgets2.util.datatypes;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.world.level.block.state.BlockState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * A compact list of BlockState + BlockPos pairs, stored as a BlockStatePalette, a long[] of packed positions (BlockPos.asLong()) and an int[] of palette indices.
+ * Used instead of ArrayList<StatePos> for data we hold onto for a long time, like copy/paste storage, since it doesn't need 2+ objects per block.
+ */
+public class BlockBuffer {
+    private final BlockStatePalette palette;
+    private long[] positions;
+    private int[] stateIds;
+    private int size;
+    private boolean shared; //Our arrays belong to the buffer we're a view() of, so copy them before writing
+
+    public BlockBuffer() {
+        this(16);
+    }
+
+    public BlockBuffer(int capacity) {
+        this(new BlockStatePalette(), new long[Math.max(capacity, 1)], new int[Math.max(capacity, 1)], 0);
+    }
+
+    private BlockBuffer(BlockStatePalette palette, long[] positions, int[] stateIds, int size) {
+        this.palette = palette;
+        this.positions = positions;
+        this.stateIds = stateIds;
+        this.size = size;
+    }
+
+    public static BlockBuffer of(List<StatePos> list) {
+        if (list == null) return new BlockBuffer();
+        BlockBuffer blockBuffer = new BlockBuffer(list.size());
+        for (StatePos statePos : list)
+            blockBuffer.add(statePos.state, statePos.pos);
+        return blockBuffer;
+    }
+
+    public void add(BlockState state, BlockPos pos) {
+        add(state, pos.asLong());
+    }
+
+    public void add(BlockState state, long pos) {
+        if (shared || size == positions.length)
+            grow(size + 1);
+        positions[size] = pos;
+        stateIds[size] = palette.getOrAdd(state);
+        size++;
+    }
+
+    public void addAll(BlockBuffer other) {
+        if (shared || size + other.size > positions.length)
+            grow(size + other.size);
+        for (int i = 0; i < other.size; i++) {
+            positions[size] = other.positions[i];
+            stateIds[size] = palette.getOrAdd(other.palette.get(other.stateIds[i]));
+            size++;
+        }
+    }
+
+    private void grow(int minCapacity) {
+        int newCapacity = Math.max(minCapacity, positions.length + (positions.length >> 1) + 1);
+        positions = Arrays.copyOf(positions, newCapacity);
+        stateIds = Arrays.copyOf(stateIds, newCapacity);
+        shared = false;
+    }
+
+    private void ensureOwned() {
+        if (shared)
+            grow(size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public BlockStatePalette getPalette() {
+        return palette;
+    }
+
+    public int getStateId(int index) {
+        return stateIds[index];
+    }
+
+    public BlockState getState(int index) {
+        return palette.get(stateIds[index]);
+    }
+
+    public void setState(int index, BlockState state) {
+        ensureOwned();
+        stateIds[index] = palette.getOrAdd(state);
+    }
+
+    public long getPosLong(int index) {
+        return positions[index];
+    }
+
+    public BlockPos getPos(int index) {
+        return BlockPos.of(positions[index]);
+    }
+
+    public void reverse() {
+        ensureOwned();
+        for (int i = 0, j = size - 1; i < j; i++, j--) {
+            long pos = positions[i];
+            positions[i] = positions[j];
+            positions[j] = pos;
+            int stateId = stateIds[i];
+            stateIds[i] = stateIds[j];
+            stateIds[j] = stateId;
+        }
+    }
+
+    /**
+     * Streams every entry without creating any StatePos or BlockPos objects
+     */
+    public void forEach(ObjLongConsumer<BlockState> consumer) {
+        for (int i = 0; i < size; i++)
+            consumer.accept(palette.get(stateIds[i]), positions[i]);
+    }
+
+    /**
+     * A snapshot of this buffer, for handing to another thread while this one keeps growing
+     */
+    public BlockBuffer copy() {
+        return new BlockBuffer(palette.copy(), Arrays.copyOf(positions, Math.max(size, 1)), Arrays.copyOf(stateIds, Math.max(size, 1)), size);
+    }
+
+    /**
+     * The entries added so far, sharing this buffer's arrays rather than copying them. Appending to this buffer afterwards only writes past what the
+     * view can see (or into new arrays once it grows), so the view never changes - as long as nothing calls setState or reverse on this buffer
+     */
+    public BlockBuffer view() {
+        BlockBuffer view = new BlockBuffer(palette.copy(), positions, stateIds, size);
+        view.shared = true;
+        return view;
+    }
+
+    /**
+     * Unlike the copy data formats this keeps the order and any repeated positions, so its used for lists that are played back in order like undo lists
+     */
+    public CompoundTag toNBT() {
+        CompoundTag tag = new CompoundTag();
+        tag.put("blockstatemap", palette.toNBT());
+        tag.putLongArray("positions", Arrays.copyOf(positions, size));
+        tag.putIntArray("stateids", Arrays.copyOf(stateIds, size));
+        return tag;
+    }
+
+    public static BlockBuffer fromNBT(CompoundTag tag) {
+        BlockStatePalette palette = BlockStatePalette.fromNBT(tag.getList("blockstatemap", Tag.TAG_COMPOUND));
+        long[] positions = tag.getLongArray("positions");
+        int[] stateIds = tag.getIntArray("stateids");
+        int size = Math.min(positions.length, stateIds.length);
+        for (int i = 0; i < size; i++) {
+            if (stateIds[i] < 0 || stateIds[i] >= palette.size())
+                return new BlockBuffer(); //Corrupt, better to lose the list than crash reading it
+        }
+        return new BlockBuffer(palette, Arrays.copyOf(positions, Math.max(size, 1)), Arrays.copyOf(stateIds, Math.max(size, 1)), size);
+    }
+
+    public ArrayList<StatePos> toStatePosList() {
+        ArrayList<StatePos> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            list.add(new StatePos(palette.get(stateIds[i]), BlockPos.of(positions[i])));
+        return list;
+    }
+}
@@ -0,0 +1,85 @@
+package com.direwolf20.buildinggadgets2.util.datatypes;
+
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.world.level.block.state.BlockState;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An ordered list of unique BlockStates, with an identity hash lookup from BlockState -> index.
+ * Used whenever we write BlockStates out as palette indexes, so encoding a state doesn't have to scan the list.
+ */
+public class BlockStatePalette {
+    private final ArrayList<BlockState> states = new ArrayList<>();
+    private final Reference2IntOpenHashMap<BlockState> ids = new Reference2IntOpenHashMap<>(); //BlockStates are singletons, so identity lookups are safe
+
+    public BlockStatePalette() {
+        ids.defaultReturnValue(-1);
+    }
+
+    public static BlockStatePalette of(List<StatePos> list) {
+        BlockStatePalette palette = new BlockStatePalette();
+        if (list == null) return palette;
+        for (StatePos statePos : list)
+            palette.getOrAdd(statePos.state);
+        return palette;
+    }
+
+    /**
+     * Returns the index of this state, adding it to the palette if its not there yet
+     */
+    public int getOrAdd(BlockState state) {
+        int id = ids.getInt(state);
+        if (id == -1) {
+            id = states.size();
+            states.add(state);
+            ids.put(state, id);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the index of this state, or -1 if it isn't in the palette
+     */
+    public int getId(BlockState state) {
+        return ids.getInt(state);
+    }
+
+    public BlockState get(int id) {
+        return states.get(id);
+    }
+
+    public int size() {
+        return states.size();
+    }
+
+    public ArrayList<BlockState> getStates() {
+        return states;
+    }
+
+    /**
+     * A copy with the same indexes, so ids taken from this palette stay valid in the copy
+     */
+    public BlockStatePalette copy() {
+        BlockStatePalette palette = new BlockStatePalette();
+        palette.states.addAll(states);
+        palette.ids.putAll(ids);
+        return palette;
+    }
+
+    public ListTag toNBT() {
+        return StatePos.getBlockStateNBT(states);
+    }
+
+    public static BlockStatePalette fromNBT(ListTag listTag) {
+        BlockStatePalette palette = new BlockStatePalette();
+        for (BlockState blockState : StatePos.getBlockStateMapFromNBT(listTag)) {
+            //Keep every entry, even duplicates (Like missing blocks that all read back as air), so the stored indexes still line up
+            palette.ids.putIfAbsent(blockState, palette.states.size());
+            palette.states.add(blockState);
+        }
+        return palette;
+    }
+}
@@ -38,7 +38,7 @@ public class StatePos {
         this.pos = NbtUtils.readBlockPos(compoundTag, "blockpos").orElse(BlockPos.ZERO);
     }
 
-    public StatePos(CompoundTag compoundTag, ArrayList<BlockState> blockStates) {
+    public StatePos(CompoundTag compoundTag, BlockStatePalette blockStates) {
         if (!compoundTag.contains("blockstateshort") || !compoundTag.contains("blockpos")) {
             this.state = null;
             this.pos = null;
@@ -54,20 +54,15 @@ public class StatePos {
         return compoundTag;
     }
 
-    public CompoundTag getTag(ArrayList<BlockState> blockStates) {
+    public CompoundTag getTag(BlockStatePalette blockStates) {
         CompoundTag compoundTag = new CompoundTag();
-        compoundTag.putShort("blockstateshort", (short) blockStates.indexOf(state));
+        compoundTag.putShort("blockstateshort", (short) blockStates.getId(state));
         compoundTag.putLong("blockpos", pos.asLong());
         return compoundTag;
     }
 
     public static ArrayList<BlockState> getBlockStateMap(ArrayList<StatePos> list) {
-        ArrayList<BlockState> blockStateMap = new ArrayList<>();
-        for (StatePos statePos : list) {
-            if (!blockStateMap.contains(statePos.state))
-                blockStateMap.add(statePos.state);
-        }
-        return blockStateMap;
+        return BlockStatePalette.of(list).getStates();
     }
 
     public static ArrayList<StatePos> rotate90Degrees(ArrayList<StatePos> list, ArrayList<TagPos> tagListMutable) {
@@ -0,0 +1,372 @@
+package com.direwolf20.buildinggadgets2.util.datatypes;
+
+import com.direwolf20.buildinggadgets2.common.worlddata.BG2Data;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingOutputStream;
+import com.mojang.logging.LogUtils;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.Tag;
+import net.minecraft.util.Mth;
+import net.minecraft.util.SimpleBitStorage;
+import org.slf4j.Logger;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * A box of BlockStates, stored as runs of palette indexes in BlockPos.betweenClosed order.
+ * Copies are mostly air (or other repeated blocks) so a run of thousands of identical blocks is just 2 ints, on disk, over the network and in memory.
+ */
+public class StateRegion {
+    private static final Logger LOGGER = LogUtils.getLogger();
+    private static final int MISSING = -1; //Run id for positions we have no state for, these are skipped when decoding
+    public static final int PACKED_FORMAT_VERSION = 2; //Copy data without a version is the original int array format
+    public static final int RUN_LENGTH_FORMAT_VERSION = 3;
+
+    private BlockBuffer pending; //A live buffer we were handed but haven't encoded yet, see lazyOf()
+    private BlockPos start = BlockPos.ZERO;
+    private BlockPos end = BlockPos.ZERO;
+    private BlockStatePalette palette = new BlockStatePalette();
+    private int[] runStates = new int[0];
+    private int[] runLengths = new int[0];
+    private int volume;
+    private String contentHash; //Worked out the first time its needed - regions never change once encoded, but a lazyOf() one isn't encoded until first read
+
+    private StateRegion() {
+    }
+
+    public static StateRegion of(BlockBuffer blockBuffer) {
+        StateRegion stateRegion = new StateRegion();
+        stateRegion.encode(blockBuffer);
+        return stateRegion;
+    }
+
+    /**
+     * Holds onto the buffer and only encodes it the first time it's read. Used for the cut journal, which hands us its buffer every tick while the cut is running.
+     * Until then the region follows the live buffer - call ensureEncoded() before handing it to anything that should keep what's there now
+     */
+    public static StateRegion lazyOf(BlockBuffer blockBuffer) {
+        StateRegion stateRegion = new StateRegion();
+        stateRegion.pending = blockBuffer;
+        return stateRegion;
+    }
+
+    /**
+     * Encodes the buffer given to lazyOf() now, fixing the region to what it holds at this point. Does nothing for any other region
+     */
+    public void ensureEncoded() {
+        if (pending == null) return;
+        BlockBuffer blockBuffer = pending;
+        pending = null;
+        encode(blockBuffer);
+    }
+
+    private void encode(BlockBuffer blockBuffer) {
+        if (blockBuffer == null || blockBuffer.isEmpty()) return;
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+        Long2IntOpenHashMap stateIdByPos = new Long2IntOpenHashMap(blockBuffer.size());
+        stateIdByPos.defaultReturnValue(MISSING);
+        for (int i = 0; i < blockBuffer.size(); i++) {
+            long pos = blockBuffer.getPosLong(i);
+            int x = BlockPos.getX(pos), y = BlockPos.getY(pos), z = BlockPos.getZ(pos);
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            minZ = Math.min(minZ, z);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+            maxZ = Math.max(maxZ, z);
+            stateIdByPos.put(pos, blockBuffer.getStateId(i));
+        }
+        start = new BlockPos(minX, minY, minZ);
+        end = new BlockPos(maxX, maxY, maxZ);
+
+        //Rebuild the palette as we go, so states that are no longer used (Like the void air a cut starts with) drop out
+        int[] remap = new int[blockBuffer.getPalette().size()];
+        Arrays.fill(remap, MISSING);
+        RunBuilder runBuilder = new RunBuilder();
+        for (BlockPos pos : BlockPos.betweenClosed(start, end)) {
+            int oldId = stateIdByPos.get(pos.asLong());
+            int newId = MISSING;
+            if (oldId != MISSING) {
+                if (remap[oldId] == MISSING)
+                    remap[oldId] = palette.getOrAdd(blockBuffer.getPalette().get(oldId));
+                newId = remap[oldId];
+            }
+            runBuilder.add(newId, 1);
+        }
+        runBuilder.build(this);
+    }
+
+    public boolean isEmpty() {
+        ensureEncoded();
+        return volume == 0;
+    }
+
+    public BlockBuffer toBlockBuffer() {
+        ensureEncoded();
+        BlockBuffer blockBuffer = new BlockBuffer(volume);
+        int run = 0;
+        int leftInRun = runLengths.length == 0 ? 0 : runLengths[0];
+        for (BlockPos pos : BlockPos.betweenClosed(start, end)) {
+            while (leftInRun == 0 && run < runLengths.length - 1)
+                leftInRun = runLengths[++run];
+            if (leftInRun == 0) break;
+            leftInRun--;
+            if (runStates[run] != MISSING)
+                blockBuffer.add(palette.get(runStates[run]), pos.asLong());
+        }
+        return blockBuffer;
+    }
+
+    /**
+     * Writes whichever of the run length or bit-packed formats is smaller for this region
+     */
+    public CompoundTag toNBT() {
+        ensureEncoded();
+        CompoundTag tag = new CompoundTag();
+        if (volume == 0) return tag;
+        boolean hasMissing = false;
+        for (int runState : runStates) {
+            if (runState == MISSING) {
+                hasMissing = true;
+                break;
+            }
+        }
+        int missingId = palette.size(); //Missing positions are written one past the end of the palette, which the reader skips
+        int bits = Math.max(1, Mth.ceillog2(hasMissing ? missingId + 1 : missingId));
+        long packedSize = (long) volume * bits;
+        long runLengthSize = (long) runStates.length * 64;
+
+        tag.put("startpos", BG2Data.writeBlockPos(start));
+        tag.put("endpos", BG2Data.writeBlockPos(end));
+        tag.put("blockstatemap", palette.toNBT());
+        if (runLengthSize < packedSize) {
+            int[] states = new int[runStates.length];
+            for (int i = 0; i < runStates.length; i++)
+                states[i] = runStates[i] == MISSING ? missingId : runStates[i];
+            tag.putInt("version", RUN_LENGTH_FORMAT_VERSION);
+            tag.putIntArray("runstates", states);
+            tag.putIntArray("runlengths", runLengths);
+        } else {
+            SimpleBitStorage bitStorage = new SimpleBitStorage(bits, volume);
+            int index = 0;
+            for (int run = 0; run < runStates.length; run++) {
+                int state = runStates[run] == MISSING ? missingId : runStates[run];
+                for (int i = 0; i < runLengths[run]; i++)
+                    bitStorage.set(index++, state);
+            }
+            tag.putInt("version", PACKED_FORMAT_VERSION);
+            tag.putInt("bits", bits);
+            tag.putInt("size", volume);
+            tag.putLongArray("packedstatelist", bitStorage.getRaw());
+        }
+        return tag;
+    }
+
+    /**
+     * Reads the run length and bit-packed formats, as well as the original int array format
+     */
+    public static StateRegion fromNBT(CompoundTag tag) {
+        StateRegion stateRegion = new StateRegion();
+        if (!tag.contains("blockstatemap")) return stateRegion;
+        int version = tag.getInt("version");
+        int[] states;
+        int[] lengths;
+        if (version >= RUN_LENGTH_FORMAT_VERSION && tag.contains("runstates")) {
+            states = tag.getIntArray("runstates");
+            lengths = tag.getIntArray("runlengths");
+            if (states.length != lengths.length) {
+                LOGGER.error("Invalid run length copy data, ignoring it");
+                return stateRegion;
+            }
+        } else if (version >= PACKED_FORMAT_VERSION && tag.contains("packedstatelist")) {
+            int size = tag.getInt("size");
+            SimpleBitStorage bitStorage;
+            try {
+                bitStorage = new SimpleBitStorage(tag.getInt("bits"), size, tag.getLongArray("packedstatelist"));
+            } catch (SimpleBitStorage.InitializationException | IllegalArgumentException e) {
+                LOGGER.error("Invalid packed copy data, ignoring it", e);
+                return stateRegion;
+            }
+            states = new int[size];
+            bitStorage.unpack(states);
+            lengths = null;
+        } else if (tag.contains("statelist")) {
+            states = tag.getIntArray("statelist");
+            lengths = null;
+        } else {
+            return stateRegion;
+        }
+
+        stateRegion.palette = BlockStatePalette.fromNBT(tag.getList("blockstatemap", Tag.TAG_COMPOUND));
+        //Old lists stored their first and last positions, which aren't always the min and max corners, so normalize them to match BlockPos.betweenClosed
+        BlockPos first = BG2Data.readBlockPos(tag, "startpos");
+        BlockPos last = BG2Data.readBlockPos(tag, "endpos");
+        stateRegion.start = new BlockPos(Math.min(first.getX(), last.getX()), Math.min(first.getY(), last.getY()), Math.min(first.getZ(), last.getZ()));
+        stateRegion.end = new BlockPos(Math.max(first.getX(), last.getX()), Math.max(first.getY(), last.getY()), Math.max(first.getZ(), last.getZ()));
+        long boxVolume = (long) (stateRegion.end.getX() - stateRegion.start.getX() + 1) * (stateRegion.end.getY() - stateRegion.start.getY() + 1) * (stateRegion.end.getZ() - stateRegion.start.getZ() + 1);
+
+        int paletteSize = stateRegion.palette.size();
+        RunBuilder runBuilder = new RunBuilder();
+        long total = 0;
+        for (int i = 0; i < states.length && total < boxVolume; i++) {
+            int state = states[i] < 0 || states[i] >= paletteSize ? MISSING : states[i];
+            int length = lengths == null ? 1 : (int) Math.min(Math.max(lengths[i], 0), boxVolume - total);
+            runBuilder.add(state, length);
+            total += length;
+        }
+        runBuilder.build(stateRegion);
+        return stateRegion;
+    }
+
+    /**
+     * A hash of the encoded data, used by BG2Data to store identical copies (Like the same redprint given to many players) only once
+     */
+    public String getContentHash() {
+        if (contentHash == null) {
+            HashingOutputStream hashingOutputStream = new HashingOutputStream(Hashing.sha256(), OutputStream.nullOutputStream());
+            try {
+                NbtIo.write(toNBT(), new DataOutputStream(hashingOutputStream));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); //Can't happen, we aren't writing anywhere
+            }
+            contentHash = hashingOutputStream.hash().toString();
+        }
+        return contentHash;
+    }
+
+    public int getRunCount() {
+        ensureEncoded();
+        return runStates.length;
+    }
+
+    /**
+     * The bounds and palette, everything a Reader needs before it can start decoding runs
+     */
+    public CompoundTag getHeaderNBT() {
+        ensureEncoded();
+        CompoundTag tag = new CompoundTag();
+        tag.put("startpos", BG2Data.writeBlockPos(start));
+        tag.put("endpos", BG2Data.writeBlockPos(end));
+        tag.put("blockstatemap", palette.toNBT());
+        return tag;
+    }
+
+    /**
+     * Runs [from, to) - used to stream a region to the client a piece at a time. Like toNBT, each piece is written as runs or as bit-packed
+     * ids for every block it covers, whichever is smaller, so a busy copy with lots of 1 block runs doesn't cost 2 ints per block
+     */
+    public CompoundTag getRunsNBT(int from, int to) {
+        ensureEncoded();
+        CompoundTag tag = new CompoundTag();
+        int blocks = 0;
+        for (int run = from; run < to; run++)
+            blocks += runLengths[run];
+        int missingId = palette.size(); //Same as toNBT, the Reader skips anything past the end of the palette
+        int bits = Math.max(1, Mth.ceillog2(missingId + 1));
+        if ((long) (to - from) * 64 <= (long) blocks * bits) {
+            tag.putIntArray("runstates", Arrays.copyOfRange(runStates, from, to));
+            tag.putIntArray("runlengths", Arrays.copyOfRange(runLengths, from, to));
+            return tag;
+        }
+        SimpleBitStorage bitStorage = new SimpleBitStorage(bits, blocks);
+        int index = 0;
+        for (int run = from; run < to; run++) {
+            int state = runStates[run] == MISSING ? missingId : runStates[run];
+            for (int i = 0; i < runLengths[run]; i++)
+                bitStorage.set(index++, state);
+        }
+        tag.putInt("bits", bits);
+        tag.putInt("size", blocks);
+        tag.putLongArray("packedstatelist", bitStorage.getRaw());
+        return tag;
+    }
+
+    /**
+     * Decodes a region streamed with getHeaderNBT() and getRunsNBT(), appending blocks as each piece arrives so they can be used before the whole region is here
+     */
+    public static class Reader {
+        private final BlockStatePalette palette;
+        private final Iterator<BlockPos> positions;
+
+        public Reader(CompoundTag headerTag) {
+            palette = BlockStatePalette.fromNBT(headerTag.getList("blockstatemap", Tag.TAG_COMPOUND));
+            if (headerTag.contains("startpos"))
+                positions = BlockPos.betweenClosed(BG2Data.readBlockPos(headerTag, "startpos"), BG2Data.readBlockPos(headerTag, "endpos")).iterator();
+            else
+                positions = Collections.emptyIterator(); //Empty region
+        }
+
+        public void readRuns(CompoundTag runsTag, BlockBuffer output) {
+            if (runsTag.contains("packedstatelist")) {
+                readPacked(runsTag, output);
+                return;
+            }
+            int[] states = runsTag.getIntArray("runstates");
+            int[] lengths = runsTag.getIntArray("runlengths");
+            for (int run = 0; run < Math.min(states.length, lengths.length); run++) {
+                boolean missing = states[run] < 0 || states[run] >= palette.size();
+                for (int i = 0; i < lengths[run]; i++) {
+                    if (!positions.hasNext()) return;
+                    BlockPos pos = positions.next();
+                    if (!missing)
+                        output.add(palette.get(states[run]), pos.asLong());
+                }
+            }
+        }
+
+        private void readPacked(CompoundTag runsTag, BlockBuffer output) {
+            SimpleBitStorage bitStorage;
+            try {
+                bitStorage = new SimpleBitStorage(runsTag.getInt("bits"), runsTag.getInt("size"), runsTag.getLongArray("packedstatelist"));
+            } catch (SimpleBitStorage.InitializationException | IllegalArgumentException e) {
+                LOGGER.error("Invalid packed copy data piece, ignoring it", e);
+                return;
+            }
+            for (int i = 0; i < bitStorage.getSize(); i++) {
+                if (!positions.hasNext()) return;
+                BlockPos pos = positions.next();
+                int state = bitStorage.get(i);
+                if (state < palette.size())
+                    output.add(palette.get(state), pos.asLong());
+            }
+        }
+    }
+
+    /**
+     * Collects runs of the same id, merging each new entry into the previous run when they match
+     */
+    private static class RunBuilder {
+        private final IntArrayList states = new IntArrayList();
+        private final IntArrayList lengths = new IntArrayList();
+        private int volume;
+
+        private void add(int state, int length) {
+            if (length <= 0) return;
+            int last = states.size() - 1;
+            if (last >= 0 && states.getInt(last) == state)
+                lengths.set(last, lengths.getInt(last) + length);
+            else {
+                states.add(state);
+                lengths.add(length);
+            }
+            volume += length;
+        }
+
+        private void build(StateRegion stateRegion) {
+            stateRegion.runStates = states.toIntArray();
+            stateRegion.runLengths = lengths.toIntArray();
+            stateRegion.volume = volume;
+        }
+    }
+}
@@ -38,22 +38,20 @@ public class Template {
 
     public void replaceBlocks(BlockState sourceState, BlockState targetState) {
         if (statePosArrayList == null || statePosArrayList.equals("")) return;
-        ArrayList<StatePos> statePosList = new ArrayList<>();
+        BlockBuffer blockBuffer;
 
         try {
             CompoundTag deserializedNBT = TagParser.parseTag(this.statePosArrayList);
-            statePosList = BG2Data.statePosListFromNBTMapArray(deserializedNBT);
+            blockBuffer = BG2Data.blockBufferFromNBTMapArray(deserializedNBT);
         } catch (Exception e) {
             return;
         }
 
-        if (statePosList.isEmpty()) return;
+        if (blockBuffer.isEmpty() || blockBuffer.getPalette().getId(sourceState) == -1) return;
 
-        for (StatePos statePos : statePosList) {
-            if (statePos.state.equals(sourceState))
-                statePos.state = targetState;
-        }
-        this.statePosArrayList = BG2Data.statePosListToNBTMapArray(statePosList).toString();
+        BlockBuffer replacedBuffer = new BlockBuffer(blockBuffer.size()); //Rebuild rather than edit in place, so the source state drops out of the palette
+        blockBuffer.forEach((state, pos) -> replacedBuffer.add(state == sourceState ? targetState : state, pos));
+        this.statePosArrayList = BG2Data.blockBufferToNBTMapArray(replacedBuffer).toString();
     }
 
     public Template(String json) {
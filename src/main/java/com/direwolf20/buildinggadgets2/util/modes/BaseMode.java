@@ -6,7 +6,10 @@ import com.direwolf20.buildinggadgets2.common.items.BaseGadget;
 import com.direwolf20.buildinggadgets2.util.GadgetNBT;
 import com.direwolf20.buildinggadgets2.util.GadgetUtils;
 import com.direwolf20.buildinggadgets2.util.VectorHelper;
-import com.direwolf20.buildinggadgets2.util.datatypes.StatePos;
+import com.direwolf20.buildinggadgets2.util.datatypes.BlockBuffer;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
 import net.minecraft.resources.ResourceLocation;
@@ -17,8 +20,7 @@ import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.phys.BlockHitResult;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.List;
 
 public abstract class BaseMode implements Comparable<BaseMode> {
     public boolean isExchanging;
@@ -30,23 +32,28 @@ public abstract class BaseMode implements Comparable<BaseMode> {
     /**
      * Collects a list of blocks that should be used when building and rendering the mode - Checks for an Anchor first
      */
-    public final ArrayList<StatePos> collect(Direction hitSide, Player player, BlockPos start, BlockState state) {
+    public final BlockBuffer collect(Direction hitSide, Player player, BlockPos start, BlockState state) {
         ItemStack gadget = BaseGadget.getGadget(player);
-        final ArrayList<StatePos> buildList = new ArrayList<>();
         if (!player.mayBuild())
-            return buildList;
+            return new BlockBuffer();
         List<BlockPos> anchorList = GadgetNBT.getAnchorList(gadget);
         if (anchorList.isEmpty()) {
             //if (!isExchanging || !player.level().getBlockState(start).equals(state))
-            buildList.addAll(collectWorld(hitSide, player, start, state));
-        } else {
-            List<BlockPos> posList = GadgetNBT.getAnchorList(gadget);
-            posList.forEach(e -> buildList.add(new StatePos(state, e)));
+            return collectWorld(hitSide, player, start, state);
         }
+        BlockBuffer buildList = new BlockBuffer(anchorList.size());
+        anchorList.forEach(e -> buildList.add(state, e));
         return buildList;
     }
 
-    public abstract ArrayList<StatePos> collectWorld(Direction hitSide, Player player, BlockPos start, BlockState state);
+    public abstract BlockBuffer collectWorld(Direction hitSide, Player player, BlockPos start, BlockState state);
+
+    /**
+     * How far from start, along any axis, collectWorld can place or look at blocks. CollectCache watches that area for changes
+     */
+    public int getReach(ItemStack gadget) {
+        return GadgetNBT.getToolRange(gadget) + 1;
+    }
 
     public abstract ResourceLocation getId();
 
@@ -78,28 +85,34 @@ public abstract class BaseMode implements Comparable<BaseMode> {
         return true;
     }
 
-    public ArrayList<StatePos> removeUnConnected(Level level, Player player, BlockPos startAt, ArrayList<StatePos> coordinates, Direction hitSide) {
+    public BlockBuffer removeUnConnected(Level level, Player player, BlockPos startAt, BlockBuffer coordinates, Direction hitSide) {
         if (coordinates.isEmpty()) return coordinates;
-        Map<BlockPos, BlockState> coordinatesPositions = coordinates.stream().collect(Collectors.toMap(e -> e.pos, e -> e.state));
-        Set<StatePos> visitedBlocks = new HashSet<>(); //Blocks we've checked
-        Queue<BlockPos> blocksToVisit = new LinkedList<>(); //Blocks we need to check
-        blocksToVisit.offer(startAt); //Add the starting block to 'need to check'
+        Long2IntOpenHashMap coordinatesPositions = new Long2IntOpenHashMap(coordinates.size()); //BlockPos.asLong() -> index in coordinates
+        coordinatesPositions.defaultReturnValue(-1);
+        for (int i = 0; i < coordinates.size(); i++)
+            coordinatesPositions.put(coordinates.getPosLong(i), i);
+        List<Direction> directions = Direction.stream().filter(e -> !e.getAxis().equals(hitSide.getAxis())).toList();
+        BlockBuffer connected = new BlockBuffer(coordinates.size());
+        LongOpenHashSet visitedBlocks = new LongOpenHashSet(); //Blocks we've checked
+        LongArrayFIFOQueue blocksToVisit = new LongArrayFIFOQueue(); //Blocks we need to check
+        blocksToVisit.enqueue(startAt.asLong()); //Add the starting block to 'need to check'
 
         while (!blocksToVisit.isEmpty()) {
-            BlockPos currentPos = blocksToVisit.poll(); //Get the current block to check
+            long currentPos = blocksToVisit.dequeueLong(); //Get the current block to check
+            int index = coordinatesPositions.get(currentPos);
 
-            if (!visitedBlocks.contains(new StatePos(coordinatesPositions.get(currentPos), currentPos)) && coordinatesPositions.containsKey(currentPos)) { //If we haven't added it already its in our list of coords we might place in
-                visitedBlocks.add(new StatePos(coordinatesPositions.get(currentPos), currentPos)); //This is a list of blocks that we considered valid
+            if (index != -1 && visitedBlocks.add(currentPos)) { //If we haven't added it already its in our list of coords we might place in
+                connected.add(coordinates.getState(index), currentPos); //This is a list of blocks that we considered valid
 
-                for (Direction direction : Direction.stream().filter(e -> !e.getAxis().equals(hitSide.getAxis())).toList()) { //Grab all the blocks around this one based on hitSide and add to the list to check out
-                    BlockPos nextPos = currentPos.relative(direction);
+                for (Direction direction : directions) { //Grab all the blocks around this one based on hitSide and add to the list to check out
+                    long nextPos = BlockPos.offset(currentPos, direction);
                     if (coordinatesPositions.containsKey(nextPos)) { //Only if its inside our list of coords to check.
-                        blocksToVisit.offer(nextPos);
+                        blocksToVisit.enqueue(nextPos);
                     }
                 }
             }
         }
-        return new ArrayList<>(visitedBlocks);
+        return connected;
     }
 
     public boolean isExchangingValid(Level level, Player player, BlockPos pos, ItemStack gadget) {
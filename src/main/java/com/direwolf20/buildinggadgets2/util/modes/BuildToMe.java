@@ -3,7 +3,7 @@ package com.direwolf20.buildinggadgets2.util.modes;
 import com.direwolf20.buildinggadgets2.BuildingGadgets2;
 import com.direwolf20.buildinggadgets2.common.items.BaseGadget;
 import com.direwolf20.buildinggadgets2.util.GadgetNBT;
-import com.direwolf20.buildinggadgets2.util.datatypes.StatePos;
+import com.direwolf20.buildinggadgets2.util.datatypes.BlockBuffer;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
 import net.minecraft.resources.ResourceLocation;
@@ -11,8 +11,6 @@ import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.block.state.BlockState;
 
-import java.util.ArrayList;
-
 public class BuildToMe extends BaseMode {
     public BuildToMe() {
         super(false);
@@ -24,8 +22,13 @@ public class BuildToMe extends BaseMode {
     }
 
     @Override
-    public ArrayList<StatePos> collectWorld(Direction hitSide, Player player, BlockPos start, BlockState state) {
-        ArrayList<StatePos> coordinates = new ArrayList<>();
+    public int getReach(ItemStack gadget) {
+        return 32; //Same clamp as collectWorld
+    }
+
+    @Override
+    public BlockBuffer collectWorld(Direction hitSide, Player player, BlockPos start, BlockState state) {
+        BlockBuffer coordinates = new BlockBuffer();
         ItemStack gadget = BaseGadget.getGadget(player);
         boolean placeontop = GadgetNBT.getSetting(gadget, GadgetNBT.ToggleableSettings.PLACE_ON_TOP.getName());
 
@@ -37,7 +40,7 @@ public class BuildToMe extends BaseMode {
         double difference = Math.max(0, Math.min(32, Math.abs(startCoord - playerCoord)));
         for (int i = 1; i < difference; i++) {
             if (isPosValid(player.level(), player, start.relative(hitSide, i), state))
-                coordinates.add(new StatePos(state, BlockPos.ZERO.relative(hitSide, i)));
+                coordinates.add(state, BlockPos.ZERO.relative(hitSide, i));
         }
 
         return coordinates;
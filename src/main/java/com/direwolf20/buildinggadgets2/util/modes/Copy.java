@@ -1,26 +1,23 @@
 package com.direwolf20.buildinggadgets2.util.modes;
 
 import com.direwolf20.buildinggadgets2.BuildingGadgets2;
-import com.direwolf20.buildinggadgets2.common.blocks.RenderBlock;
+import com.direwolf20.buildinggadgets2.common.events.CopyCaptureJobs;
 import com.direwolf20.buildinggadgets2.common.items.BaseGadget;
 import com.direwolf20.buildinggadgets2.common.items.GadgetCopyPaste;
+import com.direwolf20.buildinggadgets2.setup.Config;
+import com.direwolf20.buildinggadgets2.util.AreaLimits;
 import com.direwolf20.buildinggadgets2.util.GadgetNBT;
-import com.direwolf20.buildinggadgets2.util.GadgetUtils;
-import com.direwolf20.buildinggadgets2.util.VecHelpers;
-import com.direwolf20.buildinggadgets2.util.datatypes.StatePos;
+import com.direwolf20.buildinggadgets2.util.RegionCapture;
+import com.direwolf20.buildinggadgets2.util.datatypes.BlockBuffer;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
-import net.minecraft.network.chat.Component;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.ItemStack;
-import net.minecraft.world.level.Level;
-import net.minecraft.world.level.block.Blocks;
 import net.minecraft.world.level.block.state.BlockState;
-import net.minecraft.world.phys.AABB;
 
-import java.util.ArrayList;
-import java.util.stream.Stream;
+import java.util.UUID;
+import java.util.function.Consumer;
 
 public class Copy extends BaseMode {
     public Copy() {
@@ -33,43 +30,37 @@ public class Copy extends BaseMode {
     }
 
     @Override
-    public ArrayList<StatePos> collectWorld(Direction hitSide, Player player, BlockPos start, BlockState state) {
-        ArrayList<StatePos> coordinates = new ArrayList<>();
+    public BlockBuffer collectWorld(Direction hitSide, Player player, BlockPos start, BlockState state) {
+        RegionCapture capture = prepareCapture(player);
+        return capture == null ? new BlockBuffer() : capture.snapshotAll(player.level()).process();
+    }
+
+    /**
+     * Same as collect(), except the per-block work runs off the server thread, and very large areas are read from the world over several ticks.
+     * onDone is called on the server thread once it's finished - unless another copy was started with the same gadget in the meantime
+     */
+    public void collectAsync(Player player, UUID gadgetUUID, Consumer<BlockBuffer> onDone) {
+        Consumer<BlockBuffer> onLatest = CopyCaptureJobs.latestOnly(gadgetUUID, onDone);
+        RegionCapture capture = player.mayBuild() ? prepareCapture(player) : null;
+        if (capture == null)
+            onLatest.accept(new BlockBuffer());
+        else if (capture.getSize() > Config.COPY_JOB_THRESHOLD.get())
+            CopyCaptureJobs.start(gadgetUUID, player, capture, onLatest);
+        else
+            capture.snapshotAll(player.level()).processAsync(player.getServer(), onLatest);
+    }
+
+    /**
+     * Checks the copy area is valid for this player. Returns null if there's nothing to copy
+     */
+    private RegionCapture prepareCapture(Player player) {
         ItemStack heldItem = BaseGadget.getGadget(player);
-        if (!(heldItem.getItem() instanceof GadgetCopyPaste)) return coordinates; //Impossible....right?
-        Level level = player.level();
+        if (!(heldItem.getItem() instanceof GadgetCopyPaste)) return null; //Impossible....right?
         BlockPos copyStart = GadgetNBT.getCopyStartPos(heldItem);
         BlockPos copyEnd = GadgetNBT.getCopyEndPos(heldItem);
 
-        if (copyStart.equals(GadgetNBT.nullPos) || copyEnd.equals(GadgetNBT.nullPos)) return coordinates;
-
-        AABB area = VecHelpers.aabbFromBlockPos(copyStart, copyEnd);
-        int maxAxis = 500; //Todo Config?
-        if (area.getXsize() > maxAxis) {
-            player.displayClientMessage(Component.translatable("buildinggadgets2.messages.axistoolarge", "x", maxAxis, area.getXsize()), false);
-            return coordinates;
-        }
-        if (area.getYsize() > maxAxis) {
-            player.displayClientMessage(Component.translatable("buildinggadgets2.messages.axistoolarge", "y", maxAxis, area.getYsize()), false);
-            return coordinates;
-        }
-        if (area.getZsize() > maxAxis) {
-            player.displayClientMessage(Component.translatable("buildinggadgets2.messages.axistoolarge", "z", maxAxis, area.getZsize()), false);
-            return coordinates;
-        }
-        Stream<BlockPos> areaStream = BlockPos.betweenClosedStream(area);
-        long size = areaStream.count();
-        int maxSize = 100000;
-        if (size > maxSize) { //Todo Config?
-            player.displayClientMessage(Component.translatable("buildinggadgets2.messages.areatoolarge", maxSize, size), false);
-            return coordinates;
-        }
-        BlockPos.betweenClosedStream(area).map(BlockPos::immutable).forEach(pos -> {
-            if (GadgetUtils.isValidBlockState(level.getBlockState(pos), level, pos) && !(level.getBlockState(pos).getBlock() instanceof RenderBlock))
-                coordinates.add(new StatePos(GadgetUtils.cleanBlockState(level.getBlockState(pos)), pos.subtract(copyStart)));
-            else
-                coordinates.add(new StatePos(Blocks.AIR.defaultBlockState(), pos.subtract(copyStart))); //We need to have a block in EVERY position, so write air if invalid
-        });
-        return coordinates;
+        if (copyStart.equals(GadgetNBT.nullPos) || copyEnd.equals(GadgetNBT.nullPos)) return null;
+        if (!AreaLimits.checkArea(player, copyStart, copyEnd)) return null;
+        return new RegionCapture(copyStart, copyEnd, copyStart);
     }
 }
@@ -3,7 +3,7 @@ package com.direwolf20.buildinggadgets2.util.modes;
 import com.direwolf20.buildinggadgets2.BuildingGadgets2;
 import com.direwolf20.buildinggadgets2.common.items.BaseGadget;
 import com.direwolf20.buildinggadgets2.util.GadgetNBT;
-import com.direwolf20.buildinggadgets2.util.datatypes.StatePos;
+import com.direwolf20.buildinggadgets2.util.datatypes.BlockBuffer;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
 import net.minecraft.resources.ResourceLocation;
@@ -11,8 +11,6 @@ import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.block.state.BlockState;
 
-import java.util.ArrayList;
-
 public class Grid extends BaseMode {
     public Grid(boolean exchanging) {
         super(exchanging);
@@ -24,9 +22,14 @@ public class Grid extends BaseMode {
     }
 
     @Override
-    public ArrayList<StatePos> collectWorld(Direction hitSide, Player player, BlockPos start, BlockState state) {
+    public int getReach(ItemStack gadget) {
+        return (GadgetNBT.getToolRange(gadget) + 1) * 7 / 5 + 1; //+1 for place on top
+    }
+
+    @Override
+    public BlockBuffer collectWorld(Direction hitSide, Player player, BlockPos start, BlockState state) {
         ItemStack gadget = BaseGadget.getGadget(player);
-        ArrayList<StatePos> coordinates = new ArrayList<>();
+        BlockBuffer coordinates = new BlockBuffer();
         int range = GadgetNBT.getToolRange(gadget) + 1;
         boolean placeontop = GadgetNBT.getSetting(gadget, GadgetNBT.ToggleableSettings.PLACE_ON_TOP.getName());
         BlockPos startAt = placeontop ? start.above() : start;
@@ -37,7 +40,7 @@ public class Grid extends BaseMode {
                     continue;
                 BlockPos coord = new BlockPos(startAt.getX() + x, startAt.getY(), startAt.getZ() + z);
                 if (isPosValid(player.level(), player, coord, state))
-                    coordinates.add(new StatePos(state, coord.subtract(start)));
+                    coordinates.add(state, coord.subtract(start));
             }
         }
 
@@ -4,7 +4,7 @@ import com.direwolf20.buildinggadgets2.BuildingGadgets2;
 import com.direwolf20.buildinggadgets2.common.items.BaseGadget;
 import com.direwolf20.buildinggadgets2.util.GadgetNBT;
 import com.direwolf20.buildinggadgets2.util.MagicHelpers;
-import com.direwolf20.buildinggadgets2.util.datatypes.StatePos;
+import com.direwolf20.buildinggadgets2.util.datatypes.BlockBuffer;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
 import net.minecraft.resources.ResourceLocation;
@@ -12,8 +12,6 @@ import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.block.state.BlockState;
 
-import java.util.ArrayList;
-
 public class HorizontalWall extends BaseMode {
     public HorizontalWall() {
         super(false);
@@ -25,11 +23,11 @@ public class HorizontalWall extends BaseMode {
     }
 
     @Override
-    public ArrayList<StatePos> collectWorld(Direction hitSide, Player player, BlockPos start, BlockState state) {
+    public BlockBuffer collectWorld(Direction hitSide, Player player, BlockPos start, BlockState state) {
         ItemStack gadget = BaseGadget.getGadget(player);
         int range = GadgetNBT.getToolRange(gadget);
         int halfRange = range / 2;
-        ArrayList<StatePos> coordinates = new ArrayList<>();
+        BlockBuffer coordinates = new BlockBuffer();
         boolean placeontop = GadgetNBT.getSetting(gadget, GadgetNBT.ToggleableSettings.PLACE_ON_TOP.getName());
 
         if (hitSide.getAxis() == Direction.Axis.Y) {
@@ -37,7 +35,7 @@ public class HorizontalWall extends BaseMode {
                 for (int j = -halfRange; j <= halfRange; j++) {
                     BlockPos coord = new BlockPos(start.getX() - i, start.getY() + (placeontop ? 1 : 0), start.getZ() + j);
                     if (isPosValid(player.level(), player, coord, state))
-                        coordinates.add(new StatePos(state, coord.subtract(start)));
+                        coordinates.add(state, coord.subtract(start));
                 }
             }
 
@@ -55,7 +53,7 @@ public class HorizontalWall extends BaseMode {
                                     ? new BlockPos(start.getX() + value, start.getY(), start.getZ() + j)
                                     : new BlockPos(start.getX() + j, start.getY(), start.getZ() + value);
                     if (isPosValid(player.level(), player, coord, state))
-                        coordinates.add(new StatePos(state, coord.subtract(start)));
+                        coordinates.add(state, coord.subtract(start));
                 }
             }
         }
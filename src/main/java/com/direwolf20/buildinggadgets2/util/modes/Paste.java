@@ -1,15 +1,13 @@
 package com.direwolf20.buildinggadgets2.util.modes;
 
 import com.direwolf20.buildinggadgets2.BuildingGadgets2;
-import com.direwolf20.buildinggadgets2.util.datatypes.StatePos;
+import com.direwolf20.buildinggadgets2.util.datatypes.BlockBuffer;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.level.block.state.BlockState;
 
-import java.util.ArrayList;
-
 public class Paste extends BaseMode {
     public Paste() {
         super(false);
@@ -21,8 +19,8 @@ public class Paste extends BaseMode {
     }
 
     @Override
-    public ArrayList<StatePos> collectWorld(Direction hitSide, Player player, BlockPos start, BlockState state) {
-        ArrayList<StatePos> coordinates = new ArrayList<>();
+    public BlockBuffer collectWorld(Direction hitSide, Player player, BlockPos start, BlockState state) {
+        BlockBuffer coordinates = new BlockBuffer();
         //Intentional No-Op
         return coordinates;
     }
@@ -3,7 +3,7 @@ package com.direwolf20.buildinggadgets2.util.modes;
 import com.direwolf20.buildinggadgets2.BuildingGadgets2;
 import com.direwolf20.buildinggadgets2.common.items.BaseGadget;
 import com.direwolf20.buildinggadgets2.util.GadgetNBT;
-import com.direwolf20.buildinggadgets2.util.datatypes.StatePos;
+import com.direwolf20.buildinggadgets2.util.datatypes.BlockBuffer;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
 import net.minecraft.resources.ResourceLocation;
@@ -11,8 +11,6 @@ import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.block.state.BlockState;
 
-import java.util.ArrayList;
-
 public class Stairs extends BaseMode {
     public Stairs() {
         super(false);
@@ -24,9 +22,9 @@ public class Stairs extends BaseMode {
     }
 
     @Override
-    public ArrayList<StatePos> collectWorld(Direction hitSide, Player player, BlockPos start, BlockState state) {
+    public BlockBuffer collectWorld(Direction hitSide, Player player, BlockPos start, BlockState state) {
         ItemStack gadget = BaseGadget.getGadget(player);
-        ArrayList<StatePos> coordinates = new ArrayList<>();
+        BlockBuffer coordinates = new BlockBuffer();
         boolean placeOnTop = GadgetNBT.getSetting(gadget, GadgetNBT.ToggleableSettings.PLACE_ON_TOP.getName());
 
         Direction side = hitSide;
@@ -47,7 +45,7 @@ public class Stairs extends BaseMode {
                         mutateZAxis ? shiftAxis : 0 // If we're hitting at the Z axis we should shift the Z axis of the block.
                 );
                 if (isPosValid(player.level(), player, coord, state))
-                    coordinates.add(new StatePos(state, coord.subtract(start)));
+                    coordinates.add(state, coord.subtract(start));
 
                 continue;
             }
@@ -62,7 +60,7 @@ public class Stairs extends BaseMode {
                     side.getAxis() == Direction.Axis.Z ? shiftAxis : 0
             );
             if (isPosValid(player.level(), player, coord, state))
-                coordinates.add(new StatePos(state, coord.subtract(start)));
+                coordinates.add(state, coord.subtract(start));
         }
 
         return coordinates;
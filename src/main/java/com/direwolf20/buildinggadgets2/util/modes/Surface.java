@@ -4,7 +4,7 @@ import com.direwolf20.buildinggadgets2.BuildingGadgets2;
 import com.direwolf20.buildinggadgets2.common.items.BaseGadget;
 import com.direwolf20.buildinggadgets2.util.GadgetNBT;
 import com.direwolf20.buildinggadgets2.util.GadgetUtils;
-import com.direwolf20.buildinggadgets2.util.datatypes.StatePos;
+import com.direwolf20.buildinggadgets2.util.datatypes.BlockBuffer;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
 import net.minecraft.resources.ResourceLocation;
@@ -14,8 +14,6 @@ import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.phys.AABB;
 
-import java.util.ArrayList;
-
 public class Surface extends BaseMode {
     public Surface(boolean isExchanging) {
         super(isExchanging);
@@ -27,19 +25,19 @@ public class Surface extends BaseMode {
     }
 
     @Override
-    public ArrayList<StatePos> collectWorld(Direction hitSide, Player player, BlockPos start, BlockState state) {
+    public BlockBuffer collectWorld(Direction hitSide, Player player, BlockPos start, BlockState state) {
         ItemStack gadget = BaseGadget.getGadget(player);
         int range = GadgetNBT.getToolRange(gadget);
         int bound = range / 2;
         Level level = player.level();
 
-        ArrayList<StatePos> coordinates = new ArrayList<>();
+        BlockBuffer coordinates = new BlockBuffer();
         BlockState lookingAtState = level.getBlockState(start);
         BlockPos startAt = isExchanging ? start : start.relative(hitSide);
         AABB box = GadgetUtils.getSquareArea(startAt, hitSide, bound);
         BlockPos.betweenClosedStream(box).map(BlockPos::immutable).forEach(pos -> {
             if (isPosValid(level, player, pos, state) && isPosValidCustom(level, pos, lookingAtState, gadget, hitSide))
-                coordinates.add(new StatePos(state, pos.subtract(start)));
+                coordinates.add(state, pos.subtract(start));
         });
 
         boolean connected = GadgetNBT.getSetting(gadget, GadgetNBT.ToggleableSettings.CONNECTED_AREA.getName());
@@ -3,7 +3,7 @@ package com.direwolf20.buildinggadgets2.util.modes;
 import com.direwolf20.buildinggadgets2.BuildingGadgets2;
 import com.direwolf20.buildinggadgets2.common.items.BaseGadget;
 import com.direwolf20.buildinggadgets2.util.GadgetNBT;
-import com.direwolf20.buildinggadgets2.util.datatypes.StatePos;
+import com.direwolf20.buildinggadgets2.util.datatypes.BlockBuffer;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
 import net.minecraft.resources.ResourceLocation;
@@ -11,8 +11,6 @@ import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.block.state.BlockState;
 
-import java.util.ArrayList;
-
 public class VerticalColumn extends BaseMode {
     public VerticalColumn(boolean exchange) {
         super(exchange);
@@ -24,10 +22,10 @@ public class VerticalColumn extends BaseMode {
     }
 
     @Override
-    public ArrayList<StatePos> collectWorld(Direction hitSide, Player player, BlockPos start, BlockState state) {
+    public BlockBuffer collectWorld(Direction hitSide, Player player, BlockPos start, BlockState state) {
         ItemStack gadget = BaseGadget.getGadget(player);
         int range = GadgetNBT.getToolRange(gadget);
-        ArrayList<StatePos> coordinates = new ArrayList<>();
+        BlockBuffer coordinates = new BlockBuffer();
 
         // If up or down, full height from start block
         int halfRange = range / 2;
@@ -38,18 +36,18 @@ public class VerticalColumn extends BaseMode {
                 Direction playerFacing = player.getDirection();
                 for (int i = -halfRange; i <= halfRange; i++)
                     if (isPosValid(player.level(), player, start.relative(playerFacing, i), state))
-                        coordinates.add(new StatePos(state, BlockPos.ZERO.relative(playerFacing, i)));
+                        coordinates.add(state, BlockPos.ZERO.relative(playerFacing, i));
             } else {
                 for (int i = 1; i < range + 1; i++) {
                     if (isPosValid(player.level(), player, start.relative(hitSide, i), state))
-                        coordinates.add(new StatePos(state, BlockPos.ZERO.relative(hitSide, i)));
+                        coordinates.add(state, BlockPos.ZERO.relative(hitSide, i));
                 }
             }
             //Else, half and half
         } else {
             for (int i = -halfRange; i <= halfRange; i++) {
                 if (isPosValid(player.level(), player, start.relative(Direction.UP, i), state))
-                    coordinates.add(new StatePos(state, BlockPos.ZERO.relative(Direction.UP, i)));
+                    coordinates.add(state, BlockPos.ZERO.relative(Direction.UP, i));
             }
         }
         boolean connected = GadgetNBT.getSetting(gadget, GadgetNBT.ToggleableSettings.CONNECTED_AREA.getName());